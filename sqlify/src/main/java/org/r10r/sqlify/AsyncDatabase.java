@@ -0,0 +1,361 @@
+package org.r10r.sqlify;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.r10r.sqlify.Database.Executable;
+
+/**
+ * Runs blocks of a {@link Database} asynchronously:
+ *
+ * <pre>
+ * CompletableFuture&lt;List&lt;Guestbook&gt;&gt; guestbooks = database.async()
+ *     .withConnection(connection -&gt; Sqlify.sql("SELECT * FROM guestbooks")
+ *         .parseResultWith(ListResultParser.of(Guestbook.class))
+ *         .executeSelect(connection));
+ * </pre>
+ *
+ * <ul>
+ * <li>Blocks run on virtual threads if the JVM supports them (JDK 21+) and
+ * on a cached pool of daemon threads otherwise. Use
+ * {@link #withExecutor(Executor)} to run them somewhere else.</li>
+ * <li>At most 'maximumConcurrency' blocks hold a connection at the same
+ * time. All others wait without asking the DataSource for a connection.
+ * The limit belongs to the {@link Database} and is shared by all its
+ * AsyncDatabases. It follows the size of the connection pool - see
+ * {@link Database#withMaximumAsyncConcurrency(int)}.</li>
+ * <li>Cancelling the future (or exceeding the timeout) calls
+ * Statement.cancel() on all statements the block has created so far. The
+ * timeout is also set as query timeout on each statement.</li>
+ * </ul>
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class AsyncDatabase {
+
+  /**
+   * The default pool size of HikariCP. Used if the pool size of the
+   * DataSource is unknown.
+   */
+  public static final int DEFAULT_MAXIMUM_CONCURRENCY = 10;
+
+  /**
+   * Getters of the maximum pool size: HikariCP, DBCP2, Tomcat JDBC.
+   */
+  private static final String[] POOL_SIZE_GETTERS = {"getMaximumPoolSize", "getMaxTotal", "getMaxActive"};
+
+  private final Database database;
+  private final Executor executor;
+  private final Semaphore permits;
+  private final long timeoutInMillis;
+
+  AsyncDatabase(Database database) {
+    this(database, DefaultExecutor.INSTANCE, 0);
+  }
+
+  private AsyncDatabase(Database database, Executor executor, long timeoutInMillis) {
+    this.database = database;
+    this.executor = executor;
+    this.permits = database.getAsyncPermits();
+    this.timeoutInMillis = timeoutInMillis;
+  }
+
+  /**
+   * @param dataSource The primary DataSource of a Database.
+   * @return The maximum pool size if the DataSource is a known pool,
+   * {@link #DEFAULT_MAXIMUM_CONCURRENCY} otherwise.
+   */
+  static int maximumConcurrencyOf(DataSource dataSource) {
+    for (String poolSizeGetter : POOL_SIZE_GETTERS) {
+      try {
+        Object poolSize = dataSource.getClass().getMethod(poolSizeGetter).invoke(dataSource);
+        if (poolSize instanceof Integer && (Integer) poolSize > 0) {
+          return (Integer) poolSize;
+        }
+      } catch (ReflectiveOperationException | RuntimeException exception) {
+        // not this kind of pool
+      }
+    }
+    return DEFAULT_MAXIMUM_CONCURRENCY;
+  }
+
+  /**
+   * @param executor Runs the blocks. Blocks wait for a free permit on that
+   * executor - prefer one with many cheap threads.
+   * @return A new AsyncDatabase. The current one is not changed.
+   */
+  public AsyncDatabase withExecutor(Executor executor) {
+    return new AsyncDatabase(database, executor, timeoutInMillis);
+  }
+
+  /**
+   * @param timeout The time a block may take - including waiting for a
+   * permit. The future fails with a TimeoutException afterwards. 0 means no
+   * timeout.
+   * @param timeUnit The unit of the timeout.
+   * @return A new AsyncDatabase. The current one is not changed.
+   */
+  public AsyncDatabase withTimeout(long timeout, TimeUnit timeUnit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("The timeout must not be negative, but was " + timeout);
+    }
+    return new AsyncDatabase(database, executor, timeUnit.toMillis(timeout));
+  }
+
+  public <T> CompletableFuture<T> withConnection(Executable<T> block) {
+    return withConnection(true, block);
+  }
+
+  public <T> CompletableFuture<T> withConnection(boolean autocommit, Executable<T> block) {
+    return submit(statementTracker -> database.withConnection(autocommit, connection ->
+        block.execute(statementTracker.wrap(connection))));
+  }
+
+  public <T> CompletableFuture<T> withReadOnlyConnection(Executable<T> block) {
+    return submit(statementTracker -> database.withReadOnlyConnection(connection ->
+        block.execute(statementTracker.wrap(connection))));
+  }
+
+  public <T> CompletableFuture<T> withTransaction(Executable<T> block) {
+    return submit(statementTracker -> database.withTransaction(connection ->
+        block.execute(statementTracker.wrap(connection))));
+  }
+
+  private <T> CompletableFuture<T> submit(Task<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    StatementTracker statementTracker = new StatementTracker(timeoutInMillis);
+
+    future.whenComplete((result, throwable) -> {
+      if (throwable instanceof CancellationException || throwable instanceof TimeoutException) {
+        statementTracker.cancelAll();
+      }
+    });
+    if (timeoutInMillis > 0) {
+      ScheduledFuture<?> timeout = TimeoutScheduler.INSTANCE.schedule(
+          () -> future.completeExceptionally(new TimeoutException("Ops. The query took longer than " + timeoutInMillis + " ms.")),
+          timeoutInMillis,
+          TimeUnit.MILLISECONDS);
+      future.whenComplete((result, throwable) -> timeout.cancel(false));
+    }
+
+    executor.execute(() -> {
+      try {
+        permits.acquire();
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        future.completeExceptionally(interruptedException);
+        return;
+      }
+      // the permit is released before the future completes - so that
+      // dependent stages can run their own queries right away
+      T result = null;
+      Throwable failure = null;
+      try {
+        if (!future.isDone()) {
+          result = task.run(statementTracker);
+        }
+      } catch (Throwable throwable) {
+        failure = throwable;
+      } finally {
+        permits.release();
+      }
+      if (failure != null) {
+        future.completeExceptionally(failure);
+      } else {
+        future.complete(result);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * @return The number of blocks that could get a connection right now -
+   * shared by all AsyncDatabases of the Database.
+   */
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  @FunctionalInterface
+  private interface Task<T> {
+
+    T run(StatementTracker statementTracker);
+  }
+
+  /**
+   * Remembers the open statements created via the wrapped connections - so
+   * that they can be cancelled from another thread. Closed statements are
+   * forgotten.
+   */
+  private static final class StatementTracker {
+
+    private final long timeoutInMillis;
+    private final long startedAt = System.nanoTime();
+    private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean cancelled;
+
+    private StatementTracker(long timeoutInMillis) {
+      this.timeoutInMillis = timeoutInMillis;
+    }
+
+    private Connection wrap(Connection connection) {
+      return (Connection) Proxy.newProxyInstance(
+          AsyncDatabase.class.getClassLoader(),
+          new Class<?>[]{Connection.class},
+          new TrackingConnectionHandler(connection, this));
+    }
+
+    private void track(Statement statement) throws SQLException {
+      if (timeoutInMillis > 0) {
+        long remainingMillis = timeoutInMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        // query timeouts are in whole seconds - round up, but at least 1
+        statement.setQueryTimeout((int) Math.max(1, (remainingMillis + 999) / 1000));
+      }
+      synchronized (this) {
+        statements.add(statement);
+        if (!cancelled) {
+          return;
+        }
+      }
+      statement.cancel();
+    }
+
+    private synchronized void untrack(Statement statement) {
+      statements.remove(statement);
+    }
+
+    private void cancelAll() {
+      List<Statement> statementsToCancel;
+      synchronized (this) {
+        cancelled = true;
+        statementsToCancel = new ArrayList<>(statements);
+      }
+      for (Statement statement : statementsToCancel) {
+        try {
+          statement.cancel();
+        } catch (SQLException sqlException) {
+          // the statement may already be closed or the driver does not support it.
+        }
+      }
+    }
+  }
+
+  private static final class TrackingConnectionHandler implements InvocationHandler {
+
+    private final Connection connection;
+    private final StatementTracker statementTracker;
+
+    private TrackingConnectionHandler(Connection connection, StatementTracker statementTracker) {
+      this.connection = connection;
+      this.statementTracker = statementTracker;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result;
+      try {
+        result = method.invoke(connection, args);
+      } catch (InvocationTargetException invocationTargetException) {
+        throw invocationTargetException.getCause();
+      }
+      if (result instanceof Statement && method.getReturnType().isInterface()) {
+        Statement statement = (Statement) result;
+        statementTracker.track(statement);
+        return Proxy.newProxyInstance(
+            AsyncDatabase.class.getClassLoader(),
+            new Class<?>[]{method.getReturnType()},
+            new TrackingStatementHandler(statement, statementTracker));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Tells the tracker when a statement is closed.
+   */
+  private static final class TrackingStatementHandler implements InvocationHandler {
+
+    private final Statement statement;
+    private final StatementTracker statementTracker;
+
+    private TrackingStatementHandler(Statement statement, StatementTracker statementTracker) {
+      this.statement = statement;
+      this.statementTracker = statementTracker;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(statement, args);
+      } catch (InvocationTargetException invocationTargetException) {
+        throw invocationTargetException.getCause();
+      } finally {
+        if ("close".equals(method.getName())) {
+          statementTracker.untrack(statement);
+        }
+      }
+    }
+  }
+
+  /**
+   * Virtual threads on JDK 21+. Looked up via reflection as sqlify itself is
+   * compiled for Java 8.
+   */
+  private static final class DefaultExecutor {
+
+    private static final Executor INSTANCE = create();
+
+    private static Executor create() {
+      try {
+        Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+      } catch (ReflectiveOperationException | RuntimeException exception) {
+        return Executors.newCachedThreadPool(daemonThreadFactory("sqlify-async-"));
+      }
+    }
+  }
+
+  private static final class TimeoutScheduler {
+
+    private static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+    private static ScheduledThreadPoolExecutor create() {
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("sqlify-timeout-"));
+      // futures that complete in time must not stay in the queue until their timeout
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
+  private static ThreadFactory daemonThreadFactory(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
@@ -1,21 +1,168 @@
 package org.r10r.sqlify;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
 import javax.sql.DataSource;
+import org.r10r.sqlify.core.StatementCache;
+import org.r10r.sqlify.metrics.QueryListener;
+import org.r10r.sqlify.metrics.QueryListeners;
 
 public class Database {
 
   private final DataSource dataSource;
+  private final StatementCache statementCache;
+  private final ReplicaRouter replicaRouter;
+  private final ThreadLocal<Scope> scopes;
+  private final RetryPolicy retryPolicy;
+  private final Semaphore asyncPermits;
 
-  private Database(DataSource dataSource) {
+  private Database(
+      DataSource dataSource,
+      StatementCache statementCache,
+      ReplicaRouter replicaRouter,
+      boolean connectionReuse,
+      RetryPolicy retryPolicy,
+      Semaphore asyncPermits) {
     this.dataSource = dataSource;
+    this.statementCache = statementCache;
+    this.replicaRouter = replicaRouter;
+    this.scopes = connectionReuse ? new ThreadLocal<>() : null;
+    this.retryPolicy = retryPolicy;
+    this.asyncPermits = asyncPermits;
   }
 
   public static Database use(DataSource dataSource) {
-    Database database = new Database(dataSource);
+    Semaphore asyncPermits = new Semaphore(AsyncDatabase.maximumConcurrencyOf(dataSource), true);
+    Database database = new Database(dataSource, null, null, false, null, asyncPermits);
     return database;
   }
 
+  /**
+   * Enables caching of PreparedStatements. Each physical connection keeps
+   * up to 'maximumStatementsPerConnection' statements (least recently used
+   * ones are closed first). Especially useful with a connection pool and
+   * drivers that do not cache statements themselves.
+   *
+   * See {@link StatementCache} for the lifecycle of cached statements.
+   *
+   * @param maximumStatementsPerConnection Number of statements to keep per
+   * physical connection.
+   * @return A new Database that caches statements. The current one is not
+   * changed.
+   */
+  public Database withStatementCache(int maximumStatementsPerConnection) {
+    return new Database(dataSource, new StatementCache(maximumStatementsPerConnection), replicaRouter, scopes != null, retryPolicy, asyncPermits);
+  }
+
+  /**
+   * Sends the blocks of {@link #withReadOnlyConnection(Executable)} to
+   * replicas. withConnection and withTransaction keep using the primary
+   * DataSource. See {@link ReplicaRouter} for strategies, ejection of
+   * unhealthy replicas and read-your-writes.
+   *
+   * @param replicaRouter Picks the replica for each block.
+   * @return A new Database that uses the replicas. The current one is not
+   * changed.
+   */
+  public Database withReplicas(ReplicaRouter replicaRouter) {
+    return new Database(dataSource, statementCache, replicaRouter, scopes != null, retryPolicy, asyncPermits);
+  }
+
+  /**
+   * Nested calls of withConnection, withTransaction and
+   * withReadOnlyConnection on the same thread join the connection of the
+   * outermost call instead of taking another one from the DataSource:
+   *
+   * <pre>
+   * database.withTransaction(connection -&gt; {
+   *   guestbookDao.insert(entry);  // calls database.withTransaction(...) itself
+   *   auditDao.log(entry);         // calls database.withConnection(...) itself
+   *   return null;
+   * });
+   * </pre>
+   *
+   * Inside a transaction every nested block becomes part of that
+   * transaction - a nested withTransaction neither commits nor rolls back,
+   * that is left to the outermost one. A nested withTransaction inside a
+   * block with autocommit turns autocommit off for its duration.
+   *
+   * Only blocks on the same thread are joined - blocks of an
+   * {@link AsyncDatabase} take their own connection.
+   *
+   * @return A new Database that reuses connections. The current one is not
+   * changed.
+   */
+  public Database withConnectionReuse() {
+    return new Database(dataSource, statementCache, replicaRouter, true, retryPolicy, asyncPermits);
+  }
+
+  /**
+   * Repeats transactions of {@link #withTransaction(Executable)} that failed
+   * because of concurrent transactions - serialization failures and
+   * deadlocks. See {@link RetryPolicy}. Nested transactions that join an
+   * outer one (see {@link #withConnectionReuse()}) are only repeated as
+   * part of the outer one.
+   *
+   * @param retryPolicy Decides which failures are retried and how often.
+   * @return A new Database that retries transactions. The current one is not
+   * changed.
+   */
+  public Database withRetryPolicy(RetryPolicy retryPolicy) {
+    return new Database(dataSource, statementCache, replicaRouter, scopes != null, retryPolicy, asyncPermits);
+  }
+
+  /**
+   * Limits the number of blocks of {@link #async()} that hold a connection
+   * at the same time. By default the limit is the maximum pool size of a
+   * HikariCP, DBCP2 or Tomcat DataSource - and
+   * {@link AsyncDatabase#DEFAULT_MAXIMUM_CONCURRENCY} for any other.
+   *
+   * @param maximumConcurrency The maximum number of blocks that hold a
+   * connection at the same time. Should not exceed the size of the pool.
+   * @return A new Database with its own limit - shared by all its
+   * AsyncDatabases. The current one is not changed.
+   */
+  public Database withMaximumAsyncConcurrency(int maximumConcurrency) {
+    if (maximumConcurrency < 1) {
+      throw new IllegalArgumentException("The maximum concurrency must be at least 1, but was " + maximumConcurrency);
+    }
+    return new Database(dataSource, statementCache, replicaRouter, scopes != null, retryPolicy, new Semaphore(maximumConcurrency, true));
+  }
+
+  /**
+   * @return The replica router if enabled via
+   * {@link #withReplicas(ReplicaRouter)}.
+   */
+  public Optional<ReplicaRouter> getReplicaRouter() {
+    return Optional.ofNullable(replicaRouter);
+  }
+
+  /**
+   * @return The statement cache (including hit rate) if enabled via
+   * {@link #withStatementCache(int)}.
+   */
+  public Optional<StatementCache> getStatementCache() {
+    return Optional.ofNullable(statementCache);
+  }
+
+  /**
+   * Runs blocks asynchronously - see {@link AsyncDatabase} for the defaults
+   * and how to change them. All AsyncDatabases of this Database (and of its
+   * copies made via with...) share one concurrency limit - see
+   * {@link #withMaximumAsyncConcurrency(int)}.
+   *
+   * @return An AsyncDatabase that uses this Database.
+   */
+  public AsyncDatabase async() {
+    return new AsyncDatabase(this);
+  }
+
+  Semaphore getAsyncPermits() {
+    return asyncPermits;
+  }
+
   public static interface Executable<T> {
 
     T execute(Connection connection);
@@ -26,15 +173,182 @@ public class Database {
   }
 
   public <T> T withConnection(boolean autocommit, Executable<T> block) {
-    try (Connection connection = dataSource.getConnection()) {
-      connection.setAutoCommit(autocommit);
-      return block.execute(connection);
+    try {
+      Scope scope = currentScope();
+      if (scope != null) {
+        return join(scope, autocommit, block);
+      }
+      return execute(dataSource, autocommit, block);
+    } finally {
+      if (replicaRouter != null) {
+        replicaRouter.markWrite();
+      }
+    }
+  }
+
+  /**
+   * Runs a block that only reads. Uses a replica if enabled via
+   * {@link #withReplicas(ReplicaRouter)} and the primary otherwise. If a
+   * replica does not hand out a connection the block runs on another
+   * replica or - if there is none - on the primary. The block itself is
+   * never repeated.
+   *
+   * @param block Must not write.
+   * @return The result of the block.
+   */
+  public <T> T withReadOnlyConnection(Executable<T> block) {
+    Scope scope = currentScope();
+    if (scope != null) {
+      connectionReused();
+      return block.execute(scope.connection);
+    }
+    if (replicaRouter == null || replicaRouter.isReadingOwnWrites()) {
+      return execute(dataSource, true, block);
+    }
+
+    ReplicaRouter.Replica failedReplica = null;
+    ReplicaRouter.Replica replica;
+    while ((replica = replicaRouter.select(failedReplica)) != null) {
+      Connection connection;
+      try {
+        connection = getConnection(replica.getDataSource());
+      } catch (SQLException sqlException) {
+        replica.failed(false);
+        if (failedReplica != null) {
+          break;
+        }
+        failedReplica = replica;
+        continue;
+      }
+      return executeOnReplica(replica, connection, block);
+    }
+    return execute(dataSource, true, block);
+  }
+
+  private <T> T executeOnReplica(ReplicaRouter.Replica replica, Connection connection, Executable<T> block) {
+    replica.started();
+    long startedAt = System.nanoTime();
+    boolean connectionFailure = false;
+    try {
+      return execute(connection, true, block);
+    } catch (SqlifyException sqlifyException) {
+      connectionFailure = ReplicaRouter.isConnectionFailure(sqlifyException);
+      throw sqlifyException;
+    } finally {
+      if (connectionFailure) {
+        replica.failed(true);
+      } else {
+        replica.succeeded(System.nanoTime() - startedAt);
+      }
+    }
+  }
+
+  private <T> T execute(DataSource dataSource, boolean autocommit, Executable<T> block) {
+    Connection connection;
+    try {
+      connection = getConnection(dataSource);
+    } catch (Exception e) {
+      throw new SqlifyException(e);
+    }
+    return execute(connection, autocommit, block, scopes != null);
+  }
+
+  private <T> T execute(Connection connectionToClose, boolean autocommit, Executable<T> block) {
+    return execute(connectionToClose, autocommit, block, false);
+  }
+
+  private <T> T execute(Connection connectionToClose, boolean autocommit, Executable<T> block, boolean openScope) {
+    try (Connection connection = connectionToClose) {
+      // pools usually hand out connections with autocommit - no need to
+      // tell the driver again
+      if (connection.getAutoCommit() != autocommit) {
+        connection.setAutoCommit(autocommit);
+      }
+      Connection connectionForBlock = statementCache == null ? connection : statementCache.wrap(connection);
+      if (!openScope) {
+        return block.execute(connectionForBlock);
+      }
+      scopes.set(new Scope(connectionForBlock, !autocommit));
+      try {
+        return block.execute(connectionForBlock);
+      } finally {
+        scopes.remove();
+      }
+    } catch (Exception e) {
+      throw new SqlifyException(e);
+    }
+  }
+
+  private Scope currentScope() {
+    return scopes == null ? null : scopes.get();
+  }
+
+  private <T> T join(Scope scope, boolean autocommit, Executable<T> block) {
+    connectionReused();
+    if (scope.inTransaction || autocommit) {
+      return block.execute(scope.connection);
+    }
+
+    // the outer block uses autocommit, this one needs a transaction
+    try {
+      scope.connection.setAutoCommit(false);
+      scope.inTransaction = true;
+      try {
+        return block.execute(scope.connection);
+      } finally {
+        scope.inTransaction = false;
+        // same as closing a connection: what is not committed is lost
+        scope.connection.rollback();
+        scope.connection.setAutoCommit(true);
+      }
+    } catch (SqlifyException sqlifyException) {
+      throw sqlifyException;
     } catch (Exception e) {
       throw new SqlifyException(e);
     }
   }
 
+  private static void connectionReused() {
+    QueryListener queryListener = QueryListeners.get();
+    if (queryListener == null) {
+      return;
+    }
+    try {
+      queryListener.onConnectionReused();
+    } catch (RuntimeException runtimeException) {
+      // a broken listener must not break the query
+    }
+  }
+
+  private static Connection getConnection(DataSource dataSource) throws SQLException {
+    QueryListener queryListener = QueryListeners.get();
+    if (queryListener == null) {
+      return dataSource.getConnection();
+    }
+    long startedAt = System.nanoTime();
+    Connection connection = dataSource.getConnection();
+    try {
+      queryListener.onConnectionAcquired(System.nanoTime() - startedAt);
+    } catch (RuntimeException runtimeException) {
+      // a broken listener must not break the query
+    }
+    return connection;
+  }
+
   public <T> T withTransaction(Executable<T> block) {
+    Scope scope = currentScope();
+    if (scope != null && scope.inTransaction) {
+      // the outermost transaction commits or rolls back
+      connectionReused();
+      return block.execute(scope.connection);
+    }
+    if (retryPolicy != null) {
+      return retryPolicy.execute(() -> executeTransaction(block));
+    }
+    return executeTransaction(block);
+  }
+
+  private <T> T executeTransaction(Executable<T> block) {
     return withConnection(false, connection -> {
       try {
         T t = block.execute(connection);
@@ -54,4 +368,19 @@ public class Database {
     });
   }
 
+  /**
+   * The connection of the outermost block on a thread. See
+   * {@link #withConnectionReuse()}.
+   */
+  private static final class Scope {
+
+    private final Connection connection;
+    private boolean inTransaction;
+
+    private Scope(Connection connection, boolean inTransaction) {
+      this.connection = connection;
+      this.inTransaction = inTransaction;
+    }
+  }
+
 }
@@ -0,0 +1,130 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.r10r.sqlify.core.SqlifyPipelined;
+import org.r10r.sqlify.resultparser.ResultParser;
+
+/**
+ * Collects several queries and sends them to the database with one round
+ * trip (see {@link SqlifyPipelined} for what the driver has to support):
+ *
+ * <pre>
+ * Pipeline pipeline = Sqlify.pipeline(connection);
+ * Pipeline.Result&lt;List&lt;Guestbook&gt;&gt; guestbooks = pipeline.add(Sqlify
+ *     .sql("SELECT * FROM guestbooks WHERE email = {email}")
+ *     .withParameter("email", email),
+ *     ListResultParser.of(Guestbook.class));
+ * Pipeline.Result&lt;Integer&gt; updated = pipeline.add(Sqlify
+ *     .sql("UPDATE guestbooks SET seen = true WHERE email = {email}")
+ *     .withParameter("email", email));
+ * pipeline.execute();
+ *
+ * guestbooks.get();
+ * updated.get();
+ * </pre>
+ *
+ * Queries without a result parser are executed as updates. Their result is
+ * the number of changed lines. A Pipeline is not thread-safe and can be
+ * executed only once.
+ */
+public final class Pipeline {
+
+  private final Connection connection;
+  private final SqlifyPipelined sqlifyPipelined = new SqlifyPipelined();
+  // the results of updates by their index - selects get theirs while parsing
+  private final Map<Integer, Result<Integer>> updates = new HashMap<>();
+  private List<Object> results;
+
+  Pipeline(Connection connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Adds an update.
+   *
+   * @param builder The query. Its sql and parameters are taken right away.
+   * @return The handle to the number of changed lines. Available after
+   * {@link #execute()}.
+   */
+  public Result<Integer> add(Sqlify.Builder builder) {
+    verifyThatPipelineHasNotBeenExecuted();
+    Result<Integer> result = new Result<>(this);
+    updates.put(builder.addTo(sqlifyPipelined, null, null), result);
+    return result;
+  }
+
+  /**
+   * Adds a select.
+   *
+   * @param <E> The type the result parser returns.
+   * @param builder The query. Its sql and parameters are taken right away.
+   * @param resultParser Parses the result of the query.
+   * @return The handle to the parsed result of the query. Available after
+   * {@link #execute()}.
+   */
+  public <E> Result<E> add(Sqlify.Builder builder, ResultParser<E> resultParser) {
+    if (resultParser == null) {
+      throw new SqlifyException("Arg. I don't know how to parse the result. Please specify result parser or use add(builder) for updates.");
+    }
+    verifyThatPipelineHasNotBeenExecuted();
+    Result<E> result = new Result<>(this);
+    builder.addTo(sqlifyPipelined, resultParser, result::set);
+    return result;
+  }
+
+  private void verifyThatPipelineHasNotBeenExecuted() {
+    if (results != null) {
+      throw new SqlifyException("Ops. The pipeline has already been executed.");
+    }
+  }
+
+  /**
+   * Executes all queries.
+   *
+   * @return The results of all queries in the order they have been added.
+   */
+  public List<Object> execute() {
+    verifyThatPipelineHasNotBeenExecuted();
+    List<Object> allResults = sqlifyPipelined.execute(connection);
+    for (Map.Entry<Integer, Result<Integer>> update : updates.entrySet()) {
+      update.getValue().set((Integer) allResults.get(update.getKey()));
+    }
+    results = allResults;
+    return results;
+  }
+
+  /**
+   * The result of one query of a pipeline.
+   *
+   * @param <E> The type the result parser of the query returns.
+   */
+  public static final class Result<E> {
+
+    private final Pipeline pipeline;
+    private E value;
+
+    private Result(Pipeline pipeline) {
+      this.pipeline = pipeline;
+    }
+
+    private void set(E value) {
+      this.value = value;
+    }
+
+    /**
+     * @return The result. Its type is the one of the result parser passed
+     * to {@link Pipeline#add(Sqlify.Builder, ResultParser)} - or Integer for
+     * updates.
+     */
+    public E get() {
+      if (pipeline.results == null) {
+        throw new SqlifyException("Ops. Please execute the pipeline before getting its results.");
+      }
+      return value;
+    }
+  }
+
+}
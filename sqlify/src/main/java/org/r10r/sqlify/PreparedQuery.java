@@ -0,0 +1,166 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.r10r.sqlify.core.ParameterBinder;
+import org.r10r.sqlify.core.ParsedSql;
+import org.r10r.sqlify.core.SqlifyCore;
+import org.r10r.sqlify.core.SqlifySingle;
+import org.r10r.sqlify.resultparser.ResultParser;
+
+/**
+ * A query that is parsed once and can then be executed many times.
+ *
+ * Create it once (eg in a static final field or in the constructor of your
+ * service) and execute it with the values for the placeholders. The values
+ * are passed by position - in the order the placeholders first appear in the
+ * sql:
+ *
+ * <pre>
+ * private static final PreparedQuery&lt;List&lt;Guestbook&gt;&gt; GUESTBOOKS_BY_EMAIL = Sqlify.prepare(
+ *     "SELECT id, email, content FROM guestbooks WHERE email = {email} OR email = {fallback_email}",
+ *     ListResultParser.of(Guestbook.class));
+ *
+ * ...
+ * GUESTBOOKS_BY_EMAIL.executeSelect(connection, "a@b.com", "c@d.com");
+ * </pre>
+ *
+ * A placeholder that appears more than once in the sql only needs one value.
+ * PreparedQuery is immutable and thread-safe.
+ *
+ * @param <T> The type the result parser returns.
+ */
+public final class PreparedQuery<T> {
+
+  private final ParsedSql parsedSql;
+  private final ResultParser<?> resultParser;
+  private final List<String> argumentNames;
+  private final int[][] argumentPositions;
+
+  PreparedQuery(String sql, ResultParser<?> resultParser) {
+    this.parsedSql = SqlifyCore.parse(sql);
+    this.resultParser = resultParser;
+
+    Map<String, int[]> parameterPositions = parsedSql.getParameterPositions();
+    this.argumentNames = Collections.unmodifiableList(new ArrayList<>(parameterPositions.keySet()));
+    this.argumentPositions = parameterPositions.values().toArray(new int[parameterPositions.size()][]);
+  }
+
+  /**
+   * @return The names of the placeholders in the order the values have to be
+   * passed to the execute methods.
+   */
+  public List<String> getArgumentNames() {
+    return argumentNames;
+  }
+
+  /**
+   * @param name The name of a placeholder.
+   * @return The position of that placeholder in the arguments of the execute
+   * methods.
+   */
+  public int indexOf(String name) {
+    int index = argumentNames.indexOf(name);
+    if (index < 0) {
+      throw new SqlifyException("Ops. The sql does not contain a placeholder named '" + name + "'. Available: " + argumentNames);
+    }
+    return index;
+  }
+
+  public ParsedSql getParsedSql() {
+    return parsedSql;
+  }
+
+  /**
+   * Executes a select.
+   *
+   * @param connection The connection to use for this query.
+   * @param arguments The values of all placeholders. In the order of
+   * {@link #getArgumentNames()}.
+   * @return The result as parsed by the result parser of this query.
+   */
+  public T executeSelect(Connection connection, Object... arguments) {
+    if (resultParser == null) {
+      throw new SqlifyException("Ops. Cannot execute a select without result parser. Please use Sqlify.prepare(sql, resultParser).");
+    }
+    return newSqlifySingle(arguments).<T>executeSelect(connection);
+  }
+
+  /**
+   * Executes an update (insert, delete statement)
+   *
+   * @param connection The connection to use for this query.
+   * @param arguments The values of all placeholders. In the order of
+   * {@link #getArgumentNames()}.
+   * @return The number of lines affected by this query.
+   */
+  public int executeUpdate(Connection connection, Object... arguments) {
+    return newSqlifySingle(arguments).executeUpdate(connection);
+  }
+
+  /**
+   * Executes an update (insert, delete statement) and returns the generated
+   * key parsed by the result parser of this query.
+   *
+   * @param connection The connection to use for this query.
+   * @param arguments The values of all placeholders. In the order of
+   * {@link #getArgumentNames()}.
+   * @return The generated key.
+   */
+  public T executeUpdateAndReturnGeneratedKey(Connection connection, Object... arguments) {
+    return newSqlifySingle(arguments).<T>executeUpdateAndReturnGeneratedKey(connection);
+  }
+
+  /**
+   * Collections and arrays change the jdbc sql ("IN (?, ?, ?)") - these go
+   * the way of Sqlify.sql(...) and are expanded for every execution.
+   */
+  private SqlifySingle newSqlifySingle(Object[] arguments) {
+    Object[] values = validated(arguments);
+    for (Object value : values) {
+      if (SqlifyCore.isCollection(value)) {
+        Map<String, Object> parameterMap = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+          parameterMap.put(argumentNames.get(i), values[i]);
+        }
+        return new SqlifySingle(parsedSql, resultParser, parameterMap, false);
+      }
+    }
+    return new SqlifySingle(parsedSql, resultParser, binderFor(values));
+  }
+
+  private Object[] validated(Object[] arguments) {
+    if (arguments.length != argumentPositions.length) {
+      throw new SqlifyException("Ops. Expected " + argumentPositions.length + " arguments " + argumentNames + " but got " + arguments.length + ".");
+    }
+    Object[] values = arguments;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] instanceof Optional) {
+        if (values == arguments) {
+          values = arguments.clone(); // don't touch the array of the caller
+        }
+        values[i] = ((Optional<?>) values[i]).orElse(null);
+      }
+      if (values[i] == null) {
+        throw new SqlifyException("Missing parameters to execute sql query. Please provide a value for: " + argumentNames.get(i));
+      }
+    }
+    return values;
+  }
+
+  private ParameterBinder binderFor(Object[] valuesToBind) {
+    return preparedStatement -> {
+      for (int i = 0; i < valuesToBind.length; i++) {
+        for (int position : argumentPositions[i]) {
+          SqlifyCore.applyParameter(preparedStatement, position, valuesToBind[i]);
+        }
+      }
+    };
+  }
+
+}
@@ -0,0 +1,268 @@
+package org.r10r.sqlify;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+/**
+ * Picks the replica for {@link Database#withReadOnlyConnection(Database.Executable)}:
+ *
+ * <pre>
+ * Database database = Database.use(primary)
+ *     .withReplicas(ReplicaRouter.leastInFlight(replica1, replica2)
+ *         .withReadYourWrites(2, TimeUnit.SECONDS));
+ * </pre>
+ *
+ * Strategies:
+ * <ul>
+ * <li>ROUND_ROBIN: one replica after the other.</li>
+ * <li>LEAST_IN_FLIGHT: the replica with the fewest running blocks.</li>
+ * <li>LATENCY_AWARE: the replica with the lowest average block time
+ * (exponentially weighted) multiplied by its running blocks + 1.</li>
+ * </ul>
+ *
+ * A replica is ejected for 'ejectionTime' after 'maximumFailures'
+ * consecutive failures. A failure is a connection that could not be
+ * acquired or a connection exception (SQLState class 08) inside the
+ * block. After the ejection time the replica gets traffic again - one more
+ * failure ejects it right away. When no replica is available reads go to
+ * the primary.
+ *
+ * With {@link #withReadYourWrites(long, TimeUnit)} reads go to the primary
+ * for a while after the same thread used the primary - so they see its
+ * writes despite replication lag. Blocks of an {@link AsyncDatabase} run on
+ * other threads and are not covered.
+ *
+ * The router keeps the state of the replicas. The with... methods return
+ * new routers with fresh state, so configure it once and keep it.
+ */
+public final class ReplicaRouter {
+
+  public enum Strategy {
+    ROUND_ROBIN,
+    LEAST_IN_FLIGHT,
+    LATENCY_AWARE
+  }
+
+  public static final int DEFAULT_MAXIMUM_FAILURES = 3;
+  public static final long DEFAULT_EJECTION_TIME_MILLIS = 30_000;
+
+  private final Strategy strategy;
+  private final List<Replica> replicas;
+  private final int maximumFailures;
+  private final long ejectionTimeNanos;
+  private final long readYourWritesNanos;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ThreadLocal<long[]> lastWriteOfThread = ThreadLocal.withInitial(() -> new long[1]);
+
+  private ReplicaRouter(
+      Strategy strategy,
+      List<DataSource> dataSources,
+      int maximumFailures,
+      long ejectionTimeNanos,
+      long readYourWritesNanos) {
+    if (dataSources.isEmpty()) {
+      throw new IllegalArgumentException("Please provide at least one replica.");
+    }
+    List<Replica> newReplicas = new ArrayList<>();
+    for (DataSource dataSource : dataSources) {
+      newReplicas.add(new Replica(dataSource));
+    }
+    this.strategy = strategy;
+    this.replicas = Collections.unmodifiableList(newReplicas);
+    this.maximumFailures = maximumFailures;
+    this.ejectionTimeNanos = ejectionTimeNanos;
+    this.readYourWritesNanos = readYourWritesNanos;
+  }
+
+  public static ReplicaRouter roundRobin(DataSource... replicas) {
+    return of(Strategy.ROUND_ROBIN, replicas);
+  }
+
+  public static ReplicaRouter leastInFlight(DataSource... replicas) {
+    return of(Strategy.LEAST_IN_FLIGHT, replicas);
+  }
+
+  public static ReplicaRouter latencyAware(DataSource... replicas) {
+    return of(Strategy.LATENCY_AWARE, replicas);
+  }
+
+  public static ReplicaRouter of(Strategy strategy, DataSource... replicas) {
+    List<DataSource> dataSources = new ArrayList<>();
+    Collections.addAll(dataSources, replicas);
+    return new ReplicaRouter(
+        strategy,
+        dataSources,
+        DEFAULT_MAXIMUM_FAILURES,
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_EJECTION_TIME_MILLIS),
+        0);
+  }
+
+  /**
+   * @param maximumFailures Consecutive failures after which a replica is
+   * ejected.
+   * @param ejectionTime How long an ejected replica gets no traffic.
+   * @param timeUnit The unit of the ejection time.
+   * @return A new ReplicaRouter. The current one is not changed.
+   */
+  public ReplicaRouter withEjection(int maximumFailures, long ejectionTime, TimeUnit timeUnit) {
+    if (maximumFailures < 1) {
+      throw new IllegalArgumentException("The maximum number of failures must be at least 1, but was " + maximumFailures);
+    }
+    return new ReplicaRouter(strategy, dataSources(), maximumFailures, timeUnit.toNanos(ejectionTime), readYourWritesNanos);
+  }
+
+  /**
+   * @param window How long reads of a thread go to the primary after it
+   * used the primary.
+   * @param timeUnit The unit of the window.
+   * @return A new ReplicaRouter. The current one is not changed.
+   */
+  public ReplicaRouter withReadYourWrites(long window, TimeUnit timeUnit) {
+    return new ReplicaRouter(strategy, dataSources(), maximumFailures, ejectionTimeNanos, timeUnit.toNanos(window));
+  }
+
+  private List<DataSource> dataSources() {
+    List<DataSource> dataSources = new ArrayList<>();
+    for (Replica replica : replicas) {
+      dataSources.add(replica.dataSource);
+    }
+    return dataSources;
+  }
+
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * @return The number of replicas that currently get traffic.
+   */
+  public int getHealthyReplicaCount() {
+    long now = System.nanoTime();
+    int healthy = 0;
+    for (Replica replica : replicas) {
+      if (replica.isAvailableAt(now)) {
+        healthy++;
+      }
+    }
+    return healthy;
+  }
+
+  void markWrite() {
+    if (readYourWritesNanos > 0) {
+      lastWriteOfThread.get()[0] = System.nanoTime();
+    }
+  }
+
+  boolean isReadingOwnWrites() {
+    if (readYourWritesNanos <= 0) {
+      return false;
+    }
+    long lastWrite = lastWriteOfThread.get()[0];
+    return lastWrite != 0 && System.nanoTime() - lastWrite < readYourWritesNanos;
+  }
+
+  /**
+   * @param excluded A replica that already failed for this block. May be
+   * null.
+   * @return The replica to use or null if none is available.
+   */
+  Replica select(Replica excluded) {
+    long now = System.nanoTime();
+    int size = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    Replica best = null;
+    double bestScore = Double.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (replica == excluded || !replica.isAvailableAt(now)) {
+        continue;
+      }
+      if (strategy == Strategy.ROUND_ROBIN) {
+        return replica;
+      }
+      double score = strategy == Strategy.LEAST_IN_FLIGHT
+          ? replica.inFlight.get()
+          : replica.averageNanos * (replica.inFlight.get() + 1);
+      // strictly lower - ties are broken round robin via 'start'
+      if (score < bestScore) {
+        best = replica;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  final class Replica {
+
+    private static final double WEIGHT_OF_NEW_SAMPLE = 0.2;
+
+    private final DataSource dataSource;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong ejectedUntil = new AtomicLong();
+    private volatile double averageNanos;
+
+    private Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+
+    DataSource getDataSource() {
+      return dataSource;
+    }
+
+    private boolean isAvailableAt(long now) {
+      long until = ejectedUntil.get();
+      return until == 0 || now - until >= 0;
+    }
+
+    void started() {
+      inFlight.incrementAndGet();
+    }
+
+    void succeeded(long nanos) {
+      inFlight.decrementAndGet();
+      consecutiveFailures.set(0);
+      ejectedUntil.set(0);
+      // races only lose a sample
+      double average = averageNanos;
+      averageNanos = average == 0 ? nanos : average + WEIGHT_OF_NEW_SAMPLE * (nanos - average);
+    }
+
+    void failed(boolean started) {
+      if (started) {
+        inFlight.decrementAndGet();
+      }
+      if (consecutiveFailures.incrementAndGet() >= maximumFailures) {
+        long until = System.nanoTime() + ejectionTimeNanos;
+        ejectedUntil.set(until == 0 ? 1 : until);
+      }
+    }
+  }
+
+  /**
+   * @param exception Thrown by a block or while getting a connection.
+   * @return true if the exception indicates a broken connection to the
+   * database - as opposed to a failing query.
+   */
+  static boolean isConnectionFailure(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        String sqlState = ((SQLException) cause).getSQLState();
+        if (sqlState != null && sqlState.startsWith("08")) {
+          return true;
+        }
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return false;
+  }
+
+}
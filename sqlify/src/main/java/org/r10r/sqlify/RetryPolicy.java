@@ -0,0 +1,203 @@
+package org.r10r.sqlify;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.r10r.sqlify.metrics.QueryListener;
+import org.r10r.sqlify.metrics.QueryListeners;
+
+/**
+ * Retries transactions that failed because of concurrent transactions -
+ * serialization failures (SQLState 40001) and deadlocks (40P01) by default:
+ *
+ * <pre>
+ * Database database = Database.use(dataSource)
+ *     .withRetryPolicy(RetryPolicy.serializationFailures()
+ *         .withMaximumAttempts(10)
+ *         .withBudget(2, TimeUnit.SECONDS));
+ * </pre>
+ *
+ * Between two attempts it waits a random time between 0 and
+ * initialBackoff * 2^(attempt - 1) - capped by maximumBackoff ("full
+ * jitter"). It stops when 'maximumAttempts' is reached or when the next
+ * attempt would start after the budget of the call is used up. Then the
+ * last exception is thrown.
+ *
+ * The database rolls back the failed attempt, but the block runs again
+ * from the start. It must not have side effects outside of the
+ * transaction - or they must be safe to repeat.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class RetryPolicy {
+
+  public static final int DEFAULT_MAXIMUM_ATTEMPTS = 5;
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 10;
+  public static final long DEFAULT_MAXIMUM_BACKOFF_MILLIS = 1_000;
+  public static final long DEFAULT_BUDGET_MILLIS = 10_000;
+
+  private static final Set<String> SERIALIZATION_FAILURES
+      = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("40001", "40P01")));
+
+  private final Set<String> retryableSqlStates;
+  private final int maximumAttempts;
+  private final long initialBackoffNanos;
+  private final long maximumBackoffNanos;
+  private final long budgetNanos;
+
+  private RetryPolicy(
+      Set<String> retryableSqlStates,
+      int maximumAttempts,
+      long initialBackoffNanos,
+      long maximumBackoffNanos,
+      long budgetNanos) {
+    this.retryableSqlStates = retryableSqlStates;
+    this.maximumAttempts = maximumAttempts;
+    this.initialBackoffNanos = initialBackoffNanos;
+    this.maximumBackoffNanos = maximumBackoffNanos;
+    this.budgetNanos = budgetNanos;
+  }
+
+  /**
+   * @return A policy that retries serialization failures (40001) and
+   * deadlocks (40P01).
+   */
+  public static RetryPolicy serializationFailures() {
+    return new RetryPolicy(
+        SERIALIZATION_FAILURES,
+        DEFAULT_MAXIMUM_ATTEMPTS,
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_INITIAL_BACKOFF_MILLIS),
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAXIMUM_BACKOFF_MILLIS),
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_BUDGET_MILLIS));
+  }
+
+  /**
+   * @param sqlStates The SQLStates to retry - for instance "40001" and
+   * "40P01" plus "55P03" (lock not available).
+   * @return A new RetryPolicy. The current one is not changed.
+   */
+  public RetryPolicy withRetryableSqlStates(String... sqlStates) {
+    Set<String> newRetryableSqlStates = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(sqlStates)));
+    return new RetryPolicy(newRetryableSqlStates, maximumAttempts, initialBackoffNanos, maximumBackoffNanos, budgetNanos);
+  }
+
+  /**
+   * @param maximumAttempts The number of attempts including the first one.
+   * @return A new RetryPolicy. The current one is not changed.
+   */
+  public RetryPolicy withMaximumAttempts(int maximumAttempts) {
+    if (maximumAttempts < 1) {
+      throw new IllegalArgumentException("The maximum number of attempts must be at least 1, but was " + maximumAttempts);
+    }
+    return new RetryPolicy(retryableSqlStates, maximumAttempts, initialBackoffNanos, maximumBackoffNanos, budgetNanos);
+  }
+
+  /**
+   * @param initialBackoff The maximum wait before the second attempt.
+   * Doubles with each attempt.
+   * @param maximumBackoff The maximum wait between two attempts.
+   * @param timeUnit The unit of both.
+   * @return A new RetryPolicy. The current one is not changed.
+   */
+  public RetryPolicy withBackoff(long initialBackoff, long maximumBackoff, TimeUnit timeUnit) {
+    if (initialBackoff < 0 || maximumBackoff < initialBackoff) {
+      throw new IllegalArgumentException("Please provide 0 <= initialBackoff <= maximumBackoff, but was " + initialBackoff + " and " + maximumBackoff);
+    }
+    return new RetryPolicy(retryableSqlStates, maximumAttempts, timeUnit.toNanos(initialBackoff), timeUnit.toNanos(maximumBackoff), budgetNanos);
+  }
+
+  /**
+   * @param budget The time after which no further attempt is started -
+   * measured from the start of the first attempt.
+   * @param timeUnit The unit of the budget.
+   * @return A new RetryPolicy. The current one is not changed.
+   */
+  public RetryPolicy withBudget(long budget, TimeUnit timeUnit) {
+    return new RetryPolicy(retryableSqlStates, maximumAttempts, initialBackoffNanos, maximumBackoffNanos, timeUnit.toNanos(budget));
+  }
+
+  <T> T execute(Supplier<T> attempt) {
+    long startedAt = System.nanoTime();
+    for (int attemptNumber = 1;; attemptNumber++) {
+      long attemptStartedAt = System.nanoTime();
+      try {
+        return attempt.get();
+      } catch (RuntimeException runtimeException) {
+        String sqlState = findRetryableSqlState(runtimeException);
+        if (sqlState == null || attemptNumber >= maximumAttempts) {
+          throw runtimeException;
+        }
+        long backoffNanos = backoffNanos(attemptNumber);
+        if (System.nanoTime() + backoffNanos - startedAt > budgetNanos) {
+          throw runtimeException;
+        }
+        sleep(backoffNanos, runtimeException);
+        reportRetry(sqlState, attemptNumber, System.nanoTime() - attemptStartedAt);
+      }
+    }
+  }
+
+  /**
+   * @param attemptNumber The attempt that just failed. Starts with 1.
+   * @return A random wait between 0 and the capped exponential backoff.
+   */
+  long backoffNanos(int attemptNumber) {
+    long ceiling = initialBackoffNanos << Math.min(attemptNumber - 1, 30);
+    if (ceiling < 0 || ceiling > maximumBackoffNanos) {
+      ceiling = maximumBackoffNanos;
+    }
+    return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  /**
+   * @param exception The exception thrown by the transaction.
+   * @return The SQLState if the exception (or one of its causes) is
+   * retryable. null otherwise.
+   */
+  String findRetryableSqlState(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        for (SQLException sqlException = (SQLException) cause; sqlException != null; sqlException = sqlException.getNextException()) {
+          if (retryableSqlStates.contains(sqlException.getSQLState())) {
+            return sqlException.getSQLState();
+          }
+        }
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  private static void sleep(long nanos, RuntimeException failure) {
+    if (nanos == 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      failure.addSuppressed(interruptedException);
+      throw failure;
+    }
+  }
+
+  private static void reportRetry(String sqlState, int attemptNumber, long wastedNanos) {
+    QueryListener queryListener = QueryListeners.get();
+    if (queryListener == null) {
+      return;
+    }
+    try {
+      queryListener.onTransactionRetried(sqlState, attemptNumber, wastedNanos);
+    } catch (RuntimeException runtimeException) {
+      // a broken listener must not break the transaction
+    }
+  }
+
+}
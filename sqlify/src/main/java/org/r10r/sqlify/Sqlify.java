@@ -1,15 +1,34 @@
 package org.r10r.sqlify;
 
+import org.r10r.sqlify.resultparser.ListResultParser;
 import org.r10r.sqlify.resultparser.ResultParser;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.r10r.sqlify.core.Batch;
+import org.r10r.sqlify.core.BatchBinder;
+import org.r10r.sqlify.core.BatchProgressListener;
+import org.r10r.sqlify.core.BatchReport;
+import org.r10r.sqlify.core.BatchRows;
+import org.r10r.sqlify.core.ResultCache;
 import org.r10r.sqlify.core.SqlifyBatched;
+import org.r10r.sqlify.core.SqlifyBulkLoad;
+import org.r10r.sqlify.core.SqlifyPipelined;
 import org.r10r.sqlify.core.SqlifySingle;
+import org.r10r.sqlify.rowparser.RowConsumer;
+import org.r10r.sqlify.rowparser.RowParser;
+import org.r10r.sqlify.rowparser.RowParsers;
 
 public final class Sqlify {
 
@@ -28,9 +47,15 @@ public final class Sqlify {
 
   public static class Builder {
 
+    public static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
     private final String sql;
     private final Map<String, Object> parameterMap;
     private ResultParser<?> resultParser;
+    private int fetchSize = DEFAULT_STREAM_FETCH_SIZE;
+    private ResultCache resultCache;
+    private String[] cachedTables;
+    private boolean collectionsAsArrays;
 
     private Builder(String sql) {
       this.sql = sql;
@@ -43,7 +68,12 @@ public final class Sqlify {
      * For instance "SELECT * FROM table WHERE id = {id}
      * 
      * => withParameter("id", 1234L);
-     * 
+     *
+     * Collections and arrays that are the only content of an IN list are
+     * expanded. For instance "SELECT * FROM table WHERE id IN ({ids})"
+     *
+     * => withParameter("ids", Arrays.asList(1L, 2L, 3L));
+     *
      * @param key The key in your SQL query. Written in curly braces inside your SQL.
      * @param value The value for that query. If it is an Optional it will be unpacked automatically if it contains a value.
      * @return The builder for chaining
@@ -71,11 +101,61 @@ public final class Sqlify {
       return this;
     }
 
+    /**
+     * Binds Collection and array parameters as one sql array instead of one
+     * '?' per value. Postgres only. "IN ({ids})" is rewritten to
+     * "= ANY (?)" - so the sql is the same for any number of values:
+     * 
+     * <pre>
+     * Sqlify.sql("SELECT * FROM t WHERE id IN ({ids})")
+     *     .withParameter("ids", ids)
+     *     .bindCollectionsAsArrays()
+     * </pre>
+     *
+     * @return The builder for chaining
+     */
+    public Builder bindCollectionsAsArrays() {
+      this.collectionsAsArrays = true;
+      return this;
+    }
+
     public Builder parseResultWith(ResultParser<?> resultParser) {
       this.resultParser = resultParser;
       return this;
     }
 
+    /**
+     * The number of rows the driver fetches from the database at once when
+     * using executeStream or executeForEach. Default is 
+     * {@link #DEFAULT_STREAM_FETCH_SIZE}.
+     *
+     * @param fetchSize Number of rows to fetch at once.
+     * @return The builder for chaining
+     */
+    public Builder withFetchSize(int fetchSize) {
+      if (fetchSize < 0) {
+        throw new SqlifyException("Ops. The fetch size must not be negative, but was " + fetchSize);
+      }
+      this.fetchSize = fetchSize;
+      return this;
+    }
+
+    /**
+     * Caches the result of {@link #executeSelect(Connection)} by sql, result
+     * parser and parameters. Only for read-mostly data. Not used inside of
+     * transactions (autoCommit == false). See {@link ResultCache}.
+     *
+     * @param resultCache The cache to use.
+     * @param tables The tables the query reads from. Updates on them
+     * invalidate the cached result.
+     * @return The builder for chaining
+     */
+    public Builder cachedIn(ResultCache resultCache, String... tables) {
+      this.resultCache = resultCache;
+      this.cachedTables = tables;
+      return this;
+    }
+
     /**
      * Executes a select. Use 'parseResultWith' to specify a parser that will
      * map the result to nice Java objects.
@@ -84,10 +164,80 @@ public final class Sqlify {
      * @return The result as specified via 'parseResultWith'
      */
     public <E> E executeSelect(Connection connection) {
-      SqlifySingle sqlifySingle = new SqlifySingle(this.sql, this.resultParser, this.parameterMap);
+      if (resultCache != null && isAutoCommit(connection)) {
+        return resultCache.get(this.sql, this.resultParser, this.parameterMap, () -> {
+          SqlifySingle sqlifySingle = newSqlifySingle();
+          return sqlifySingle.<E>executeSelect(connection);
+        }, cachedTables);
+      }
+      SqlifySingle sqlifySingle = newSqlifySingle();
       return sqlifySingle.<E>executeSelect(connection);
     }
 
+    private static boolean isAutoCommit(Connection connection) {
+      try {
+        return connection.getAutoCommit();
+      } catch (SQLException sqlException) {
+        throw new SqlifyException("Ops. Could not determine the autoCommit mode of the connection: " + sqlException.getMessage(), sqlException);
+      }
+    }
+
+    /**
+     * Executes a select and streams the result row by row. Memory usage stays
+     * flat no matter how many rows the query returns. The stream must be
+     * closed (eg via try-with-resources) to release the statement:
+     * 
+     * <pre>
+     * try (Stream&lt;Guestbook&gt; guestbooks = Sqlify.sql("SELECT * FROM guestbooks")
+     *     .executeStream(connection, Guestbook.class)) {
+     *   guestbooks.forEach(...);
+     * }
+     * </pre>
+     * 
+     * Needs a connection with autocommit turned off - Postgres only streams
+     * then. Use database.withTransaction(...) or
+     * database.withConnection(false, ...).
+     *
+     * @param connection The connection to use for this query.
+     * @param rowParser Parses each row.
+     * @return A stream of all rows.
+     */
+    public <E> Stream<E> executeStream(Connection connection, RowParser<E> rowParser) {
+      SqlifySingle sqlifySingle = newSqlifySingle();
+      return sqlifySingle.executeStream(connection, rowParser, fetchSize);
+    }
+
+    /**
+     * Same as {@link #executeStream(Connection, RowParser)} using the default
+     * RowParser of the class.
+     *
+     * @param connection The connection to use for this query.
+     * @param clazz The class of each row.
+     * @return A stream of all rows.
+     */
+    public <E> Stream<E> executeStream(Connection connection, Class<E> clazz) {
+      RowParser<E> rowParser = RowParsers.getDefaultParserFor(clazz);
+      return executeStream(connection, rowParser);
+    }
+
+    /**
+     * Executes a select and hands every row to the consumer. Memory usage stays
+     * flat no matter how many rows the query returns.
+     * 
+     * Needs a connection with autocommit turned off - Postgres only streams
+     * then. Use database.withTransaction(...) or
+     * database.withConnection(false, ...).
+     *
+     * @param connection The connection to use for this query.
+     * @param rowParser Parses each row.
+     * @param rowConsumer Receives each row.
+     * @return The number of rows.
+     */
+    public <E> long executeForEach(Connection connection, RowParser<E> rowParser, RowConsumer<E> rowConsumer) {
+      SqlifySingle sqlifySingle = newSqlifySingle();
+      return sqlifySingle.executeForEach(connection, rowParser, fetchSize, rowConsumer);
+    }
+
     /**
      * Executes an update (insert, delete statement)
      *
@@ -95,7 +245,7 @@ public final class Sqlify {
      * @return The number of lines affected by this query.
      */
     public int executeUpdate(Connection connection) {
-      SqlifySingle sqlifySingle = new SqlifySingle(this.sql, this.resultParser, this.parameterMap);
+      SqlifySingle sqlifySingle = newSqlifySingle();
       return sqlifySingle.executeUpdate(connection);
     }
 
@@ -109,10 +259,63 @@ public final class Sqlify {
      * @return The generated key.
      */
     public <E> E executeUpdateAndReturnGeneratedKey(Connection connection) {
-      SqlifySingle sqlifySingle = new SqlifySingle(this.sql, this.resultParser, this.parameterMap);
+      SqlifySingle sqlifySingle = newSqlifySingle();
       return sqlifySingle.<E>executeUpdateAndReturnGeneratedKey(connection);
     }
 
+    private SqlifySingle newSqlifySingle() {
+      return new SqlifySingle(this.sql, this.resultParser, this.parameterMap, this.collectionsAsArrays);
+    }
+
+    <E> int addTo(SqlifyPipelined sqlifyPipelined, ResultParser<E> resultParser, Consumer<? super E> resultConsumer) {
+      if (this.resultParser != null && !this.resultParser.equals(resultParser)) {
+        throw new SqlifyException("Arg. Please pass the result parser of a pipelined query to Pipeline.add(builder, resultParser) - not to the builder. Query: " + this.sql);
+      }
+      return sqlifyPipelined.add(this.sql, resultParser, new HashMap<>(this.parameterMap), this.collectionsAsArrays, resultConsumer);
+    }
+
+  }
+
+  ////////////////////////////////////////////////////////////////////////////
+  // Pipelines
+  ////////////////////////////////////////////////////////////////////////////
+  /**
+   * Collects several queries and sends them with one round trip. See
+   * {@link Pipeline}.
+   *
+   * @param connection The connection to use for all queries.
+   * @return an empty pipeline
+   */
+  public static Pipeline pipeline(Connection connection) {
+    return new Pipeline(connection);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////
+  // Prepared queries
+  ////////////////////////////////////////////////////////////////////////////
+  /**
+   * Parses the sql once and returns a query that can be executed many times.
+   * Values for placeholders are passed by position when executing it.
+   *
+   * @param sql SQL with named parameters in curly braces. Example: SELECT *
+   * FROM my_table WHERE id = {id}
+   * @param resultParser The parser for the result of the query.
+   * @return an immutable and thread-safe query
+   */
+  public static <E> PreparedQuery<E> prepare(String sql, ResultParser<E> resultParser) {
+    return new PreparedQuery<>(sql, resultParser);
+  }
+
+  /**
+   * Same as {@link #prepare(String, ResultParser)} but for updates that do not
+   * return anything except the number of affected lines.
+   *
+   * @param sql SQL with named parameters in curly braces. Example: DELETE
+   * FROM my_table WHERE id = {id}
+   * @return an immutable and thread-safe query
+   */
+  public static PreparedQuery<Void> prepare(String sql) {
+    return new PreparedQuery<>(sql, null);
   }
 
   ////////////////////////////////////////////////////////////////////////////
@@ -132,6 +335,15 @@ public final class Sqlify {
 
     private final String sql;
     private final List<Batch> batches;
+    // set by withRows(iterator, batchBinder) - keeps the row type of both
+    private Supplier<SqlifyBatched> sqlifyBatchedOfRows;
+    private BatchRows batchRows;
+    private int chunkSize = Integer.MAX_VALUE;
+    private boolean commitAfterEachChunk = false;
+    private BatchProgressListener batchProgressListener;
+    private boolean multiRowValues = false;
+    private int maximumBindParameters;
+    private ListResultParser<?> resultParser;
 
     private BatchBuilder(String sql) {
       this.sql = sql;
@@ -139,13 +351,348 @@ public final class Sqlify {
     }
 
     public BatchBuilder withBatches(List<Batch> batches) {
+      if (sqlifyBatchedOfRows != null || batchRows != null) {
+        throw new SqlifyException("Ops. Please use either withBatches(...) or withRows(...), but not both.");
+      }
       this.batches.addAll(batches);
       return this;
     }
 
+    /**
+     * Provides the rows lazily. Each row is pulled from the iterator only when
+     * it is needed and bound directly to the statement - no Batch object is
+     * created per row. Combine it with {@link #withChunkSize(int)} to load
+     * data of any size with bounded memory:
+     *
+     * <pre>
+     * Sqlify.sqlBatch("INSERT INTO person(name, age) VALUES ({name}, {age})")
+     *   .withRows(csvReader.iterator(), (line, parameters) -&gt; parameters
+     *       .set("name", line.get(0))
+     *       .set("age", Integer.valueOf(line.get(1))))
+     *   .withChunkSize(10_000)
+     *   .executeUpdate(connection);
+     * </pre>
+     *
+     * @param rows The source objects. One row per object.
+     * @param batchBinder Binds a source object to the placeholders.
+     * @return The builder for chaining
+     */
+    public <R> BatchBuilder withRows(Iterator<R> rows, BatchBinder<R> batchBinder) {
+      if (!batches.isEmpty() || sqlifyBatchedOfRows != null || batchRows != null) {
+        throw new SqlifyException("Ops. Please use either withBatches(...) or withRows(...) - and only once.");
+      }
+      this.sqlifyBatchedOfRows = () -> new SqlifyBatched(this.sql, rows, batchBinder);
+      return this;
+    }
+
+    /**
+     * See {@link #withRows(Iterator, BatchBinder)}. The stream is consumed
+     * lazily but not closed.
+     *
+     * @param rows The source objects. One row per object.
+     * @param batchBinder Binds a source object to the placeholders.
+     * @return The builder for chaining
+     */
+    public <R> BatchBuilder withRows(Stream<R> rows, BatchBinder<R> batchBinder) {
+      return withRows(rows.iterator(), batchBinder);
+    }
+
+    /**
+     * See {@link #withRows(Iterator, BatchBinder)}.
+     *
+     * @param rows The source objects. One row per object.
+     * @param batchBinder Binds a source object to the placeholders.
+     * @return The builder for chaining
+     */
+    public <R> BatchBuilder withRows(Spliterator<R> rows, BatchBinder<R> batchBinder) {
+      return withRows(Spliterators.iterator(rows), batchBinder);
+    }
+
+    /**
+     * Uses rows that are stored in flat arrays per placeholder. See
+     * {@link BatchRows}.
+     *
+     * @param batchRows The rows. Must have been created for the sql of this
+     * builder.
+     * @return The builder for chaining
+     */
+    public BatchBuilder withRows(BatchRows batchRows) {
+      if (!batches.isEmpty() || sqlifyBatchedOfRows != null || this.batchRows != null) {
+        throw new SqlifyException("Ops. Please use either withBatches(...) or withRows(...) - and only once.");
+      }
+      if (!batchRows.getSql().equals(sql)) {
+        throw new SqlifyException("Ops. The rows have been created for a different sql: " + batchRows.getSql());
+      }
+      this.batchRows = batchRows;
+      return this;
+    }
+
+    /**
+     * Sends the batches to the database in chunks of 'chunkSize' rows
+     * instead of all at once. Keeps the memory used by the driver bounded
+     * for very large batches.
+     *
+     * @param chunkSize The number of rows sent to the database at once.
+     * @return The builder for chaining
+     */
+    public BatchBuilder withChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Commits after each chunk (see {@link #withChunkSize(int)}). If a
+     * chunk fails, all chunks before it stay committed. Needs a connection
+     * with autocommit turned off - eg database.withConnection(false, ...).
+     *
+     * @return The builder for chaining
+     */
+    public BatchBuilder withCommitAfterEachChunk() {
+      this.commitAfterEachChunk = true;
+      return this;
+    }
+
+    /**
+     * Sends many rows per statement: "INSERT ... VALUES ({a}, {b})" gets
+     * rewritten to "INSERT ... VALUES (?, ?), (?, ?), ...". Stays below the
+     * bind parameter limit of PostgreSQL (32767).
+     *
+     * @return The builder for chaining
+     */
+    public BatchBuilder withMultiRowValues() {
+      return withMultiRowValues(SqlifyBatched.DEFAULT_MAXIMUM_BIND_PARAMETERS);
+    }
+
+    /**
+     * See {@link #withMultiRowValues()}.
+     *
+     * @param maximumBindParameters The bind parameter limit of the driver.
+     * @return The builder for chaining
+     */
+    public BatchBuilder withMultiRowValues(int maximumBindParameters) {
+      this.multiRowValues = true;
+      this.maximumBindParameters = maximumBindParameters;
+      return this;
+    }
+
+    /**
+     * @param batchProgressListener Gets notified after each chunk.
+     * @return The builder for chaining
+     */
+    public BatchBuilder withProgressListener(BatchProgressListener batchProgressListener) {
+      this.batchProgressListener = batchProgressListener;
+      return this;
+    }
+
+    /**
+     * Parses the generated keys of
+     * {@link #executeUpdateAndReturnGeneratedKeys(Connection)}.
+     *
+     * @param resultParser For instance ListResultParser.of(Long.class)
+     * @return The builder for chaining
+     */
+    public BatchBuilder parseResultWith(ListResultParser<?> resultParser) {
+      this.resultParser = resultParser;
+      return this;
+    }
+
+    /**
+     * Executes all batches.
+     *
+     * @param connection The connection to use.
+     * @return The number of changed lines for each batch - merged over all
+     * chunks.
+     */
     public int[] executeUpdate(Connection connection) {
-      SqlifyBatched sqlifyBatched = new SqlifyBatched(this.sql, batches);
-      return sqlifyBatched.executeUpdateBatch(connection);
+      return createConfiguredSqlifyBatched().executeUpdateBatch(connection);
+    }
+
+    /**
+     * Executes all batches and returns the keys generated by the database
+     * - one round trip per chunk instead of one per row. Define the mapping
+     * via parseResultWith(ListResultParser.of(Long.class)) for instance.
+     *
+     * @param connection The connection to use.
+     * @return The generated keys of all rows - merged over all chunks.
+     */
+    public <E> List<E> executeUpdateAndReturnGeneratedKeys(Connection connection) {
+      // the caller decides about E - like with the result of a select
+      @SuppressWarnings("unchecked")
+      ListResultParser<E> listResultParser = (ListResultParser<E>) resultParser;
+      return createConfiguredSqlifyBatched()
+          .executeUpdateBatchAndReturnGeneratedKeys(connection, listResultParser);
+    }
+
+    /**
+     * Executes all batches, but only skips the rows the database rejects
+     * instead of failing as a whole. Failing chunks are bisected with
+     * savepoints. Needs a connection with autocommit turned off. See
+     * {@link SqlifyBatched#executeFaultTolerantUpdateBatch(Connection)}.
+     *
+     * @param connection The connection to use.
+     * @return The update counts of all rows and the failed rows with their
+     * SQLException.
+     */
+    public BatchReport executeFaultTolerantUpdate(Connection connection) {
+      return createConfiguredSqlifyBatched().executeFaultTolerantUpdateBatch(connection);
+    }
+
+    private SqlifyBatched createConfiguredSqlifyBatched() {
+      SqlifyBatched sqlifyBatched = createSqlifyBatched()
+          .withChunkSize(chunkSize)
+          .withCommitAfterEachChunk(commitAfterEachChunk)
+          .withProgressListener(batchProgressListener);
+      if (multiRowValues) {
+        sqlifyBatched.withMultiRowValues(maximumBindParameters);
+      }
+      return sqlifyBatched;
+    }
+
+    private SqlifyBatched createSqlifyBatched() {
+      if (batchRows != null) {
+        return new SqlifyBatched(batchRows);
+      }
+      if (sqlifyBatchedOfRows == null) {
+        return new SqlifyBatched(this.sql, batches);
+      }
+      return sqlifyBatchedOfRows.get();
+    }
+
+  }
+
+  ////////////////////////////////////////////////////////////////////////////
+  // Builder pattern for bulk loads
+  ////////////////////////////////////////////////////////////////////////////
+  /**
+   * Loads many rows into a table. Uses COPY on PostgreSQL and multi row
+   * inserts on all other databases. See {@link SqlifyBulkLoad}.
+   *
+   * <pre>
+   * Sqlify.bulkLoad("person", "name", "age")
+   *   .withRows(csvReader.iterator(), (line, parameters) -&gt; parameters
+   *       .set("name", line.get(0))
+   *       .set("age", Integer.valueOf(line.get(1))))
+   *   .executeLoad(connection);
+   * </pre>
+   *
+   * @param table The table to load into. Used as it is in the sql.
+   * @param columns The columns to load. Used as they are in the sql.
+   * @return a nice Builder for the bulk load
+   */
+  public static BulkLoadBuilder bulkLoad(String table, String... columns) {
+    return new BulkLoadBuilder(table, Arrays.asList(columns));
+  }
+
+  public static class BulkLoadBuilder {
+
+    private final String table;
+    private final List<String> columns;
+    private final List<Batch> batches;
+    // set by withRows(iterator, batchBinder) - keeps the row type of both
+    private Supplier<SqlifyBulkLoad> sqlifyBulkLoadOfRows;
+    private int bufferSize = SqlifyBulkLoad.DEFAULT_BUFFER_SIZE;
+    private int chunkSize = SqlifyBulkLoad.DEFAULT_CHUNK_SIZE;
+    private BatchProgressListener batchProgressListener;
+
+    private BulkLoadBuilder(String table, List<String> columns) {
+      this.table = table;
+      this.columns = columns;
+      this.batches = new ArrayList<>();
+    }
+
+    /**
+     * @param batches One Batch per row. Parameters are named like the
+     * columns.
+     * @return The builder for chaining
+     */
+    public BulkLoadBuilder withBatches(List<Batch> batches) {
+      if (sqlifyBulkLoadOfRows != null) {
+        throw new SqlifyException("Ops. Please use either withBatches(...) or withRows(...), but not both.");
+      }
+      this.batches.addAll(batches);
+      return this;
+    }
+
+    /**
+     * Provides the rows lazily. See
+     * {@link BatchBuilder#withRows(Iterator, BatchBinder)}. Parameters are
+     * named like the columns.
+     *
+     * @param rows The source objects. One row per object.
+     * @param batchBinder Binds a source object to the columns.
+     * @return The builder for chaining
+     */
+    public <R> BulkLoadBuilder withRows(Iterator<R> rows, BatchBinder<R> batchBinder) {
+      if (!batches.isEmpty() || sqlifyBulkLoadOfRows != null) {
+        throw new SqlifyException("Ops. Please use either withBatches(...) or withRows(...) - and only once.");
+      }
+      this.sqlifyBulkLoadOfRows = () -> new SqlifyBulkLoad(table, columns, rows, batchBinder);
+      return this;
+    }
+
+    /**
+     * See {@link #withRows(Iterator, BatchBinder)}. The stream is consumed
+     * lazily but not closed.
+     *
+     * @param rows The source objects. One row per object.
+     * @param batchBinder Binds a source object to the columns.
+     * @return The builder for chaining
+     */
+    public <R> BulkLoadBuilder withRows(Stream<R> rows, BatchBinder<R> batchBinder) {
+      return withRows(rows.iterator(), batchBinder);
+    }
+
+    /**
+     * The number of bytes collected before they are sent to the database.
+     * Default is {@link SqlifyBulkLoad#DEFAULT_BUFFER_SIZE}.
+     *
+     * @param bufferSize Number of bytes.
+     * @return The builder for chaining
+     */
+    public BulkLoadBuilder withBufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * The number of rows per executeBatch() when COPY is not available.
+     * Default is {@link SqlifyBulkLoad#DEFAULT_CHUNK_SIZE}.
+     *
+     * @param chunkSize Number of rows.
+     * @return The builder for chaining
+     */
+    public BulkLoadBuilder withChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * @param batchProgressListener Gets notified whenever rows have been
+     * sent to the database.
+     * @return The builder for chaining
+     */
+    public BulkLoadBuilder withProgressListener(BatchProgressListener batchProgressListener) {
+      this.batchProgressListener = batchProgressListener;
+      return this;
+    }
+
+    /**
+     * @param connection The connection to use.
+     * @return The number of rows loaded.
+     */
+    public long executeLoad(Connection connection) {
+      return createSqlifyBulkLoad()
+          .withBufferSize(bufferSize)
+          .withChunkSize(chunkSize)
+          .withProgressListener(batchProgressListener)
+          .executeLoad(connection);
+    }
+
+    private SqlifyBulkLoad createSqlifyBulkLoad() {
+      if (sqlifyBulkLoadOfRows == null) {
+        return new SqlifyBulkLoad(table, columns, batches);
+      }
+      return sqlifyBulkLoadOfRows.get();
     }
 
   }
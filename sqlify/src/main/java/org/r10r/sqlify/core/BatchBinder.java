@@ -0,0 +1,20 @@
+package org.r10r.sqlify.core;
+
+/**
+ * Binds the values of one source object (eg a line of a csv file) to the
+ * placeholders of a batched statement.
+ *
+ * <pre>
+ * (person, parameters) -&gt; parameters
+ *     .set("name", person.name)
+ *     .set("age", person.age)
+ * </pre>
+ *
+ * @param <R> The type of the source objects.
+ */
+@FunctionalInterface
+public interface BatchBinder<R> {
+
+  void bind(R row, BatchParameters parameters) throws Exception;
+
+}
@@ -0,0 +1,18 @@
+package org.r10r.sqlify.core;
+
+/**
+ * Sets the values of the placeholders of one row of a batched statement.
+ * Values are set directly on the PreparedStatement - no map or Batch is
+ * created per row.
+ */
+public interface BatchParameters {
+
+  /**
+   * @param name The name of the placeholder in the sql.
+   * @param value The value. Set to every position where the placeholder
+   * appears.
+   * @return this for chaining
+   */
+  BatchParameters set(String name, Object value);
+
+}
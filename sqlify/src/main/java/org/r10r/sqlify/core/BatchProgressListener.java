@@ -0,0 +1,17 @@
+package org.r10r.sqlify.core;
+
+/**
+ * Gets notified after each chunk of a batch has been sent to the database.
+ */
+@FunctionalInterface
+public interface BatchProgressListener {
+
+  /**
+   * @param numberOfRowsInChunk The number of rows of the chunk that has just
+   * been executed (and committed if commit per chunk is enabled).
+   * @param numberOfRowsExecuted The number of rows of all chunks executed so
+   * far - including this one.
+   */
+  void onChunkExecuted(int numberOfRowsInChunk, long numberOfRowsExecuted);
+
+}
@@ -0,0 +1,76 @@
+package org.r10r.sqlify.core;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a fault tolerant batch (see
+ * {@link SqlifyBatched#executeFaultTolerantUpdateBatch(java.sql.Connection)}):
+ * the update count of every row and the rows that have been rejected by
+ * the database.
+ */
+public final class BatchReport {
+
+  private final int[] updateCounts;
+  private final List<FailedRow> failedRows;
+
+  BatchReport(int[] updateCounts, List<FailedRow> failedRows) {
+    this.updateCounts = updateCounts;
+    this.failedRows = Collections.unmodifiableList(failedRows);
+  }
+
+  /**
+   * @return The number of changed lines for each row. Statement.EXECUTE_FAILED
+   * for failed rows.
+   */
+  public int[] getUpdateCounts() {
+    return updateCounts;
+  }
+
+  /**
+   * @return The failed rows in the order of the batch.
+   */
+  public List<FailedRow> getFailedRows() {
+    return failedRows;
+  }
+
+  public boolean hasFailedRows() {
+    return !failedRows.isEmpty();
+  }
+
+  public int getNumberOfSucceededRows() {
+    return updateCounts.length - failedRows.size();
+  }
+
+  /**
+   * A row the database rejected - for instance because of a constraint.
+   */
+  public static final class FailedRow {
+
+    private final int index;
+    private final SQLException sqlException;
+
+    FailedRow(int index, SQLException sqlException) {
+      this.index = index;
+      this.sqlException = sqlException;
+    }
+
+    /**
+     * @return The index of the row in the batch. Starts with 0.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public SQLException getSqlException() {
+      return sqlException;
+    }
+
+    @Override
+    public String toString() {
+      return "Row " + index + ": " + sqlException.getMessage();
+    }
+  }
+
+}
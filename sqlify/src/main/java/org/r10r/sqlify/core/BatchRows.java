@@ -0,0 +1,309 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Rows of a batched statement stored in flat arrays - one array per
+ * placeholder (slot) instead of one HashMap per row.
+ *
+ * Names are resolved to slots once. Values of a slot that only ever gets
+ * longs (or doubles) are stored in a long[] (or double[]) without boxing.
+ *
+ * <pre>
+ * BatchRows rows = BatchRows.forSql("INSERT INTO person(name, age) VALUES ({name}, {age})");
+ * int name = rows.slotOf("name");
+ * int age = rows.slotOf("age");
+ *
+ * for (Person person : people) {
+ *   rows.addRow()
+ *     .set(name, person.name)
+ *     .setLong(age, person.age);
+ * }
+ *
+ * Sqlify.sqlBatch(rows.getSql()).withRows(rows).executeUpdate(connection);
+ * </pre>
+ *
+ * Every slot must be set for every row. BatchRows is not thread-safe.
+ */
+public final class BatchRows {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final ParsedSql parsedSql;
+  private final List<String> names;
+  private final Column[] columns;
+  private int numberOfRows;
+
+  private BatchRows(ParsedSql parsedSql) {
+    this.parsedSql = parsedSql;
+    Map<String, int[]> parameterPositions = parsedSql.getParameterPositions();
+    this.names = new ArrayList<>(parameterPositions.keySet());
+    this.columns = new Column[names.size()];
+    for (int slot = 0; slot < columns.length; slot++) {
+      columns[slot] = new EmptyColumn();
+    }
+  }
+
+  /**
+   * @param sql SQL with named parameters in curly braces.
+   * @return Empty rows for that sql.
+   */
+  public static BatchRows forSql(String sql) {
+    return new BatchRows(SqlifyCore.parse(sql));
+  }
+
+  public String getSql() {
+    return parsedSql.getSql();
+  }
+
+  ParsedSql getParsedSql() {
+    return parsedSql;
+  }
+
+  /**
+   * @param name The name of a placeholder.
+   * @return The slot to use in the setters for that placeholder.
+   */
+  public int slotOf(String name) {
+    int slot = names.indexOf(name);
+    if (slot < 0) {
+      throw new SqlifyException("Ops. The sql does not contain a placeholder named '" + name + "'. Available: " + names);
+    }
+    return slot;
+  }
+
+  /**
+   * Starts a new row. All following setters set values of this row.
+   *
+   * @return this for chaining
+   */
+  public BatchRows addRow() {
+    verifyRowIsComplete(numberOfRows - 1);
+    numberOfRows++;
+    return this;
+  }
+
+  public BatchRows set(int slot, Object value) {
+    Column column = columnForCurrentRow(slot);
+    if (!column.set(numberOfRows - 1, value)) {
+      columns[slot] = column = column.toObjectColumn();
+      column.set(numberOfRows - 1, value);
+    }
+    return this;
+  }
+
+  public BatchRows setLong(int slot, long value) {
+    Column column = columnForCurrentRow(slot);
+    if (column instanceof EmptyColumn) {
+      columns[slot] = column = new LongColumn();
+    }
+    column.setLong(numberOfRows - 1, value);
+    return this;
+  }
+
+  public BatchRows setDouble(int slot, double value) {
+    Column column = columnForCurrentRow(slot);
+    if (column instanceof EmptyColumn) {
+      columns[slot] = column = new DoubleColumn();
+    }
+    column.setDouble(numberOfRows - 1, value);
+    return this;
+  }
+
+  public int size() {
+    return numberOfRows;
+  }
+
+  private Column columnForCurrentRow(int slot) {
+    if (numberOfRows == 0) {
+      throw new SqlifyException("Ops. Please call addRow() before setting values.");
+    }
+    Column column = columns[slot];
+    if (column.size < numberOfRows - 1) {
+      throw new SqlifyException("Ops. Missing value for '" + names.get(slot) + "' in row " + column.size);
+    }
+    return column;
+  }
+
+  private void verifyRowIsComplete(int row) {
+    if (row < 0) {
+      return;
+    }
+    for (int slot = 0; slot < columns.length; slot++) {
+      if (columns[slot].size <= row) {
+        throw new SqlifyException("Missing parameters to execute sql query. Please provide '" + names.get(slot) + "' for row " + row);
+      }
+    }
+  }
+
+  void verifyAllRowsAreComplete() {
+    verifyRowIsComplete(numberOfRows - 1);
+  }
+
+  /**
+   * Binds one row to the statement.
+   */
+  void bind(int row, BoundBatchParameters parameters) {
+    for (int slot = 0; slot < columns.length; slot++) {
+      columns[slot].bind(row, slot, parameters);
+    }
+  }
+
+  private abstract static class Column {
+
+    int size;
+
+    /**
+     * @return false if the column cannot hold the value.
+     */
+    abstract boolean set(int row, Object value);
+
+    void setLong(int row, long value) {
+      set(row, value);
+    }
+
+    void setDouble(int row, double value) {
+      set(row, value);
+    }
+
+    abstract Object get(int row);
+
+    abstract void bind(int row, int slot, BoundBatchParameters parameters);
+
+    Column toObjectColumn() {
+      ObjectColumn objectColumn = new ObjectColumn();
+      for (int row = 0; row < size; row++) {
+        objectColumn.set(row, get(row));
+      }
+      return objectColumn;
+    }
+
+    static int grow(int capacity, int row) {
+      return Math.max(Math.max(INITIAL_CAPACITY, capacity * 2), row + 1);
+    }
+  }
+
+  private static final class EmptyColumn extends Column {
+
+    @Override
+    boolean set(int row, Object value) {
+      return false;
+    }
+
+    @Override
+    Object get(int row) {
+      throw new IllegalStateException();
+    }
+
+    @Override
+    void bind(int row, int slot, BoundBatchParameters parameters) {
+      throw new IllegalStateException();
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+
+    private Object[] values = new Object[0];
+
+    @Override
+    boolean set(int row, Object value) {
+      if (row >= values.length) {
+        values = Arrays.copyOf(values, grow(values.length, row));
+      }
+      values[row] = value;
+      size = Math.max(size, row + 1);
+      return true;
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void bind(int row, int slot, BoundBatchParameters parameters) {
+      parameters.setSlot(slot, values[row]);
+    }
+  }
+
+  private static final class LongColumn extends Column {
+
+    private long[] values = new long[0];
+
+    @Override
+    boolean set(int row, Object value) {
+      if (value instanceof Long) {
+        setLong(row, (Long) value);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    void setLong(int row, long value) {
+      if (row >= values.length) {
+        values = Arrays.copyOf(values, grow(values.length, row));
+      }
+      values[row] = value;
+      size = Math.max(size, row + 1);
+    }
+
+    @Override
+    void setDouble(int row, double value) {
+      throw new SqlifyException("Ops. Cannot set a double on a placeholder that already holds longs. Please use set(slot, value) instead.");
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void bind(int row, int slot, BoundBatchParameters parameters) {
+      parameters.setSlotLong(slot, values[row]);
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+
+    private double[] values = new double[0];
+
+    @Override
+    boolean set(int row, Object value) {
+      if (value instanceof Double) {
+        setDouble(row, (Double) value);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    void setLong(int row, long value) {
+      throw new SqlifyException("Ops. Cannot set a long on a placeholder that already holds doubles. Please use set(slot, value) instead.");
+    }
+
+    @Override
+    void setDouble(int row, double value) {
+      if (row >= values.length) {
+        values = Arrays.copyOf(values, grow(values.length, row));
+      }
+      values[row] = value;
+      size = Math.max(size, row + 1);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void bind(int row, int slot, BoundBatchParameters parameters) {
+      parameters.setSlotDouble(slot, values[row]);
+    }
+  }
+
+}
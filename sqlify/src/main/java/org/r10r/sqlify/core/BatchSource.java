@@ -0,0 +1,131 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * The rows of a batched statement and how to bind them.
+ */
+abstract class BatchSource {
+
+  static BatchSource of(List<Batch> batches, Collection<String> parameterNames) {
+    return of(batches.iterator(), (batch, parameters) -> {
+      for (String parameterName : parameterNames) {
+        parameters.set(parameterName, batch.getParameterMap().get(parameterName));
+      }
+    });
+  }
+
+  static <R> BatchSource of(Iterator<R> rows, BatchBinder<R> batchBinder) {
+    return new IteratorBatchSource<>(rows, batchBinder);
+  }
+
+  static BatchSource of(BatchRows batchRows) {
+    return new BatchRowsSource(batchRows);
+  }
+
+  abstract boolean hasNext();
+
+  /**
+   * Moves to the next row and binds it.
+   */
+  abstract void bindNext(BoundBatchParameters parameters);
+
+  /**
+   * Moves over the next rows and remembers them, so that they can be bound
+   * later on - and more than once.
+   *
+   * @param maximumRows The maximum number of rows to pull.
+   * @return The number of rows pulled. 0 if there are no more rows.
+   */
+  abstract int pull(int maximumRows);
+
+  /**
+   * Binds one of the rows of the last {@link #pull(int)}.
+   */
+  abstract void bindPulled(int index, BoundBatchParameters parameters);
+
+  private static final class IteratorBatchSource<R> extends BatchSource {
+
+    private final Iterator<R> rows;
+    private final BatchBinder<R> batchBinder;
+    private final List<R> pulled = new ArrayList<>();
+
+    private IteratorBatchSource(Iterator<R> rows, BatchBinder<R> batchBinder) {
+      this.rows = rows;
+      this.batchBinder = batchBinder;
+    }
+
+    @Override
+    boolean hasNext() {
+      return rows.hasNext();
+    }
+
+    @Override
+    void bindNext(BoundBatchParameters parameters) {
+      bind(rows.next(), parameters);
+    }
+
+    @Override
+    int pull(int maximumRows) {
+      pulled.clear();
+      while (pulled.size() < maximumRows && rows.hasNext()) {
+        pulled.add(rows.next());
+      }
+      return pulled.size();
+    }
+
+    @Override
+    void bindPulled(int index, BoundBatchParameters parameters) {
+      bind(pulled.get(index), parameters);
+    }
+
+    private void bind(R row, BoundBatchParameters parameters) {
+      try {
+        batchBinder.bind(row, parameters);
+      } catch (RuntimeException runtimeException) {
+        throw runtimeException;
+      } catch (Exception exception) {
+        throw new SqlifyException("Ops. Could not bind row: " + exception.getMessage(), exception);
+      }
+      parameters.verifyRowIsComplete();
+    }
+  }
+
+  private static final class BatchRowsSource extends BatchSource {
+
+    private final BatchRows batchRows;
+    private int row;
+    private int firstPulledRow;
+
+    private BatchRowsSource(BatchRows batchRows) {
+      this.batchRows = batchRows;
+    }
+
+    @Override
+    boolean hasNext() {
+      return row < batchRows.size();
+    }
+
+    @Override
+    void bindNext(BoundBatchParameters parameters) {
+      batchRows.bind(row++, parameters);
+    }
+
+    @Override
+    int pull(int maximumRows) {
+      firstPulledRow = row;
+      row += Math.min(maximumRows, batchRows.size() - row);
+      return row - firstPulledRow;
+    }
+
+    @Override
+    void bindPulled(int index, BoundBatchParameters parameters) {
+      batchRows.bind(firstPulledRow + index, parameters);
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+package org.r10r.sqlify.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Binds values by placeholder name to the PreparedStatement of a batch.
+ * One instance is reused for all rows of a batch.
+ */
+final class BoundBatchParameters implements BatchParameters {
+
+  private final List<String> names;
+  private final Map<String, Integer> slotByName;
+  private final int[][] positionsBySlot;
+  private final boolean[] assigned;
+  private int numberOfAssignedSlots;
+
+  private PreparedStatement preparedStatement;
+  private int parameterOffset;
+
+  BoundBatchParameters(ParsedSql parsedSql) {
+    Map<String, int[]> parameterPositions = parsedSql.getParameterPositions();
+    this.names = new ArrayList<>(parameterPositions.keySet());
+    this.slotByName = new HashMap<>();
+    this.positionsBySlot = new int[names.size()][];
+    for (int slot = 0; slot < names.size(); slot++) {
+      slotByName.put(names.get(slot), slot);
+      positionsBySlot[slot] = parameterPositions.get(names.get(slot));
+    }
+    this.assigned = new boolean[names.size()];
+  }
+
+  List<String> getNames() {
+    return names;
+  }
+
+  /**
+   * Starts a new row.
+   *
+   * @param preparedStatement The statement to set the values on.
+   * @param parameterOffset Added to every jdbc position.
+   */
+  void startRow(PreparedStatement preparedStatement, int parameterOffset) {
+    this.preparedStatement = preparedStatement;
+    this.parameterOffset = parameterOffset;
+    if (numberOfAssignedSlots > 0) {
+      Arrays.fill(assigned, false);
+      numberOfAssignedSlots = 0;
+    }
+  }
+
+  @Override
+  public BatchParameters set(String name, Object value) {
+    Integer slot = slotByName.get(name);
+    if (slot == null) {
+      throw new SqlifyException("Ops. The sql does not contain a placeholder named '" + name + "'. Available: " + names);
+    }
+    setSlot(slot, value);
+    return this;
+  }
+
+  void setSlot(int slot, Object value) {
+    try {
+      for (int position : positionsBySlot[slot]) {
+        SqlifyCore.applyParameter(preparedStatement, parameterOffset + position, value);
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. An error occurred. " + sqlException.getMessage(), sqlException);
+    }
+    markAssigned(slot);
+  }
+
+  void setSlotLong(int slot, long value) {
+    try {
+      for (int position : positionsBySlot[slot]) {
+        preparedStatement.setLong(parameterOffset + position, value);
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. An error occurred. " + sqlException.getMessage(), sqlException);
+    }
+    markAssigned(slot);
+  }
+
+  void setSlotDouble(int slot, double value) {
+    try {
+      for (int position : positionsBySlot[slot]) {
+        preparedStatement.setDouble(parameterOffset + position, value);
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. An error occurred. " + sqlException.getMessage(), sqlException);
+    }
+    markAssigned(slot);
+  }
+
+  private void markAssigned(int slot) {
+    if (!assigned[slot]) {
+      assigned[slot] = true;
+      numberOfAssignedSlots++;
+    }
+  }
+
+  /**
+   * @throws SqlifyException if not all placeholders got a value.
+   */
+  void verifyRowIsComplete() {
+    if (numberOfAssignedSlots == assigned.length) {
+      return;
+    }
+    List<String> missing = new ArrayList<>();
+    for (int slot = 0; slot < assigned.length; slot++) {
+      if (!assigned[slot]) {
+        missing.add(names.get(slot));
+      }
+    }
+    throw new SqlifyException("Missing parameters to execute sql query. Please provide the following paramters: " + String.join(", ", missing));
+  }
+
+}
@@ -0,0 +1,321 @@
+package org.r10r.sqlify.core;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Binds Collections and arrays that are the only content of an IN list as
+ * a list of parameters. For instance "SELECT * FROM t WHERE id IN ({ids})"
+ * with ids = [1, 2, 3] becomes "SELECT * FROM t WHERE id IN (?, ?, ?, ?)"
+ * with the values 1, 2, 3, 3. Everywhere else - like "= ANY({ids})" or
+ * "VALUES ({tags})" - they are passed to setObject as before, so the driver
+ * can bind them as sql arrays.
+ *
+ * The number of '?' is rounded up to the next power of two and the list is
+ * padded with its last value. That does not change the result of IN, but
+ * lists of 5 to 8 values share one jdbc sql - and one prepared statement
+ * in the database and in the {@link StatementCache} - instead of one per
+ * length. If the padded statement would need more than
+ * {@link SqlifyBatched#DEFAULT_MAXIMUM_BIND_PARAMETERS} parameters the
+ * lists are not padded at all. The jdbc sql of each shape is cached.
+ *
+ * With 'asArrays' (Postgres) each Collection is bound as one sql array
+ * instead: "IN ({ids})" becomes "= ANY (?)" and "NOT IN ({ids})" becomes
+ * "&lt;&gt; ALL (?)". Placeholders used otherwise are kept as they are. The
+ * array type is derived from the elements.
+ *
+ * byte[] is never treated as a Collection.
+ */
+final class CollectionParameters {
+
+  /** Shape of a placeholder that is bound as one sql array. */
+  private static final int ARRAY = -1;
+  /** Shape of a placeholder that is bound as a single value. */
+  private static final int SCALAR = 0;
+
+  private static final int MAXIMUM_CACHED_SHAPES = 256;
+
+  private static final Pattern IN_AT_END = Pattern.compile("(?i)\\b(NOT\\s+)?IN\\s*\\(\\s*$");
+  private static final Pattern CLOSING_PARENTHESIS_AT_START = Pattern.compile("^\\s*\\)");
+
+  private static final Map<Class<?>, String> ARRAY_TYPES = new HashMap<>();
+
+  static {
+    ARRAY_TYPES.put(Long.class, "int8");
+    ARRAY_TYPES.put(long.class, "int8");
+    ARRAY_TYPES.put(Integer.class, "int4");
+    ARRAY_TYPES.put(int.class, "int4");
+    ARRAY_TYPES.put(Short.class, "int2");
+    ARRAY_TYPES.put(short.class, "int2");
+    ARRAY_TYPES.put(Double.class, "float8");
+    ARRAY_TYPES.put(double.class, "float8");
+    ARRAY_TYPES.put(Float.class, "float4");
+    ARRAY_TYPES.put(float.class, "float4");
+    ARRAY_TYPES.put(Boolean.class, "bool");
+    ARRAY_TYPES.put(boolean.class, "bool");
+    ARRAY_TYPES.put(BigDecimal.class, "numeric");
+    ARRAY_TYPES.put(String.class, "text");
+    ARRAY_TYPES.put(UUID.class, "uuid");
+    ARRAY_TYPES.put(Date.class, "date");
+    ARRAY_TYPES.put(Time.class, "time");
+    ARRAY_TYPES.put(Timestamp.class, "timestamp");
+  }
+
+  private final String sql;
+  private final List<String> parameterNames;
+  // jdbc sql before, between and after the placeholders
+  private final String[] jdbcFragments;
+  // true for placeholders that are the only content of "IN (...)"
+  private final boolean[] inLists;
+  private final ConcurrentMap<List<Integer>, String> jdbcSqlByShape = new ConcurrentHashMap<>();
+
+  private CollectionParameters(String sql, List<String> parameterNames, String[] jdbcFragments) {
+    this.sql = sql;
+    this.parameterNames = parameterNames;
+    this.jdbcFragments = jdbcFragments;
+    this.inLists = new boolean[parameterNames.size()];
+    for (int i = 0; i < inLists.length; i++) {
+      inLists[i] = IN_AT_END.matcher(jdbcFragments[i]).find()
+          && CLOSING_PARENTHESIS_AT_START.matcher(jdbcFragments[i + 1]).find();
+    }
+  }
+
+  static CollectionParameters of(ParsedSql parsedSql) {
+    String jdbcSql = parsedSql.getJdbcSql();
+    int[] placeholderOffsets = parsedSql.getPlaceholderOffsets();
+    String[] jdbcFragments = new String[placeholderOffsets.length + 1];
+    int start = 0;
+    for (int i = 0; i < placeholderOffsets.length; i++) {
+      jdbcFragments[i] = jdbcSql.substring(start, placeholderOffsets[i]);
+      start = placeholderOffsets[i] + 1;
+    }
+    jdbcFragments[placeholderOffsets.length] = jdbcSql.substring(start);
+    return new CollectionParameters(parsedSql.getSql(), parsedSql.getParameterNames(), jdbcFragments);
+  }
+
+  /**
+   * @param value A parameter value.
+   * @return true if the value is a Collection or an array other than byte[].
+   */
+  static boolean isCollection(Object value) {
+    return value instanceof Collection
+        || (value != null && value.getClass().isArray() && !(value instanceof byte[]));
+  }
+
+  static boolean containsCollection(Map<String, Object> parameterMap, List<String> parametersInSqlSorted) {
+    for (String parameterName : parametersInSqlSorted) {
+      if (isCollection(parameterMap.get(parameterName))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param size The number of values. At least 1.
+   * @return The next power of two that is greater or equal to size.
+   */
+  static int bucketSize(int size) {
+    return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+  }
+
+  /**
+   * @param parameterMap The values of the placeholders.
+   * @param asArrays Bind Collections as one sql array instead of expanding
+   * them.
+   * @return How each placeholder is bound: {@link #SCALAR}, {@link #ARRAY}
+   * or the number of '?' it is expanded to.
+   * @throws SqlifyException if a Collection cannot be bound - for instance
+   * because it is empty.
+   */
+  List<Integer> shapeOf(Map<String, Object> parameterMap, boolean asArrays) {
+    List<Integer> shape = new ArrayList<>(parameterNames.size());
+    int bindParameters = 0;
+    boolean padded = false;
+    for (int i = 0; i < parameterNames.size(); i++) {
+      String parameterName = parameterNames.get(i);
+      Object value = parameterMap.get(parameterName);
+      if (!isCollection(value) || (!asArrays && !inLists[i])) {
+        shape.add(SCALAR);
+        bindParameters++;
+      } else if (asArrays) {
+        arrayTypeOf(parameterName, value);
+        shape.add(ARRAY);
+        bindParameters++;
+      } else {
+        int size = sizeOf(value);
+        if (size == 0) {
+          throw new SqlifyException("Arg. The collection for {" + parameterName + "} is empty. 'IN ()' is not valid sql - please handle that case before executing: " + sql);
+        }
+        int bucketSize = bucketSize(size);
+        padded |= bucketSize != size;
+        shape.add(bucketSize);
+        bindParameters += bucketSize;
+      }
+    }
+    if (padded && bindParameters > SqlifyBatched.DEFAULT_MAXIMUM_BIND_PARAMETERS) {
+      // padding must not make a statement fail that fits with the exact sizes
+      for (int i = 0; i < shape.size(); i++) {
+        if (shape.get(i) > 0) {
+          shape.set(i, sizeOf(parameterMap.get(parameterNames.get(i))));
+        }
+      }
+    }
+    return shape;
+  }
+
+  /**
+   * @param shape As returned by {@link #shapeOf(Map, boolean)}.
+   * @return The jdbc sql for the shape. Cached.
+   */
+  String jdbcSqlFor(List<Integer> shape) {
+    String jdbcSql = jdbcSqlByShape.get(shape);
+    if (jdbcSql == null) {
+      jdbcSql = buildJdbcSql(shape);
+      // lists that are too long to be padded have a shape for each length
+      if (jdbcSqlByShape.size() < MAXIMUM_CACHED_SHAPES) {
+        jdbcSqlByShape.putIfAbsent(shape, jdbcSql);
+      }
+    }
+    return jdbcSql;
+  }
+
+  private String buildJdbcSql(List<Integer> shape) {
+    StringBuilder jdbcSql = new StringBuilder();
+    for (int i = 0; i < shape.size(); i++) {
+      String fragment = jdbcFragments[i];
+      int placeholderShape = shape.get(i);
+      if (placeholderShape == SCALAR) {
+        jdbcSql.append(fragment).append('?');
+      } else if (placeholderShape == ARRAY) {
+        Matcher in = IN_AT_END.matcher(fragment);
+        if (inLists[i] && in.find()) {
+          jdbcSql.append(fragment, 0, in.start())
+              .append(in.group(1) == null ? "= ANY (?" : "<> ALL (?");
+        } else {
+          jdbcSql.append(fragment).append('?');
+        }
+      } else {
+        jdbcSql.append(fragment).append('?');
+        for (int j = 1; j < placeholderShape; j++) {
+          jdbcSql.append(", ?");
+        }
+      }
+    }
+    return jdbcSql.append(jdbcFragments[shape.size()]).toString();
+  }
+
+  /**
+   * @param parameterMap The values of the placeholders.
+   * @param shape As returned by {@link #shapeOf(Map, boolean)} for these
+   * values.
+   * @return Binds the values to the jdbc sql of the shape.
+   */
+  ParameterBinder binderFor(Map<String, Object> parameterMap, List<Integer> shape) {
+    // jdbc parameters start with 1...
+    return preparedStatement -> bind(preparedStatement, 1, parameterMap, shape);
+  }
+
+  /**
+   * Binds the values to the jdbc sql of the shape - starting at any
+   * position. For several statements in one PreparedStatement.
+   *
+   * @param preparedStatement The statement.
+   * @param firstPosition The position of the first parameter.
+   * @param parameterMap The values of the placeholders.
+   * @param shape As returned by {@link #shapeOf(Map, boolean)} for these
+   * values.
+   * @return The position after the last bound parameter.
+   * @throws SQLException if the driver does.
+   */
+  int bind(
+      PreparedStatement preparedStatement,
+      int firstPosition,
+      Map<String, Object> parameterMap,
+      List<Integer> shape) throws SQLException {
+    int positionInPreparedStatement = firstPosition;
+    for (int i = 0; i < parameterNames.size(); i++) {
+      String parameterName = parameterNames.get(i);
+      Object value = parameterMap.get(parameterName);
+      int placeholderShape = shape.get(i);
+      if (placeholderShape == SCALAR) {
+        SqlifyCore.applyParameter(preparedStatement, positionInPreparedStatement++, value);
+      } else if (placeholderShape == ARRAY) {
+        preparedStatement.setArray(
+            positionInPreparedStatement++,
+            preparedStatement.getConnection().createArrayOf(arrayTypeOf(parameterName, value), toArray(value)));
+      } else {
+        Object[] values = toArray(value);
+        for (int j = 0; j < placeholderShape; j++) {
+          // padding with the last value does not change the result of IN
+          Object element = values[Math.min(j, values.length - 1)];
+          SqlifyCore.applyParameter(preparedStatement, positionInPreparedStatement++, element);
+        }
+      }
+    }
+    return positionInPreparedStatement;
+  }
+
+  private static int sizeOf(Object collectionOrArray) {
+    return collectionOrArray instanceof Collection
+        ? ((Collection<?>) collectionOrArray).size()
+        : Array.getLength(collectionOrArray);
+  }
+
+  private static Object[] toArray(Object collectionOrArray) {
+    if (collectionOrArray instanceof Collection) {
+      return ((Collection<?>) collectionOrArray).toArray();
+    }
+    if (collectionOrArray instanceof Object[]) {
+      return (Object[]) collectionOrArray;
+    }
+    // primitive arrays
+    int length = Array.getLength(collectionOrArray);
+    Object[] boxed = new Object[length];
+    for (int i = 0; i < length; i++) {
+      boxed[i] = Array.get(collectionOrArray, i);
+    }
+    return boxed;
+  }
+
+  /**
+   * @return The Postgres name of the element type. Taken from the type of
+   * the array or - for Collections and Object[] - from the first element that
+   * is not null.
+   */
+  static String arrayTypeOf(String parameterName, Object collectionOrArray) {
+    Class<?> elementType = collectionOrArray.getClass().getComponentType();
+    if (elementType == null || elementType == Object.class) {
+      elementType = null;
+      for (Object element : toArray(collectionOrArray)) {
+        if (element != null) {
+          elementType = element.getClass();
+          break;
+        }
+      }
+    }
+    String arrayType = elementType == null ? null : ARRAY_TYPES.get(elementType);
+    if (arrayType == null) {
+      throw new SqlifyException("Arg. Cannot derive the sql array type for {" + parameterName + "} from "
+          + (elementType == null ? "an empty collection. Please use a typed array like new Long[0] instead." : elementType.getName()));
+    }
+    return arrayType;
+  }
+
+}
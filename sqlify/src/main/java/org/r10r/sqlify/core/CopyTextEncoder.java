@@ -0,0 +1,230 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Encodes rows into the text format of PostgreSQL's COPY FROM STDIN: columns
+ * separated by tabs, rows terminated by a newline, null as \N.
+ *
+ * Values are written as UTF-8 straight into one byte buffer that is reused
+ * for all rows. Strings are escaped char by char, integral numbers are
+ * written digit by digit - no String is built per row. Everything else is
+ * written via toString() and has to be understood by PostgreSQL.
+ *
+ * One instance is reused for all rows of a load.
+ */
+final class CopyTextEncoder implements BatchParameters {
+
+  private static final byte[] NULL = {'\\', 'N'};
+  private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes();
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+  private final List<String> columns;
+  private final Map<String, Integer> slotByName;
+  private final Object[] values;
+  private final boolean[] assigned;
+  private int numberOfAssignedSlots;
+
+  private byte[] buffer;
+  private int size;
+
+  CopyTextEncoder(List<String> columns, int initialBufferSize) {
+    this.columns = columns;
+    this.slotByName = new HashMap<>();
+    for (int slot = 0; slot < columns.size(); slot++) {
+      slotByName.put(columns.get(slot), slot);
+    }
+    this.values = new Object[columns.size()];
+    this.assigned = new boolean[columns.size()];
+    this.buffer = new byte[Math.max(initialBufferSize, 16)];
+  }
+
+  @Override
+  public BatchParameters set(String name, Object value) {
+    Integer slot = slotByName.get(name);
+    if (slot == null) {
+      throw new SqlifyException("Ops. The bulk load does not contain a column named '" + name + "'. Available: " + columns);
+    }
+    values[slot] = value;
+    if (!assigned[slot]) {
+      assigned[slot] = true;
+      numberOfAssignedSlots++;
+    }
+    return this;
+  }
+
+  /**
+   * Encodes the values set since the last call and starts a new row.
+   *
+   * @throws SqlifyException if not all columns got a value.
+   */
+  void endRow() {
+    verifyRowIsComplete();
+    for (int slot = 0; slot < values.length; slot++) {
+      if (slot > 0) {
+        writeByte('\t');
+      }
+      writeValue(values[slot]);
+    }
+    writeByte('\n');
+
+    Arrays.fill(values, null);
+    Arrays.fill(assigned, false);
+    numberOfAssignedSlots = 0;
+  }
+
+  private void verifyRowIsComplete() {
+    if (numberOfAssignedSlots == assigned.length) {
+      return;
+    }
+    List<String> missing = new ArrayList<>();
+    for (int slot = 0; slot < assigned.length; slot++) {
+      if (!assigned[slot]) {
+        missing.add(columns.get(slot));
+      }
+    }
+    throw new SqlifyException("Missing parameters to execute sql query. Please provide the following paramters: " + String.join(", ", missing));
+  }
+
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return The number of encoded bytes in the buffer.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Forgets all encoded rows. The buffer is kept.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  private void writeValue(Object value) {
+    if (value == null) {
+      writeBytes(NULL);
+    } else if (value instanceof String) {
+      writeEscaped((String) value);
+    } else if (value instanceof Long
+        || value instanceof Integer
+        || value instanceof Short
+        || value instanceof Byte) {
+      writeLong(((Number) value).longValue());
+    } else if (value instanceof Boolean) {
+      writeByte((Boolean) value ? 't' : 'f');
+    } else if (value instanceof byte[]) {
+      writeBytea((byte[]) value);
+    } else {
+      writeEscaped(value.toString());
+    }
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeBytes(LONG_MIN_VALUE);
+      return;
+    }
+    if (value < 0) {
+      writeByte('-');
+      value = -value;
+    }
+    int digits = 1;
+    for (long rest = value; rest >= 10; rest /= 10) {
+      digits++;
+    }
+    ensureCapacity(digits);
+    for (int i = size + digits - 1; i >= size; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    size += digits;
+  }
+
+  /**
+   * bytea in hex format. The backslash has to be escaped for COPY: \\x00ff
+   */
+  private void writeBytea(byte[] bytes) {
+    ensureCapacity(3 + bytes.length * 2);
+    buffer[size++] = '\\';
+    buffer[size++] = '\\';
+    buffer[size++] = 'x';
+    for (byte b : bytes) {
+      buffer[size++] = HEX_DIGITS[(b >> 4) & 0xf];
+      buffer[size++] = HEX_DIGITS[b & 0xf];
+    }
+  }
+
+  private void writeEscaped(String value) {
+    int length = value.length();
+    // worst case: 3 bytes per char (escapes need 2, surrogate pairs 4 per 2 chars)
+    ensureCapacity(length * 3);
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        switch (c) {
+          case '\\':
+            buffer[size++] = '\\';
+            buffer[size++] = '\\';
+            break;
+          case '\t':
+            buffer[size++] = '\\';
+            buffer[size++] = 't';
+            break;
+          case '\n':
+            buffer[size++] = '\\';
+            buffer[size++] = 'n';
+            break;
+          case '\r':
+            buffer[size++] = '\\';
+            buffer[size++] = 'r';
+            break;
+          default:
+            buffer[size++] = (byte) c;
+        }
+      } else if (c < 0x800) {
+        buffer[size++] = (byte) (0xc0 | (c >> 6));
+        buffer[size++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // a lone surrogate cannot be encoded - same as String.getBytes(UTF_8)
+        buffer[size++] = '?';
+      } else {
+        buffer[size++] = (byte) (0xe0 | (c >> 12));
+        buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[size++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+  private void writeBytes(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  private void writeByte(char c) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) c;
+  }
+
+  private void ensureCapacity(int additionalBytes) {
+    if (size + additionalBytes > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additionalBytes));
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.r10r.sqlify.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Rewrites "INSERT ... VALUES ({a}, {b}) ..." into
+ * "INSERT ... VALUES (?, ?), (?, ?), ... ..." so that many rows are sent
+ * with one statement.
+ *
+ * Everything before and after the row is kept as it is - so RETURNING and
+ * ON CONFLICT clauses keep working. Statements with RETURNING return rows
+ * and have to be run with executeQuery (see {@link #hasReturning()}). All
+ * placeholders have to be inside the row. The generated sql for each number
+ * of rows is cached.
+ */
+final class MultiRowInsert {
+
+  private final String jdbcPrefix;
+  private final String jdbcRow;
+  private final String jdbcSuffix;
+  private final int parametersPerRow;
+  private final boolean returning;
+  private final ConcurrentMap<Integer, String> jdbcSqlByNumberOfRows = new ConcurrentHashMap<>();
+
+  private MultiRowInsert(String jdbcPrefix, String jdbcRow, String jdbcSuffix, int parametersPerRow, boolean returning) {
+    this.jdbcPrefix = jdbcPrefix;
+    this.jdbcRow = jdbcRow;
+    this.jdbcSuffix = jdbcSuffix;
+    this.parametersPerRow = parametersPerRow;
+    this.returning = returning;
+  }
+
+  /**
+   * @throws SqlifyException if the sql cannot be rewritten.
+   */
+  static MultiRowInsert of(ParsedSql parsedSql) {
+    String sql = parsedSql.getSql();
+    int[] valuesGroup = SqlParser.findValuesGroup(sql);
+    if (valuesGroup == null) {
+      throw new SqlifyException("Ops. Multi row VALUES need an INSERT with exactly one row like INSERT INTO t (a, b) VALUES ({a}, {b}). But got: " + sql);
+    }
+
+    ParsedSql prefix = SqlParser.parse(sql.substring(0, valuesGroup[0]));
+    ParsedSql row = SqlParser.parse(sql.substring(valuesGroup[0], valuesGroup[1]));
+    ParsedSql suffix = SqlParser.parse(sql.substring(valuesGroup[1]));
+    if (row.getParameterCount() != parsedSql.getParameterCount()) {
+      throw new SqlifyException("Ops. Multi row VALUES need all placeholders inside of VALUES (...). But got: " + sql);
+    }
+
+    boolean returning = SqlParser.containsTopLevelKeyword(suffix.getJdbcSql(), "RETURNING");
+    return new MultiRowInsert(prefix.getJdbcSql(), row.getJdbcSql(), suffix.getJdbcSql(), row.getParameterCount(), returning);
+  }
+
+  /**
+   * @return true if the insert has a RETURNING clause. The statements then
+   * return rows instead of an update count.
+   */
+  boolean hasReturning() {
+    return returning;
+  }
+
+  int getParametersPerRow() {
+    return parametersPerRow;
+  }
+
+  /**
+   * @param maximumRows Upper bound - eg the chunk size.
+   * @param maximumBindParameters The limit of the driver.
+   * @return The number of rows per statement that stays below the limit.
+   */
+  int rowsPerStatement(int maximumRows, int maximumBindParameters) {
+    int rows = parametersPerRow == 0 ? maximumRows : maximumBindParameters / parametersPerRow;
+    return Math.max(1, Math.min(maximumRows, rows));
+  }
+
+  String jdbcSqlFor(int numberOfRows) {
+    return jdbcSqlByNumberOfRows.computeIfAbsent(numberOfRows, this::createJdbcSql);
+  }
+
+  private String createJdbcSql(int numberOfRows) {
+    StringBuilder jdbcSql = new StringBuilder(
+        jdbcPrefix.length() + (jdbcRow.length() + 2) * numberOfRows + jdbcSuffix.length());
+    jdbcSql.append(jdbcPrefix).append(jdbcRow);
+    for (int row = 1; row < numberOfRows; row++) {
+      jdbcSql.append(", ").append(jdbcRow);
+    }
+    return jdbcSql.append(jdbcSuffix).toString();
+  }
+
+}
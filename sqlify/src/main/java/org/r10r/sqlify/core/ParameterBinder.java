@@ -0,0 +1,14 @@
+package org.r10r.sqlify.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets all parameters of one execution on a PreparedStatement.
+ */
+@FunctionalInterface
+public interface ParameterBinder {
+
+  void bind(PreparedStatement preparedStatement) throws SQLException;
+
+}
@@ -0,0 +1,135 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The immutable, parsed form of a sql template with named placeholders.
+ *
+ * For instance "SELECT * FROM table WHERE id = {id} OR parent_id = {id}"
+ * results in
+ * <ul>
+ * <li>jdbcSql: "SELECT * FROM table WHERE id = ? OR parent_id = ?"</li>
+ * <li>parameterNames: [id, id]</li>
+ * <li>parameterPositions: {id=[1, 2]}</li>
+ * </ul>
+ *
+ * Instances are shared between threads via the {@link ParsedSqlCache}.
+ */
+public final class ParsedSql {
+
+  private final String sql;
+  private final String jdbcSql;
+  private final List<String> parameterNames;
+  private final Map<String, int[]> parameterPositions;
+  private final int[] placeholderOffsets;
+  private volatile MultiRowInsert multiRowInsert;
+  private volatile CollectionParameters collectionParameters;
+
+  ParsedSql(String sql, String jdbcSql, List<String> parameterNames, int[] placeholderOffsets) {
+    this.sql = sql;
+    this.jdbcSql = jdbcSql;
+    this.parameterNames = Collections.unmodifiableList(new ArrayList<>(parameterNames));
+    this.parameterPositions = Collections.unmodifiableMap(indexPositions(parameterNames));
+    this.placeholderOffsets = placeholderOffsets;
+  }
+
+  private static Map<String, int[]> indexPositions(List<String> parameterNames) {
+    Map<String, int[]> positions = new LinkedHashMap<>();
+    for (int i = 0; i < parameterNames.size(); i++) {
+      int positionInPreparedStatement = i + 1; // jdbc parameters start with 1...
+      positions.merge(
+          parameterNames.get(i),
+          new int[]{positionInPreparedStatement},
+          (existing, added) -> {
+            int[] merged = new int[existing.length + 1];
+            System.arraycopy(existing, 0, merged, 0, existing.length);
+            merged[existing.length] = added[0];
+            return merged;
+          });
+    }
+    return positions;
+  }
+
+  /**
+   * @return The sql as provided by the user. Including named placeholders.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return The sql with all placeholders replaced by '?'.
+   */
+  public String getJdbcSql() {
+    return jdbcSql;
+  }
+
+  /**
+   * @return The names of all placeholders in the order they appear in the sql.
+   * A name that is used more than once also appears more than once.
+   */
+  public List<String> getParameterNames() {
+    return parameterNames;
+  }
+
+  /**
+   * @return Distinct placeholder names (in order of first appearance) mapped
+   * to their jdbc positions (starting with 1). Do not modify the arrays.
+   */
+  public Map<String, int[]> getParameterPositions() {
+    return parameterPositions;
+  }
+
+  /**
+   * @param name The name of a placeholder.
+   * @return The jdbc positions (starting with 1) of that placeholder or null
+   * if the sql does not contain it. Do not modify the array.
+   */
+  public int[] getPositionsOf(String name) {
+    return parameterPositions.get(name);
+  }
+
+  public int getParameterCount() {
+    return parameterNames.size();
+  }
+
+  /**
+   * @return The multi row form of this insert. Created on first use.
+   * @throws org.r10r.sqlify.SqlifyException if the sql is not a single row
+   * insert.
+   */
+  MultiRowInsert getMultiRowInsert() {
+    MultiRowInsert result = multiRowInsert;
+    if (result == null) {
+      result = MultiRowInsert.of(this);
+      multiRowInsert = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return The index of each '?' in the jdbc sql - in the order of
+   * {@link #getParameterNames()}. Do not modify the array.
+   */
+  int[] getPlaceholderOffsets() {
+    return placeholderOffsets;
+  }
+
+  /**
+   * @return The expansion of Collection and array parameters for this sql.
+   * Created on first use.
+   */
+  CollectionParameters getCollectionParameters() {
+    CollectionParameters result = collectionParameters;
+    if (result == null) {
+      result = CollectionParameters.of(this);
+      collectionParameters = result;
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,177 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache for parsed sql templates.
+ *
+ * Most applications only use a few hundred different sql statements. Parsing
+ * them again and again on every execution is a waste of cpu and memory. This
+ * cache keeps the immutable {@link ParsedSql} of each template around.
+ *
+ * Lookups never block. When the cache grows beyond its maximum size about
+ * 10% of the entries are evicted at once - either the least recently used
+ * ones (LRU) or the oldest ones (FIFO).
+ *
+ * The default cache used by Sqlify can be replaced via
+ * {@link #setDefault(ParsedSqlCache)}:
+ * <pre>
+ * ParsedSqlCache.setDefault(new ParsedSqlCache(4096, EvictionPolicy.LRU));
+ * </pre>
+ */
+public final class ParsedSqlCache {
+
+  public enum EvictionPolicy {
+    /** Evicts the entries that have not been used for the longest time. */
+    LRU,
+    /** Evicts the entries that have been added first. */
+    FIFO
+  }
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private static volatile ParsedSqlCache defaultCache
+      = new ParsedSqlCache(DEFAULT_MAXIMUM_SIZE, EvictionPolicy.LRU);
+
+  private final int maximumSize;
+  private final EvictionPolicy evictionPolicy;
+  private final Map<String, Entry> entries;
+  private final AtomicLong clock = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public ParsedSqlCache(int maximumSize, EvictionPolicy evictionPolicy) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the cache must be at least 1, but was " + maximumSize);
+    }
+    if (evictionPolicy == null) {
+      throw new IllegalArgumentException("Please provide an eviction policy.");
+    }
+    this.maximumSize = maximumSize;
+    this.evictionPolicy = evictionPolicy;
+    this.entries = new ConcurrentHashMap<>();
+  }
+
+  public static ParsedSqlCache getDefault() {
+    return defaultCache;
+  }
+
+  public static void setDefault(ParsedSqlCache parsedSqlCache) {
+    if (parsedSqlCache == null) {
+      throw new IllegalArgumentException("The default ParsedSqlCache must not be null.");
+    }
+    defaultCache = parsedSqlCache;
+  }
+
+  /**
+   * Returns the parsed sql for a template. Parses the template if it is not
+   * yet in the cache.
+   *
+   * @param sql The sql template provided by the user.
+   * @param parser Parses the template on a cache miss.
+   * @return The parsed sql.
+   */
+  public ParsedSql get(String sql, Function<String, ParsedSql> parser) {
+    Entry entry = entries.get(sql);
+    if (entry != null) {
+      hits.increment();
+      entry.lastAccess = clock.incrementAndGet();
+      return entry.parsedSql;
+    }
+
+    misses.increment();
+    ParsedSql parsedSql = parser.apply(sql);
+    long now = clock.incrementAndGet();
+    Entry existing = entries.putIfAbsent(sql, new Entry(parsedSql, now));
+    if (existing != null) {
+      // another thread was faster. Use its result so that everyone shares
+      // the same instance.
+      return existing.parsedSql;
+    }
+
+    if (entries.size() > maximumSize) {
+      evict();
+    }
+    return parsedSql;
+  }
+
+  private void evict() {
+    // only one thread evicts at a time. All others simply continue.
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      int numberOfEntriesToEvict = entries.size() - maximumSize + maximumSize / 10;
+      if (numberOfEntriesToEvict <= 0) {
+        return;
+      }
+
+      List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+      Comparator<Map.Entry<String, Entry>> oldestFirst = evictionPolicy == EvictionPolicy.LRU
+          ? Comparator.comparingLong(candidate -> candidate.getValue().lastAccess)
+          : Comparator.comparingLong(candidate -> candidate.getValue().created);
+      candidates.sort(oldestFirst);
+
+      for (int i = 0; i < numberOfEntriesToEvict && i < candidates.size(); i++) {
+        Map.Entry<String, Entry> candidate = candidates.get(i);
+        if (entries.remove(candidate.getKey(), candidate.getValue())) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return evictionPolicy;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  private static final class Entry {
+
+    private final ParsedSql parsedSql;
+    private final long created;
+    private volatile long lastAccess;
+
+    private Entry(ParsedSql parsedSql, long created) {
+      this.parsedSql = parsedSql;
+      this.created = created;
+      this.lastAccess = created;
+    }
+  }
+
+}
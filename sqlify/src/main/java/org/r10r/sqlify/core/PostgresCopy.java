@@ -0,0 +1,76 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * A running COPY ... FROM STDIN of pgjdbc.
+ *
+ * The PostgreSQL driver is an optional dependency. This is the only class
+ * that touches it - and only after {@link #isSupportedBy(Connection)} said
+ * yes.
+ */
+final class PostgresCopy {
+
+  private static final boolean DRIVER_AVAILABLE = isDriverAvailable();
+
+  private final CopyIn copyIn;
+
+  private PostgresCopy(CopyIn copyIn) {
+    this.copyIn = copyIn;
+  }
+
+  private static boolean isDriverAvailable() {
+    try {
+      Class.forName("org.postgresql.PGConnection", false, PostgresCopy.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the connection (or the connection wrapped by a pool) is
+   * a pgjdbc connection.
+   */
+  static boolean isSupportedBy(Connection connection) throws SQLException {
+    return DRIVER_AVAILABLE && connection.isWrapperFor(PGConnection.class);
+  }
+
+  static PostgresCopy start(Connection connection, String copySql) throws SQLException {
+    CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+    return new PostgresCopy(copyIn);
+  }
+
+  /**
+   * Blocks while the driver cannot send more data to the server. That's the
+   * back-pressure for whoever produces the rows.
+   */
+  void write(byte[] bytes, int offset, int length) throws SQLException {
+    copyIn.writeToCopy(bytes, offset, length);
+  }
+
+  /**
+   * @return The number of rows the server has loaded.
+   */
+  long end() throws SQLException {
+    return copyIn.endCopy();
+  }
+
+  /**
+   * Cancels the copy if it has not been ended. Keeps the connection usable
+   * after an error.
+   */
+  void cancelIfActive() {
+    try {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    } catch (SQLException sqlException) {
+      // nothing we can do here - the original exception is more important
+    }
+  }
+
+}
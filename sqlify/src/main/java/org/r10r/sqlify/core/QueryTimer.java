@@ -0,0 +1,192 @@
+package org.r10r.sqlify.core;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import org.r10r.sqlify.metrics.QueryExecution;
+import org.r10r.sqlify.metrics.QueryListener;
+import org.r10r.sqlify.metrics.QueryListeners;
+import org.r10r.sqlify.resultparser.ColumnarResult;
+
+/**
+ * Measures the phases of one execution and reports them to the installed
+ * {@link QueryListener}. Without a listener a shared instance is used that
+ * does nothing - not even calling System.nanoTime().
+ *
+ * Not thread-safe. One instance per execution.
+ */
+final class QueryTimer {
+
+  private static final QueryTimer DISABLED = new QueryTimer(null, null, null, null, null, null);
+
+  private final QueryListener queryListener;
+  private final String sql;
+  private final QueryExecution.Kind kind;
+  private final Map<String, Object> parameters;
+  private final String jdbcSql;
+  private final ParameterBinder parameterBinder;
+  private final long startedAt;
+  private long markedAt;
+
+  private long prepareNanos;
+  private long executeNanos;
+  private long mappingNanos;
+  private long rows;
+  private long batchSize;
+
+  private QueryTimer(
+      QueryListener queryListener,
+      String sql,
+      QueryExecution.Kind kind,
+      Map<String, Object> parameters,
+      String jdbcSql,
+      ParameterBinder parameterBinder) {
+    this.queryListener = queryListener;
+    this.sql = sql;
+    this.kind = kind;
+    this.parameters = parameters;
+    this.jdbcSql = jdbcSql;
+    this.parameterBinder = parameterBinder;
+    this.startedAt = queryListener == null ? 0 : System.nanoTime();
+    this.markedAt = startedAt;
+  }
+
+  /**
+   * @param sql The sql as provided by the user.
+   * @param kind What kind of execution this is.
+   * @param parameters The values of the placeholders or null.
+   */
+  static QueryTimer start(String sql, QueryExecution.Kind kind, Map<String, Object> parameters) {
+    return start(sql, kind, parameters, null, null);
+  }
+
+  /**
+   * @param sql The sql as provided by the user.
+   * @param kind What kind of execution this is.
+   * @param parameters The values of the placeholders or null.
+   * @param jdbcSql The sql sent to the driver.
+   * @param parameterBinder Binds the parameters of this execution.
+   */
+  static QueryTimer start(
+      String sql,
+      QueryExecution.Kind kind,
+      Map<String, Object> parameters,
+      String jdbcSql,
+      ParameterBinder parameterBinder) {
+    QueryListener queryListener = QueryListeners.get();
+    if (queryListener == null) {
+      return DISABLED;
+    }
+    return new QueryTimer(queryListener, sql, kind, parameters, jdbcSql, parameterBinder);
+  }
+
+  /**
+   * Starts the next phase. Everything since the last phase ended is not
+   * part of any phase.
+   */
+  void mark() {
+    if (queryListener != null) {
+      markedAt = System.nanoTime();
+    }
+  }
+
+  void prepared() {
+    if (queryListener != null) {
+      long now = System.nanoTime();
+      prepareNanos += now - markedAt;
+      markedAt = now;
+    }
+  }
+
+  void executed() {
+    if (queryListener != null) {
+      long now = System.nanoTime();
+      executeNanos += now - markedAt;
+      markedAt = now;
+    }
+  }
+
+  void mapped() {
+    if (queryListener != null) {
+      long now = System.nanoTime();
+      mappingNanos += now - markedAt;
+      markedAt = now;
+    }
+  }
+
+  /**
+   * Ends the mapping phase and counts the rows of the parsed result.
+   */
+  void mapped(Object result) {
+    if (queryListener != null) {
+      mapped();
+      rows += rowsOf(result);
+    }
+  }
+
+  private static long rowsOf(Object result) {
+    if (result == null) {
+      return 0;
+    } else if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    } else if (result instanceof Optional) {
+      return ((Optional<?>) result).isPresent() ? 1 : 0;
+    } else if (result instanceof long[]) {
+      return ((long[]) result).length;
+    } else if (result instanceof int[]) {
+      return ((int[]) result).length;
+    } else if (result instanceof double[]) {
+      return ((double[]) result).length;
+    } else if (result instanceof ColumnarResult) {
+      return ((ColumnarResult) result).getRowCount();
+    }
+    return 1;
+  }
+
+  void addRows(long numberOfRows) {
+    if (queryListener != null) {
+      rows += numberOfRows;
+    }
+  }
+
+  void addBatchRows(int[] updateCounts) {
+    if (queryListener != null) {
+      batchSize += updateCounts.length;
+      for (int updateCount : updateCounts) {
+        if (updateCount > 0) {
+          rows += updateCount;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reports the execution to the listener. Call it exactly once.
+   *
+   * @param failure The exception that made the execution fail or null.
+   */
+  void finish(Throwable failure) {
+    if (queryListener == null) {
+      return;
+    }
+    QueryExecution queryExecution = new QueryExecution(
+        sql,
+        kind,
+        parameters,
+        prepareNanos,
+        executeNanos,
+        mappingNanos,
+        System.nanoTime() - startedAt,
+        rows,
+        batchSize,
+        failure,
+        jdbcSql,
+        parameterBinder);
+    try {
+      queryListener.onQueryExecuted(queryExecution);
+    } catch (RuntimeException runtimeException) {
+      // a broken listener must not break the query
+    }
+  }
+
+}
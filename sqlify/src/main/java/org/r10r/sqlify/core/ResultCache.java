@@ -0,0 +1,426 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.metrics.QueryExecution;
+import org.r10r.sqlify.metrics.QueryListener;
+
+/**
+ * A bounded cache for the results of read-mostly selects - country tables,
+ * feature configuration and the like. Entries are keyed by sql template,
+ * result parser and parameters:
+ *
+ * <pre>
+ * ResultCache resultCache = new ResultCache(1000, 5, TimeUnit.MINUTES);
+ * QueryListeners.add(resultCache); // invalidates on updates - see below
+ * ...
+ * List&lt;Country&gt; countries = Sqlify.sql("SELECT * FROM country WHERE continent = {continent}")
+ *     .withParameter("continent", "EU")
+ *     .parseResultWith(ListResultParser.of(Country.class))
+ *     .cachedIn(resultCache, "country")
+ *     .executeSelect(connection);
+ * </pre>
+ *
+ * Cached results are shared between all callers. Do not modify them.
+ *
+ * Array parameters are compared by content. Result parsers are compared by
+ * equals: the parsers created by ListResultParser.of(Class),
+ * SingleResultParser.of(Class) and SingleOptionalResultParser.of(Class) are
+ * equal for the same class. Keep other parsers in a constant - otherwise
+ * every query misses.
+ *
+ * Selects on a connection with autoCommit == false are neither served from
+ * nor stored in the cache. They may see (or produce) uncommitted data.
+ *
+ * Entries expire 'timeToLive' after they have been loaded. When the cache
+ * grows beyond its maximum size about 10% of the entries are evicted at
+ * once - the least recently used ones. If several threads miss the same key
+ * at the same time only one of them runs the query. The others wait for its
+ * result.
+ *
+ * Entries can be tagged with the tables they read from. When the cache is
+ * registered as {@link QueryListener} every successful update, batch or
+ * generated key insert on one of these tables invalidates them. The table
+ * is taken from the sql (INSERT INTO, UPDATE, DELETE FROM, TRUNCATE, MERGE
+ * INTO). Updates whose table cannot be determined invalidate everything.
+ * Updates done outside of Sqlify (including COPY and pipelines) are not
+ * seen - use {@link #invalidateTable(String)} for these.
+ *
+ * Invalidation happens right after the update has been executed, not when
+ * its transaction commits. A select running in between may cache the old
+ * data again until it expires. Keep the time to live short accordingly.
+ */
+public final class ResultCache implements QueryListener {
+
+  private static final Pattern UPDATED_TABLE = Pattern.compile(
+      "^\\s*(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|TRUNCATE(?:\\s+TABLE)?|MERGE\\s+INTO)\\s+(?:ONLY\\s+)?([\\w$.\"]+)",
+      Pattern.CASE_INSENSITIVE);
+
+  private final int maximumSize;
+  private final long timeToLiveNanos;
+  private final LongSupplier ticker;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong clock = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  /**
+   * @param maximumSize The maximum number of cached results.
+   * @param timeToLive How long a result stays valid after it has been loaded.
+   * @param timeUnit The unit of the time to live.
+   */
+  public ResultCache(int maximumSize, long timeToLive, TimeUnit timeUnit) {
+    this(maximumSize, timeUnit.toNanos(timeToLive), System::nanoTime);
+  }
+
+  ResultCache(int maximumSize, long timeToLiveNanos, LongSupplier ticker) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the cache must be at least 1, but was " + maximumSize);
+    }
+    if (timeToLiveNanos <= 0) {
+      throw new IllegalArgumentException("The time to live must be positive, but was " + timeToLiveNanos + " ns");
+    }
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.ticker = ticker;
+  }
+
+  /**
+   * Returns the cached result or runs the loader. Exceptions of the loader
+   * are passed on to all threads waiting for it and nothing is cached.
+   *
+   * @param sql The sql template provided by the user.
+   * @param parameterMap The parameters of the query. Copied.
+   * @param loader Executes the query on a miss.
+   * @param tables The tables the query reads from. Used for invalidation.
+   * @return The (possibly cached) result.
+   */
+  public <T> T get(String sql, Map<String, Object> parameterMap, Supplier<T> loader, String... tables) {
+    return get(sql, null, parameterMap, loader, tables);
+  }
+
+  /**
+   * See {@link #get(String, Map, Supplier, String...)}.
+   *
+   * @param sql The sql template provided by the user.
+   * @param resultParser The parser of the result. Part of the key.
+   * @param parameterMap The parameters of the query. Copied.
+   * @param loader Executes the query on a miss.
+   * @param tables The tables the query reads from. Used for invalidation.
+   * @return The (possibly cached) result.
+   */
+  public <T> T get(String sql, Object resultParser, Map<String, Object> parameterMap, Supplier<T> loader, String... tables) {
+    Key key = new Key(sql, resultParser, parameterMap);
+    while (true) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.isExpiredAt(ticker.getAsLong())) {
+        if (entries.remove(key, entry)) {
+          expirations.increment();
+        }
+        entry = null;
+      }
+      if (entry != null) {
+        hits.increment();
+        entry.lastAccess = clock.incrementAndGet();
+        // same key - same sql, parser and parameters - so same type
+        @SuppressWarnings("unchecked")
+        T result = (T) await(entry);
+        return result;
+      }
+
+      Entry newEntry = new Entry(normalizeTables(tables), clock.incrementAndGet());
+      if (entries.putIfAbsent(key, newEntry) != null) {
+        // another thread was faster. Wait for its result.
+        continue;
+      }
+      misses.increment();
+      if (entries.size() > maximumSize) {
+        evict();
+      }
+      return load(key, newEntry, loader);
+    }
+  }
+
+  private <T> T load(Key key, Entry entry, Supplier<T> loader) {
+    try {
+      T result = loader.get();
+      entry.expiresAt = ticker.getAsLong() + timeToLiveNanos;
+      entry.result.complete(result);
+      return result;
+    } catch (RuntimeException | Error exception) {
+      entries.remove(key, entry);
+      entry.result.completeExceptionally(exception);
+      throw exception;
+    }
+  }
+
+  private static Object await(Entry entry) {
+    try {
+      return entry.result.join();
+    } catch (CompletionException completionException) {
+      if (completionException.getCause() instanceof SqlifyException) {
+        throw (SqlifyException) completionException.getCause();
+      }
+      throw new SqlifyException("Ops. Loading the cached result failed: " + completionException.getCause().getMessage(), completionException.getCause());
+    }
+  }
+
+  private void evict() {
+    // only one thread evicts at a time. All others simply continue.
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      int numberOfEntriesToEvict = entries.size() - maximumSize + maximumSize / 10;
+      if (numberOfEntriesToEvict <= 0) {
+        return;
+      }
+
+      List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+      candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+      for (int i = 0; i < numberOfEntriesToEvict && i < candidates.size(); i++) {
+        Map.Entry<Key, Entry> candidate = candidates.get(i);
+        if (entries.remove(candidate.getKey(), candidate.getValue())) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Invalidates the results of a sql template - for all parameters.
+   *
+   * @param sql The sql template as provided by the user.
+   */
+  public void invalidateTemplate(String sql) {
+    entries.forEach((key, entry) -> {
+      if (key.sql.equals(sql)) {
+        invalidate(key, entry);
+      }
+    });
+  }
+
+  /**
+   * Invalidates all results tagged with the table.
+   *
+   * @param table The table. Case and schema are ignored.
+   */
+  public void invalidateTable(String table) {
+    String normalizedTable = normalizeTable(table);
+    entries.forEach((key, entry) -> {
+      if (entry.tables.contains(normalizedTable)) {
+        invalidate(key, entry);
+      }
+    });
+  }
+
+  public void invalidateAll() {
+    entries.forEach(this::invalidate);
+  }
+
+  private void invalidate(Key key, Entry entry) {
+    if (entries.remove(key, entry)) {
+      invalidations.increment();
+    }
+  }
+
+  @Override
+  public void onQueryExecuted(QueryExecution queryExecution) {
+    if (queryExecution.getFailure() != null
+        || queryExecution.getKind() == QueryExecution.Kind.SELECT
+        || queryExecution.getKind() == QueryExecution.Kind.STREAM) {
+      return;
+    }
+    String table = findUpdatedTable(queryExecution.getSql());
+    if (table == null) {
+      invalidateAll();
+    } else {
+      invalidateTable(table);
+    }
+  }
+
+  /**
+   * @param sql An update.
+   * @return The updated table - lower case and without schema. null if it
+   * cannot be determined.
+   */
+  static String findUpdatedTable(String sql) {
+    Matcher matcher = UPDATED_TABLE.matcher(sql);
+    if (!matcher.find()) {
+      return null;
+    }
+    return normalizeTable(matcher.group(1));
+  }
+
+  static String normalizeTable(String table) {
+    String withoutQuotes = table.replace("\"", "");
+    return withoutQuotes.substring(withoutQuotes.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> normalizeTables(String... tables) {
+    if (tables.length == 0) {
+      return Collections.emptySet();
+    }
+    Set<String> normalizedTables = new HashSet<>();
+    Arrays.stream(tables).forEach(table -> normalizedTables.add(normalizeTable(table)));
+    return Collections.unmodifiableSet(normalizedTables);
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public long getTimeToLive(TimeUnit timeUnit) {
+    return timeUnit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return The number of entries evicted because the cache was full.
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return The number of entries that have been found expired.
+   */
+  public long getExpirationCount() {
+    return expirations.sum();
+  }
+
+  /**
+   * @return The number of entries removed by invalidation.
+   */
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  private static final class Key {
+
+    private final String sql;
+    private final Object resultParser;
+    private final Map<String, Object> parameterMap;
+    private final int hashCode;
+
+    private Key(String sql, Object resultParser, Map<String, Object> parameterMap) {
+      this.sql = sql;
+      this.resultParser = resultParser;
+      this.parameterMap = parameterMap == null || parameterMap.isEmpty()
+          ? Collections.emptyMap()
+          : copyOf(parameterMap);
+      this.hashCode = 31 * (31 * sql.hashCode() + Objects.hashCode(resultParser)) + this.parameterMap.hashCode();
+    }
+
+    /**
+     * Arrays compare by identity. Wrap them so that equal content gives
+     * equal keys.
+     */
+    private static Map<String, Object> copyOf(Map<String, Object> parameterMap) {
+      Map<String, Object> copy = new HashMap<>();
+      parameterMap.forEach((name, value) -> copy.put(name,
+          value != null && value.getClass().isArray() ? new ArrayContent(value) : value));
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) object;
+      return hashCode == other.hashCode
+          && sql.equals(other.sql)
+          && Objects.equals(resultParser, other.resultParser)
+          && Objects.equals(parameterMap, other.parameterMap);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class ArrayContent {
+
+    private final Object[] array;
+    private final int hashCode;
+
+    private ArrayContent(Object array) {
+      // wrapped once more so that deepEquals also handles primitive arrays
+      this.array = new Object[]{array};
+      this.hashCode = Arrays.deepHashCode(this.array);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof ArrayContent
+          && Arrays.deepEquals(array, ((ArrayContent) object).array);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class Entry {
+
+    private final Set<String> tables;
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+    private volatile long expiresAt;
+    private volatile long lastAccess;
+
+    private Entry(Set<String> tables, long created) {
+      this.tables = tables;
+      this.lastAccess = created;
+    }
+
+    private boolean isExpiredAt(long now) {
+      return result.isDone() && now - expiresAt >= 0;
+    }
+  }
+
+}
@@ -0,0 +1,358 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts sql with named placeholders ("{name}") into jdbc sql ("?").
+ *
+ * The parser walks over the sql exactly once and builds the jdbc sql and the
+ * list of parameter names at the same time. Curly braces are only treated as
+ * placeholders outside of
+ * <ul>
+ * <li>string literals: 'it''s {not} a placeholder', E'\'{not}\''</li>
+ * <li>quoted identifiers: "{not}"</li>
+ * <li>line comments: -- {not}</li>
+ * <li>block comments: /* {not} *&#47; (may be nested like in Postgres)</li>
+ * <li>dollar quoted strings: $$ {not} $$ or $body$ {not} $body$</li>
+ * </ul>
+ *
+ * A placeholder name must not be empty and must not contain whitespace or
+ * curly braces. Anything else that starts with '{' is kept as it is.
+ */
+final class SqlParser {
+
+  private SqlParser() {
+  }
+
+  static ParsedSql parse(String sql) {
+    int length = sql.length();
+    StringBuilder jdbcSql = new StringBuilder(length);
+    List<String> parameterNames = new ArrayList<>();
+    List<Integer> placeholderOffsets = new ArrayList<>();
+
+    // everything from 'copiedUntil' to 'i' has not yet been copied to jdbcSql
+    int copiedUntil = 0;
+    int i = 0;
+    while (i < length) {
+      int next = skipNonCode(sql, i);
+      if (next != i) {
+        i = next;
+        continue;
+      }
+      int end = sql.charAt(i) == '{' ? endOfPlaceholder(sql, i) : -1;
+      if (end < 0) {
+        i++;
+      } else {
+        jdbcSql.append(sql, copiedUntil, i);
+        placeholderOffsets.add(jdbcSql.length());
+        jdbcSql.append('?');
+        parameterNames.add(sql.substring(i + 1, end));
+        i = end + 1;
+        copiedUntil = i;
+      }
+    }
+    jdbcSql.append(sql, copiedUntil, length);
+
+    int[] offsets = new int[placeholderOffsets.size()];
+    for (int j = 0; j < offsets.length; j++) {
+      offsets[j] = placeholderOffsets.get(j);
+    }
+    return new ParsedSql(sql, jdbcSql.toString(), parameterNames, offsets);
+  }
+
+  /**
+   * Finds the row of an insert: the parenthesized group after the VALUES
+   * keyword on the top level of the sql. Literals, identifiers and comments
+   * are skipped the same way as in {@link #parse(String)}.
+   *
+   * @return {index of '(', index after the matching ')'} or null if there is
+   * no such group or if the sql already contains more than one row.
+   */
+  static int[] findValuesGroup(String sql) {
+    int length = sql.length();
+    int depth = 0;
+    int groupStart = -1;
+    boolean afterValues = false;
+    int i = 0;
+    while (i < length) {
+      int next = skipNonCode(sql, i);
+      if (next != i) {
+        i = next;
+        continue;
+      }
+      char c = sql.charAt(i);
+      switch (c) {
+        case '(':
+          if (afterValues && depth == 0) {
+            groupStart = i;
+          }
+          afterValues = false;
+          depth++;
+          i++;
+          break;
+        case ')':
+          depth--;
+          i++;
+          if (depth == 0 && groupStart >= 0) {
+            return isFollowedByAnotherRow(sql, i) ? null : new int[]{groupStart, i};
+          }
+          break;
+        default:
+          if (Character.isWhitespace(c)) {
+            i++;
+          } else if (isIdentifierPart(c)) {
+            int end = i;
+            while (end < length && isIdentifierPart(sql.charAt(end))) {
+              end++;
+            }
+            afterValues = depth == 0 && groupStart < 0 && sql.regionMatches(true, i, "VALUES", 0, end - i) && end - i == 6;
+            i = end;
+          } else {
+            afterValues = false;
+            i++;
+          }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the sql contains the keyword outside of literals,
+   * identifiers in quotes, comments and parentheses.
+   */
+  static boolean containsTopLevelKeyword(String sql, String keyword) {
+    int length = sql.length();
+    int depth = 0;
+    int i = 0;
+    while (i < length) {
+      int next = skipNonCode(sql, i);
+      if (next != i) {
+        i = next;
+        continue;
+      }
+      char c = sql.charAt(i);
+      switch (c) {
+        case '(':
+          depth++;
+          i++;
+          break;
+        case ')':
+          depth--;
+          i++;
+          break;
+        default:
+          if (isIdentifierPart(c)) {
+            int end = i;
+            while (end < length && isIdentifierPart(sql.charAt(end))) {
+              end++;
+            }
+            if (depth == 0 && end - i == keyword.length() && sql.regionMatches(true, i, keyword, 0, end - i)) {
+              return true;
+            }
+            i = end;
+          } else {
+            i++;
+          }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The index after the last character that is neither whitespace,
+   * ';' nor part of a comment - so that the statement can be followed by
+   * another one.
+   */
+  static int endOfStatement(String sql) {
+    int length = sql.length();
+    int end = 0;
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (c == ';' || Character.isWhitespace(c)) {
+        i++;
+      } else if (isCommentStart(sql, i)) {
+        i = skipNonCode(sql, i);
+      } else {
+        int next = skipNonCode(sql, i);
+        i = next == i ? i + 1 : next;
+        end = i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * @return The index after the string literal, quoted identifier, comment
+   * or dollar quoted string that starts at 'i' - or 'i' if the character
+   * there is plain code.
+   */
+  private static int skipNonCode(String sql, int i) {
+    switch (sql.charAt(i)) {
+      case '\'':
+        return skipStringLiteral(sql, i, isEscapeStringPrefix(sql, i));
+      case '"':
+        return skipQuoted(sql, i, '"');
+      case '-':
+        return isAt(sql, i + 1, '-') ? skipLineComment(sql, i) : i;
+      case '/':
+        return isAt(sql, i + 1, '*') ? skipBlockComment(sql, i) : i;
+      case '$':
+        return skipDollarQuoted(sql, i);
+      default:
+        return i;
+    }
+  }
+
+  private static boolean isCommentStart(String sql, int i) {
+    char c = sql.charAt(i);
+    return (c == '-' && isAt(sql, i + 1, '-')) || (c == '/' && isAt(sql, i + 1, '*'));
+  }
+
+  private static boolean isFollowedByAnotherRow(String sql, int index) {
+    int i = index;
+    while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+      i++;
+    }
+    return isAt(sql, i, ',');
+  }
+
+  private static boolean isAt(String sql, int index, char c) {
+    return index < sql.length() && sql.charAt(index) == c;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * Postgres escape strings (E'...') allow backslash escapes like \'.
+   */
+  private static boolean isEscapeStringPrefix(String sql, int quote) {
+    if (quote == 0) {
+      return false;
+    }
+    char prefix = sql.charAt(quote - 1);
+    if (prefix != 'E' && prefix != 'e') {
+      return false;
+    }
+    return quote == 1 || !isIdentifierPart(sql.charAt(quote - 2));
+  }
+
+  /**
+   * @return The index after the closing quote (or the length of the sql if
+   * the literal is not terminated).
+   */
+  private static int skipStringLiteral(String sql, int start, boolean backslashEscapes) {
+    int length = sql.length();
+    int i = start + 1;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (backslashEscapes && c == '\\') {
+        i += 2;
+      } else if (c == '\'') {
+        if (isAt(sql, i + 1, '\'')) {
+          i += 2; // '' is an escaped quote
+        } else {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+    return length;
+  }
+
+  private static int skipQuoted(String sql, int start, char quote) {
+    int length = sql.length();
+    int i = start + 1;
+    while (i < length) {
+      if (sql.charAt(i) == quote) {
+        if (isAt(sql, i + 1, quote)) {
+          i += 2;
+        } else {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+    return length;
+  }
+
+  private static int skipLineComment(String sql, int start) {
+    int endOfLine = sql.indexOf('\n', start + 2);
+    return endOfLine < 0 ? sql.length() : endOfLine + 1;
+  }
+
+  private static int skipBlockComment(String sql, int start) {
+    int length = sql.length();
+    int depth = 1;
+    int i = start + 2;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (c == '*' && isAt(sql, i + 1, '/')) {
+        depth--;
+        i += 2;
+        if (depth == 0) {
+          return i;
+        }
+      } else if (c == '/' && isAt(sql, i + 1, '*')) {
+        depth++;
+        i += 2;
+      } else {
+        i++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Skips $tag$ ... $tag$. A '$' that does not start a dollar quote (eg $1 or
+   * an identifier like a$b) is skipped as a single character.
+   */
+  private static int skipDollarQuoted(String sql, int start) {
+    if (start > 0 && isIdentifierPart(sql.charAt(start - 1))) {
+      return start + 1;
+    }
+    int length = sql.length();
+    int i = start + 1;
+    if (i < length && Character.isDigit(sql.charAt(i))) {
+      return start + 1;
+    }
+    while (i < length && sql.charAt(i) != '$') {
+      char c = sql.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_') {
+        return start + 1;
+      }
+      i++;
+    }
+    if (i >= length) {
+      return start + 1;
+    }
+
+    String tag = sql.substring(start, i + 1);
+    int end = sql.indexOf(tag, i + 1);
+    return end < 0 ? length : end + tag.length();
+  }
+
+  /**
+   * @return The index of the closing '}' or -1 if the '{' at 'start' does not
+   * open a valid placeholder.
+   */
+  private static int endOfPlaceholder(String sql, int start) {
+    int length = sql.length();
+    for (int i = start + 1; i < length; i++) {
+      char c = sql.charAt(i);
+      if (c == '}') {
+        return i == start + 1 ? -1 : i;
+      }
+      if (c == '{' || Character.isWhitespace(c)) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+}
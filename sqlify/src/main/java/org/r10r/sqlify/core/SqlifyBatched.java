@@ -1,16 +1,45 @@
 package org.r10r.sqlify.core;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.metrics.QueryExecution.Kind;
+import org.r10r.sqlify.resultparser.ListResultParser;
 
 public final class SqlifyBatched {
 
+  /**
+   * The maximum number of bind parameters per statement of PostgreSQL.
+   */
+  public static final int DEFAULT_MAXIMUM_BIND_PARAMETERS = 32767;
+
+  /**
+   * The chunk size of fault tolerant batches if none has been set. The rows
+   * of a chunk are kept in memory to be able to send them again.
+   */
+  public static final int DEFAULT_FAULT_TOLERANT_CHUNK_SIZE = 1000;
+
   private final String sqlForJdbc;
-  private final List<Batch> parameterMapBatches;
-  private final List<String> parametersInSqlSorted;
+  private final ParsedSql parsedSql;
+  private final BatchSource batchSource;
+  private final int expectedNumberOfRows;
+  
+  private int chunkSize = Integer.MAX_VALUE;
+  private boolean commitAfterEachChunk = false;
+  private BatchProgressListener batchProgressListener;
+  private int maximumBindParameters = 0;
 
   public SqlifyBatched(
       String userProvidedSqlWithPlaceholder, 
@@ -20,24 +49,626 @@ public final class SqlifyBatched {
       throw new IllegalArgumentException("You have to provide at least one batch when using batched sql mode...");
     }
 
-    this.parameterMapBatches = parameterMapBatches;
-    this.parametersInSqlSorted = SqlifyCore.extractParameterNames(userProvidedSqlWithPlaceholder);
-    this.sqlForJdbc = SqlifyCore.convertNamedParametersIntoJdbcCompliantPreparedStatement(userProvidedSqlWithPlaceholder);
+    this.parsedSql = SqlifyCore.parse(userProvidedSqlWithPlaceholder);
+    this.sqlForJdbc = parsedSql.getJdbcSql();
+    this.batchSource = BatchSource.of(parameterMapBatches, parsedSql.getParameterPositions().keySet());
+    this.expectedNumberOfRows = parameterMapBatches.size();
+  }
+
+  /**
+   * Rows are pulled lazily from the iterator and bound directly to the
+   * PreparedStatement. Together with a chunk size memory usage stays bounded
+   * no matter how many rows there are.
+   *
+   * @param userProvidedSqlWithPlaceholder SQL with named parameters in curly
+   * braces.
+   * @param rows The source objects. One row per object.
+   * @param batchBinder Binds a source object to the placeholders.
+   */
+  public <R> SqlifyBatched(
+      String userProvidedSqlWithPlaceholder,
+      Iterator<R> rows,
+      BatchBinder<R> batchBinder) {
+
+    this.parsedSql = SqlifyCore.parse(userProvidedSqlWithPlaceholder);
+    this.sqlForJdbc = parsedSql.getJdbcSql();
+    this.batchSource = BatchSource.of(rows, batchBinder);
+    this.expectedNumberOfRows = 16;
+  }
+
+  /**
+   * Binds the rows straight from their slot arrays - no map lookup and no
+   * boxing of long and double values per row.
+   *
+   * @param batchRows The rows. Must have been created for the same sql.
+   */
+  public SqlifyBatched(BatchRows batchRows) {
+    if (batchRows.size() == 0) {
+      throw new IllegalArgumentException("You have to provide at least one batch when using batched sql mode...");
+    }
+    batchRows.verifyAllRowsAreComplete();
+
+    this.parsedSql = batchRows.getParsedSql();
+    this.sqlForJdbc = parsedSql.getJdbcSql();
+    this.batchSource = BatchSource.of(batchRows);
+    this.expectedNumberOfRows = batchRows.size();
+  }
+
+  /**
+   * Sends the rows to the database in chunks of 'chunkSize' rows instead of
+   * all at once. That keeps the memory needed by the driver bounded.
+   *
+   * @param chunkSize Number of rows per executeBatch().
+   * @return this for chaining
+   */
+  public SqlifyBatched withChunkSize(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size must be at least 1, but was " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Commits after each chunk. Rows of chunks that have already been
+   * committed stay in the database if a later chunk fails. Needs a connection
+   * with autocommit turned off.
+   *
+   * @param commitAfterEachChunk true to commit after each chunk.
+   * @return this for chaining
+   */
+  public SqlifyBatched withCommitAfterEachChunk(boolean commitAfterEachChunk) {
+    this.commitAfterEachChunk = commitAfterEachChunk;
+    return this;
+  }
+
+  public SqlifyBatched withProgressListener(BatchProgressListener batchProgressListener) {
+    this.batchProgressListener = batchProgressListener;
+    return this;
+  }
+  
+  /**
+   * Sends many rows with one statement by rewriting
+   * "INSERT ... VALUES ({a}, {b})" into "INSERT ... VALUES (?, ?), (?, ?), ...".
+   * Helps a lot with drivers that send every row of a jdbc batch on its own.
+   *
+   * The number of rows per statement is chosen so that the statement has at
+   * most 'maximumBindParameters' parameters (and not more rows than the chunk
+   * size). RETURNING and ON CONFLICT clauses are kept. Note that PostgreSQL
+   * does not allow ON CONFLICT DO UPDATE to touch the same row twice in one
+   * statement.
+   *
+   * Statements with RETURNING are run one by one with executeQuery. The
+   * returned rows are the result of
+   * {@link #executeUpdateBatchAndReturnGeneratedKeys(Connection, ListResultParser)}
+   * - and only counted by {@link #executeUpdateBatch(Connection)}.
+   *
+   * As one statement inserts many rows the update count of each row is 1 if
+   * all rows of its statement have been inserted and
+   * Statement.SUCCESS_NO_INFO otherwise.
+   *
+   * @param maximumBindParameters The limit of the driver. Eg
+   * {@link #DEFAULT_MAXIMUM_BIND_PARAMETERS}.
+   * @return this for chaining
+   */
+  public SqlifyBatched withMultiRowValues(int maximumBindParameters) {
+    if (maximumBindParameters < 1) {
+      throw new IllegalArgumentException("The maximum number of bind parameters must be at least 1, but was " + maximumBindParameters);
+    }
+    this.maximumBindParameters = maximumBindParameters;
+    return this;
   }
   
   public int [] executeUpdateBatch(Connection connection) {
-    try (PreparedStatement preparedStatement = connection.prepareStatement(sqlForJdbc)) {
-      
-        for (Batch batch: parameterMapBatches) {
-          SqlifyCore.applyParameterMapToPreparedStatement(preparedStatement, batch.getParameterMap(), parametersInSqlSorted);
+    return execute(connection, null);
+  }
+  
+  /**
+   * Executes the batch and returns the keys generated by the database for
+   * all rows - collected over all chunks. The statements are prepared with
+   * Statement.RETURN_GENERATED_KEYS.
+   *
+   * @param connection The connection to use.
+   * @param resultParser Parses the generated keys of each chunk. For
+   * instance ListResultParser.of(Long.class).
+   * @return The generated keys in the order of the rows.
+   */
+  public <T> List<T> executeUpdateBatchAndReturnGeneratedKeys(
+      Connection connection, 
+      ListResultParser<T> resultParser) {
+    
+    if (resultParser == null) {
+      throw new SqlifyException("Arg. I don't know how to parse the generated keys. Please specify result parser. Example: '.parseResultWith(ListResultParser.of(Long.class))'");
+    }
+    GeneratedKeys<T> generatedKeys = new GeneratedKeys<>(resultParser, expectedNumberOfRows);
+    execute(connection, generatedKeys);
+    return generatedKeys.keys;
+  }
+  
+  /**
+   * Executes the batch, but does not fail if the database rejects some rows
+   * - for instance because of a constraint. All other rows are applied.
+   *
+   * Each chunk is executed within a savepoint. If it fails the savepoint is
+   * rolled back and both halves of the chunk are executed again - until the
+   * failing rows are found. A bad row therefore costs about log2(chunk size)
+   * extra round trips instead of sending all rows one by one. Only
+   * BatchUpdateExceptions with SQLState class 22 (data exception) or 23
+   * (integrity constraint violation) are isolated. All other failures end
+   * the batch right away.
+   *
+   * Needs a connection with autocommit turned off (savepoints only exist
+   * within a transaction). The rows of a chunk are kept in memory. If no
+   * chunk size has been set {@link #DEFAULT_FAULT_TOLERANT_CHUNK_SIZE} is
+   * used. Cannot be combined with multi row values.
+   *
+   * @param connection The connection to use.
+   * @return The update counts of all rows and the failed rows.
+   */
+  public BatchReport executeFaultTolerantUpdateBatch(Connection connection) {
+    if (maximumBindParameters > 0) {
+      throw new SqlifyException("Ops. Fault tolerant batches send one row per statement. Please do not combine them with multi row values.");
+    }
+    verifyThatSavepointsArePossible(connection);
+    int rowsPerChunk = chunkSize == Integer.MAX_VALUE ? DEFAULT_FAULT_TOLERANT_CHUNK_SIZE : chunkSize;
+
+    QueryTimer queryTimer = QueryTimer.start(parsedSql.getSql(), Kind.BATCH, null);
+    Throwable failure = null;
+    UpdateCounts updateCounts = new UpdateCounts(expectedNumberOfRows);
+    List<BatchReport.FailedRow> failedRows = new ArrayList<>();
+    BoundBatchParameters parameters = new BoundBatchParameters(parsedSql);
+
+    try (PreparedStatement preparedStatement = prepareStatement(connection, sqlForJdbc, null, queryTimer)) {
+      int numberOfRowsInChunk;
+      while ((numberOfRowsInChunk = batchSource.pull(rowsPerChunk)) > 0) {
+        int[] countsOfChunk = new int[numberOfRowsInChunk];
+        ChunkExecution chunkExecution = new ChunkExecution(
+            connection, preparedStatement, parameters, countsOfChunk, updateCounts.size(), failedRows, queryTimer);
+        chunkExecution.executeIsolatingFailures(0, numberOfRowsInChunk);
+        if (commitAfterEachChunk) {
+          connection.commit();
+        }
+        updateCounts.addAll(countsOfChunk);
+
+        if (batchProgressListener != null) {
+          batchProgressListener.onChunkExecuted(numberOfRowsInChunk, updateCounts.size());
+        }
+      }
+
+      int[] result = updateCounts.toArray();
+      queryTimer.addBatchRows(result);
+      return new BatchReport(result, failedRows);
+    } catch (SQLException sqlException) {
+      failure = sqlException;
+      throw new SqlifyException("Ops. Something strange happened after " + updateCounts.size() + " rows had been executed " + sqlException, sqlException);
+    } catch (RuntimeException runtimeException) {
+      failure = runtimeException;
+      throw runtimeException;
+    } finally {
+      queryTimer.finish(failure);
+    }
+  }
+
+  /**
+   * Executes the rows of one pulled chunk and bisects it on failures.
+   */
+  private final class ChunkExecution {
+
+    private final Connection connection;
+    private final PreparedStatement preparedStatement;
+    private final BoundBatchParameters parameters;
+    private final int[] counts;
+    private final int indexOfFirstRow;
+    private final List<BatchReport.FailedRow> failedRows;
+    private final QueryTimer queryTimer;
+
+    private ChunkExecution(
+        Connection connection,
+        PreparedStatement preparedStatement,
+        BoundBatchParameters parameters,
+        int[] counts,
+        int indexOfFirstRow,
+        List<BatchReport.FailedRow> failedRows,
+        QueryTimer queryTimer) {
+      this.connection = connection;
+      this.preparedStatement = preparedStatement;
+      this.parameters = parameters;
+      this.counts = counts;
+      this.indexOfFirstRow = indexOfFirstRow;
+      this.failedRows = failedRows;
+      this.queryTimer = queryTimer;
+    }
+
+    /**
+     * @param from The first pulled row (inclusive).
+     * @param to The last pulled row (exclusive).
+     */
+    private void executeIsolatingFailures(int from, int to) throws SQLException {
+      Savepoint savepoint = connection.setSavepoint();
+      try {
+        for (int row = from; row < to; row++) {
+          parameters.startRow(preparedStatement, 0);
+          batchSource.bindPulled(row, parameters);
           preparedStatement.addBatch();
         }
+        queryTimer.mark();
+        int[] countsOfRows = preparedStatement.executeBatch();
+        queryTimer.executed();
+        System.arraycopy(countsOfRows, 0, counts, from, Math.min(countsOfRows.length, to - from));
+      } catch (SQLException sqlException) {
+        if (!isRowDataError(sqlException)) {
+          // lost connections, timeouts, syntax errors... would fail for every half again
+          throw sqlException;
+        }
+        preparedStatement.clearBatch();
+        connection.rollback(savepoint);
+        releaseQuietly(savepoint);
+
+        if (to - from == 1) {
+          counts[from] = Statement.EXECUTE_FAILED;
+          // drivers like pgjdbc put the actual reason into the next exception
+          SQLException reason = sqlException.getNextException() == null ? sqlException : sqlException.getNextException();
+          failedRows.add(new BatchReport.FailedRow(indexOfFirstRow + from, reason));
+          return;
+        }
+        int middle = (from + to) >>> 1;
+        executeIsolatingFailures(from, middle);
+        executeIsolatingFailures(middle, to);
+        return;
+      }
+      releaseQuietly(savepoint);
+    }
+
+    /**
+     * Only rows with bad data (SQLState class 22) or violating a constraint
+     * (class 23) are worth isolating.
+     */
+    private boolean isRowDataError(SQLException sqlException) {
+      if (!(sqlException instanceof BatchUpdateException)) {
+        return false;
+      }
+      return isRowDataState(sqlException.getSQLState())
+          || (sqlException.getNextException() != null && isRowDataState(sqlException.getNextException().getSQLState()));
+    }
+
+    private boolean isRowDataState(String sqlState) {
+      return sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+    }
+
+    private void releaseQuietly(Savepoint savepoint) throws SQLException {
+      try {
+        connection.releaseSavepoint(savepoint);
+      } catch (SQLFeatureNotSupportedException sqlFeatureNotSupportedException) {
+        // eg Oracle - the savepoint simply lives until the end of the transaction
+      }
+    }
+  }
+
+  private int [] execute(Connection connection, GeneratedKeys<?> generatedKeys) {
+    verifyThatCommitAfterEachChunkIsPossible(connection);
+    
+    QueryTimer queryTimer = QueryTimer.start(parsedSql.getSql(), Kind.BATCH, null);
+    Throwable failure = null;
+    try {
+      int [] updateCounts = maximumBindParameters > 0
+          ? executeMultiRowUpdateBatch(connection, generatedKeys, queryTimer)
+          : executeSingleRowUpdateBatch(connection, generatedKeys, queryTimer);
+      queryTimer.addBatchRows(updateCounts);
+      return updateCounts;
+    } catch (RuntimeException runtimeException) {
+      failure = runtimeException;
+      throw runtimeException;
+    } finally {
+      queryTimer.finish(failure);
+    }
+  }
+  
+  private int [] executeSingleRowUpdateBatch(
+      Connection connection, 
+      GeneratedKeys<?> generatedKeys, 
+      QueryTimer queryTimer) {
+    
+    UpdateCounts updateCounts = new UpdateCounts(expectedNumberOfRows);
+    BoundBatchParameters parameters = new BoundBatchParameters(parsedSql);
+    
+    try (PreparedStatement preparedStatement = prepareStatement(connection, sqlForJdbc, generatedKeys, queryTimer)) {
+      
+      int numberOfRowsInChunk = 0;
+      while (batchSource.hasNext()) {
+        parameters.startRow(preparedStatement, 0);
+        batchSource.bindNext(parameters);
+        preparedStatement.addBatch();
+        numberOfRowsInChunk++;
+        
+        if (numberOfRowsInChunk == chunkSize) {
+          executeChunk(connection, preparedStatement, updateCounts, generatedKeys, queryTimer);
+          numberOfRowsInChunk = 0;
+        }
+      }
+      
+      if (numberOfRowsInChunk > 0) {
+        executeChunk(connection, preparedStatement, updateCounts, generatedKeys, queryTimer);
+      }
+      
+      return updateCounts.toArray();
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened after " + updateCounts.size() + " rows had been executed successfully " + sqlException, sqlException);
+    }
+  }
+  
+  private int [] executeMultiRowUpdateBatch(
+      Connection connection, 
+      GeneratedKeys<?> generatedKeys, 
+      QueryTimer queryTimer) {
+    
+    MultiRowInsert multiRowInsert = parsedSql.getMultiRowInsert();
+    int rowsPerStatement = multiRowInsert.rowsPerStatement(chunkSize, maximumBindParameters);
+    // the statement returns the rows itself - no need to ask the driver for keys
+    GeneratedKeys<?> keysOfDriver = multiRowInsert.hasReturning() ? null : generatedKeys;
+    
+    UpdateCounts updateCounts = new UpdateCounts(expectedNumberOfRows);
+    BoundBatchParameters parameters = new BoundBatchParameters(parsedSql);
+    Map<Integer, PreparedStatement> preparedStatements = new HashMap<>();
+    
+    try {
+      while (true) {
+        int numberOfRowsInChunk = 0;
+        int numberOfFullStatements = 0;
+        PreparedStatement lastStatement = null;
+        int numberOfRowsInLastStatement = 0;
+        
+        while (numberOfRowsInChunk < chunkSize) {
+          int numberOfRows = batchSource.pull(Math.min(rowsPerStatement, chunkSize - numberOfRowsInChunk));
+          if (numberOfRows == 0) {
+            break;
+          }
+          PreparedStatement preparedStatement = prepareMultiRowStatement(
+              connection, multiRowInsert, numberOfRows, preparedStatements, keysOfDriver, queryTimer);
+          for (int row = 0; row < numberOfRows; row++) {
+            parameters.startRow(preparedStatement, row * multiRowInsert.getParametersPerRow());
+            batchSource.bindPulled(row, parameters);
+          }
+          numberOfRowsInChunk += numberOfRows;
+          
+          if (multiRowInsert.hasReturning()) {
+            // jdbc batches must not return rows
+            executeReturning(preparedStatement, numberOfRows, updateCounts, generatedKeys, queryTimer);
+          } else if (numberOfRows == rowsPerStatement) {
+            preparedStatement.addBatch();
+            numberOfFullStatements++;
+          } else {
+            // fewer rows only happen at the end of a chunk or of all rows
+            lastStatement = preparedStatement;
+            numberOfRowsInLastStatement = numberOfRows;
+            break;
+          }
+        }
+        
+        if (numberOfRowsInChunk == 0) {
+          return updateCounts.toArray();
+        }
+        if (numberOfFullStatements > 0) {
+          PreparedStatement fullStatement = preparedStatements.get(rowsPerStatement);
+          queryTimer.mark();
+          int [] counts = fullStatement.executeBatch();
+          queryTimer.executed();
+          for (int count : counts) {
+            updateCounts.addForRows(count, rowsPerStatement);
+          }
+          collectGeneratedKeys(fullStatement, generatedKeys, queryTimer);
+        }
+        if (lastStatement != null) {
+          queryTimer.mark();
+          int count = lastStatement.executeUpdate();
+          queryTimer.executed();
+          updateCounts.addForRows(count, numberOfRowsInLastStatement);
+          collectGeneratedKeys(lastStatement, generatedKeys, queryTimer);
+        }
+        if (commitAfterEachChunk) {
+          connection.commit();
+        }
+        if (batchProgressListener != null) {
+          batchProgressListener.onChunkExecuted(numberOfRowsInChunk, updateCounts.size());
+        }
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened after " + updateCounts.size() + " rows had been executed successfully " + sqlException, sqlException);
+    } finally {
+      for (PreparedStatement preparedStatement : preparedStatements.values()) {
+        closeQuietly(preparedStatement);
+      }
+    }
+  }
+  
+  private static void executeReturning(
+      PreparedStatement preparedStatement,
+      int numberOfRows,
+      UpdateCounts updateCounts,
+      GeneratedKeys<?> generatedKeys,
+      QueryTimer queryTimer) throws SQLException {
+
+    queryTimer.mark();
+    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+      queryTimer.executed();
+      int count;
+      if (generatedKeys != null) {
+        count = generatedKeys.collect(resultSet);
+      } else {
+        count = 0;
+        while (resultSet.next()) {
+          count++;
+        }
+      }
+      queryTimer.mapped();
+      updateCounts.addForRows(count, numberOfRows);
+    }
+  }
+
+  private static PreparedStatement prepareMultiRowStatement(
+      Connection connection, 
+      MultiRowInsert multiRowInsert, 
+      int numberOfRows,
+      Map<Integer, PreparedStatement> preparedStatements,
+      GeneratedKeys<?> generatedKeys,
+      QueryTimer queryTimer) throws SQLException {
     
-      int [] numberOfChangedLines = preparedStatement.executeBatch();
-      return numberOfChangedLines;
+    PreparedStatement preparedStatement = preparedStatements.get(numberOfRows);
+    if (preparedStatement == null) {
+      preparedStatement = prepareStatement(connection, multiRowInsert.jdbcSqlFor(numberOfRows), generatedKeys, queryTimer);
+      preparedStatements.put(numberOfRows, preparedStatement);
+    }
+    return preparedStatement;
+  }
+  
+  private static PreparedStatement prepareStatement(
+      Connection connection, 
+      String sql, 
+      GeneratedKeys<?> generatedKeys,
+      QueryTimer queryTimer) throws SQLException {
+    
+    queryTimer.mark();
+    PreparedStatement preparedStatement = generatedKeys == null
+        ? connection.prepareStatement(sql)
+        : connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    queryTimer.prepared();
+    return preparedStatement;
+  }
+  
+  private static void collectGeneratedKeys(
+      PreparedStatement preparedStatement, 
+      GeneratedKeys<?> generatedKeys,
+      QueryTimer queryTimer) throws SQLException {
+    
+    if (generatedKeys != null) {
+      queryTimer.mark();
+      generatedKeys.collect(preparedStatement);
+      queryTimer.mapped();
+    }
+  }
+  
+  private static void closeQuietly(PreparedStatement preparedStatement) {
+    try {
+      preparedStatement.close();
+    } catch (SQLException sqlException) {
+      // nothing we can do here - the original result or exception is more important
+    }
+  }
+  
+  private void executeChunk(
+      Connection connection,
+      PreparedStatement preparedStatement,
+      UpdateCounts updateCounts,
+      GeneratedKeys<?> generatedKeys,
+      QueryTimer queryTimer) throws SQLException {
+    
+    queryTimer.mark();
+    int [] numberOfChangedLinesInChunk = preparedStatement.executeBatch();
+    queryTimer.executed();
+    collectGeneratedKeys(preparedStatement, generatedKeys, queryTimer);
+    if (commitAfterEachChunk) {
+      connection.commit();
+    }
+    updateCounts.addAll(numberOfChangedLinesInChunk);
+    
+    if (batchProgressListener != null) {
+      batchProgressListener.onChunkExecuted(numberOfChangedLinesInChunk.length, updateCounts.size());
+    }
+  }
+  
+  private void verifyThatCommitAfterEachChunkIsPossible(Connection connection) {
+    try {
+      if (commitAfterEachChunk && connection.getAutoCommit()) {
+        throw new SqlifyException("Ops. Commit after each chunk needs a connection with autocommit turned off. Use database.withConnection(false, ...) for instance.");
+      }
     } catch (SQLException sqlException) {
       throw new SqlifyException("Ops. Something strange happened " + sqlException, sqlException);
     }
   }
 
+  private static void verifyThatSavepointsArePossible(Connection connection) {
+    try {
+      if (connection.getAutoCommit()) {
+        throw new SqlifyException("Ops. Fault tolerant batches need a connection with autocommit turned off. Use database.withTransaction(...) for instance.");
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened " + sqlException, sqlException);
+    }
+  }
+
+  /**
+   * The generated keys of all chunks.
+   */
+  private static final class GeneratedKeys<T> {
+
+    private final ListResultParser<T> resultParser;
+    private final List<T> keys;
+
+    private GeneratedKeys(ListResultParser<T> resultParser, int expectedSize) {
+      this.resultParser = resultParser;
+      this.keys = new ArrayList<>(expectedSize);
+    }
+
+    private void collect(PreparedStatement preparedStatement) throws SQLException {
+      try (ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+        collect(resultSet);
+      }
+    }
+
+    /**
+     * @return The number of keys in the ResultSet.
+     */
+    private int collect(ResultSet resultSet) throws SQLException {
+      try {
+        List<T> keysOfResultSet = resultParser.parseResultSet(resultSet);
+        keys.addAll(keysOfResultSet);
+        return keysOfResultSet.size();
+      } catch (SQLException | RuntimeException exception) {
+        throw exception;
+      } catch (Exception exception) {
+        throw new SqlifyException("Ops. Could not parse the generated keys: " + exception.getMessage(), exception);
+      }
+    }
+  }
+
+  /**
+   * The merged update counts of all chunks.
+   */
+  private static final class UpdateCounts {
+
+    private int[] counts;
+    private int size;
+
+    private UpdateCounts(int expectedSize) {
+      this.counts = new int[expectedSize];
+    }
+
+    private void addAll(int[] chunk) {
+      if (size + chunk.length > counts.length) {
+        counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + chunk.length));
+      }
+      System.arraycopy(chunk, 0, counts, size, chunk.length);
+      size += chunk.length;
+    }
+
+    /**
+     * Adds the update count of a statement that contained several rows.
+     */
+    private void addForRows(int count, int numberOfRows) {
+      int countPerRow = count == numberOfRows ? 1 : Statement.SUCCESS_NO_INFO;
+      if (size + numberOfRows > counts.length) {
+        counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + numberOfRows));
+      }
+      Arrays.fill(counts, size, size + numberOfRows, countPerRow);
+      size += numberOfRows;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private int[] toArray() {
+      return size == counts.length ? counts : Arrays.copyOf(counts, size);
+    }
+  }
+
 }
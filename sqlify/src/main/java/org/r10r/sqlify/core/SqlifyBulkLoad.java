@@ -0,0 +1,219 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Loads rows into a table as fast as the database allows.
+ *
+ * On PostgreSQL (pgjdbc) the rows are encoded into the text format of COPY
+ * and streamed via "COPY table (columns) FROM STDIN". The encoded rows are
+ * collected in one reusable buffer and sent whenever 'bufferSize' bytes are
+ * reached. Sending blocks while the server is busy, so rows are only pulled
+ * from the source as fast as the database can take them.
+ *
+ * On all other databases the rows are inserted via multi row VALUES (see
+ * {@link SqlifyBatched#withMultiRowValues(int)}) in chunks of 'chunkSize'
+ * rows - only one chunk is held in memory by the driver at a time.
+ *
+ * Table and column names are used as they are - quote them yourself if
+ * needed. The rows are bound by column name.
+ */
+public final class SqlifyBulkLoad {
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+  private final String table;
+  private final List<String> columns;
+  private final Rows<?> rows;
+
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private BatchProgressListener batchProgressListener;
+
+  public SqlifyBulkLoad(
+      String table,
+      List<String> columns,
+      List<Batch> parameterMapBatches) {
+
+    this(table, columns, parameterMapBatches.iterator(), (batch, parameters) -> {
+      for (String column : columns) {
+        parameters.set(column, batch.getParameterMap().get(column));
+      }
+    });
+  }
+
+  /**
+   * @param table The table to load into.
+   * @param columns The columns to load. Each row has to set all of them.
+   * @param rows The source objects. One row per object. Pulled lazily.
+   * @param batchBinder Binds a source object to the columns.
+   */
+  public <R> SqlifyBulkLoad(
+      String table,
+      List<String> columns,
+      Iterator<R> rows,
+      BatchBinder<R> batchBinder) {
+
+    if (columns.isEmpty()) {
+      throw new IllegalArgumentException("You have to provide at least one column when using bulk load mode...");
+    }
+    this.table = table;
+    this.columns = new ArrayList<>(columns);
+    this.rows = new Rows<>(rows, batchBinder);
+  }
+
+  /**
+   * @param bufferSize The number of bytes collected before they are sent
+   * to the database. Only used for COPY.
+   * @return this for chaining
+   */
+  public SqlifyBulkLoad withBufferSize(int bufferSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("The buffer size must be at least 1, but was " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+    return this;
+  }
+
+  /**
+   * @param chunkSize The number of rows per executeBatch(). Only used
+   * without COPY.
+   * @return this for chaining
+   */
+  public SqlifyBulkLoad withChunkSize(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size must be at least 1, but was " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * @param batchProgressListener Gets notified whenever rows have been sent
+   * to the database.
+   * @return this for chaining
+   */
+  public SqlifyBulkLoad withProgressListener(BatchProgressListener batchProgressListener) {
+    this.batchProgressListener = batchProgressListener;
+    return this;
+  }
+
+  String getCopySql() {
+    return "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+  }
+
+  String getInsertSql() {
+    return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+        + columns.stream().map(column -> "{" + column + "}").collect(Collectors.joining(", "))
+        + ")";
+  }
+
+  /**
+   * @param connection The connection to use.
+   * @return The number of rows loaded.
+   */
+  public long executeLoad(Connection connection) {
+    boolean copySupported;
+    try {
+      copySupported = PostgresCopy.isSupportedBy(connection);
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened " + sqlException, sqlException);
+    }
+
+    if (copySupported) {
+      return executeCopy(connection);
+    }
+    return rows.newSqlifyBatched(getInsertSql())
+        .withMultiRowValues(SqlifyBatched.DEFAULT_MAXIMUM_BIND_PARAMETERS)
+        .withChunkSize(chunkSize)
+        .withProgressListener(batchProgressListener)
+        .executeUpdateBatch(connection)
+        .length;
+  }
+
+  private long executeCopy(Connection connection) {
+    CopyTextEncoder encoder = new CopyTextEncoder(columns, bufferSize);
+    long numberOfRowsSent = 0;
+    int numberOfRowsInBuffer = 0;
+
+    PostgresCopy postgresCopy = null;
+    try {
+      postgresCopy = PostgresCopy.start(connection, getCopySql());
+      while (rows.hasNext()) {
+        rows.bindNext(encoder);
+        encoder.endRow();
+        numberOfRowsInBuffer++;
+
+        if (encoder.size() >= bufferSize) {
+          send(postgresCopy, encoder, numberOfRowsInBuffer, numberOfRowsSent);
+          numberOfRowsSent += numberOfRowsInBuffer;
+          numberOfRowsInBuffer = 0;
+        }
+      }
+      if (numberOfRowsInBuffer > 0) {
+        send(postgresCopy, encoder, numberOfRowsInBuffer, numberOfRowsSent);
+      }
+      return postgresCopy.end();
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened after " + numberOfRowsSent + " rows had been sent successfully " + sqlException, sqlException);
+    } finally {
+      if (postgresCopy != null) {
+        postgresCopy.cancelIfActive();
+      }
+    }
+  }
+
+  private void send(
+      PostgresCopy postgresCopy,
+      CopyTextEncoder encoder,
+      int numberOfRowsInBuffer,
+      long numberOfRowsSentBefore) throws SQLException {
+
+    postgresCopy.write(encoder.getBuffer(), 0, encoder.size());
+    encoder.clear();
+    if (batchProgressListener != null) {
+      batchProgressListener.onChunkExecuted(numberOfRowsInBuffer, numberOfRowsSentBefore + numberOfRowsInBuffer);
+    }
+  }
+
+  /**
+   * The source objects and their binder - kept together so that both have
+   * the same row type.
+   */
+  private static final class Rows<R> {
+
+    private final Iterator<R> iterator;
+    private final BatchBinder<R> batchBinder;
+
+    private Rows(Iterator<R> iterator, BatchBinder<R> batchBinder) {
+      this.iterator = iterator;
+      this.batchBinder = batchBinder;
+    }
+
+    boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    void bindNext(BatchParameters parameters) {
+      try {
+        batchBinder.bind(iterator.next(), parameters);
+      } catch (RuntimeException runtimeException) {
+        throw runtimeException;
+      } catch (Exception exception) {
+        throw new SqlifyException("Ops. Could not bind row: " + exception.getMessage(), exception);
+      }
+    }
+
+    SqlifyBatched newSqlifyBatched(String sql) {
+      return new SqlifyBatched(sql, iterator, batchBinder);
+    }
+  }
+
+}
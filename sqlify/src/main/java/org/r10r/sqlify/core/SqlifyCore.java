@@ -7,32 +7,23 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.r10r.sqlify.SqlifyException;
 
 public final class SqlifyCore {
 
-  protected final static Pattern USER_PARAMETER_EXTRACTION_PATTERN = Pattern.compile("\\{(.*?)\\}");
-
-  protected final static String convertNamedParametersIntoJdbcCompliantPreparedStatement(String sqlWithNamedPlaceholers) {
-    return sqlWithNamedPlaceholers.replaceAll("\\{.*?\\}", "?");
-  }
-
-  protected final static List<String> extractParameterNames(String userSpecifiedSql) {
-    List<String> allParametersSorted = new ArrayList<>();
-
-    Matcher matcher = USER_PARAMETER_EXTRACTION_PATTERN.matcher(userSpecifiedSql);
-    while (matcher.find()) {
-      String name = matcher.group(1);
-      allParametersSorted.add(name);
-    }
-
-    return allParametersSorted;
+  /**
+   * Parses sql with named placeholders. The result is cached in the default
+   * {@link ParsedSqlCache}. Therefore it is cheap to call this method
+   * again and again with the same sql.
+   *
+   * @param userSpecifiedSql SQL with named parameters in curly braces.
+   * @return The parsed (and cached) sql.
+   */
+  public static ParsedSql parse(String userSpecifiedSql) {
+    return ParsedSqlCache.getDefault().get(userSpecifiedSql, SqlParser::parse);
   }
 
   protected final static PreparedStatement applyParameterMapToPreparedStatement(
@@ -43,44 +34,67 @@ public final class SqlifyCore {
       for (int i = 0; i < parametersInSqlSorted.size(); i++) {
         Object value = parameterMap.get(parametersInSqlSorted.get(i));
         int positionInPreparedStatement = i + 1; // jdbc parameters start with 1...
-
-        if (value instanceof BigDecimal) {
-          preparedStatement.setBigDecimal(positionInPreparedStatement, (BigDecimal) value);
-        } else if (value instanceof Boolean) {
-          preparedStatement.setBoolean(positionInPreparedStatement, (Boolean) value);
-        } else if (value instanceof Date) {
-          preparedStatement.setDate(positionInPreparedStatement, (Date) value);
-        } else if (value instanceof Double) {
-          preparedStatement.setDouble(positionInPreparedStatement, (Double) value);
-        } else if (value instanceof Float) {
-          preparedStatement.setFloat(positionInPreparedStatement, (Float) value);
-        } else if (value instanceof Integer) {
-          preparedStatement.setInt(positionInPreparedStatement, (Integer) value);
-        } else if (value instanceof Long) {
-          preparedStatement.setLong(positionInPreparedStatement, (Long) value);
-        } else if (value instanceof Short) {
-          preparedStatement.setShort(positionInPreparedStatement, (Short) value);
-        } else if (value instanceof String) {
-          preparedStatement.setString(positionInPreparedStatement, (String) value);
-        } else if (value instanceof Time) {
-          preparedStatement.setTime(positionInPreparedStatement, (Time) value);
-        } else if (value instanceof Timestamp) {
-          preparedStatement.setTimestamp(positionInPreparedStatement, (Timestamp) value);
-        } else if (value instanceof URL) {
-          preparedStatement.setURL(positionInPreparedStatement, (URL) value);
-        } else {
-          // Kind of a fallback. If you expect some other behavior feel
-          // free to implement it.
-          preparedStatement.setObject(positionInPreparedStatement, value);
-        }
+        applyParameter(preparedStatement, positionInPreparedStatement, value);
       }
     } catch (SQLException sqlException) {
       throw new SqlifyException("Ops. An error occurred. " + sqlException.getMessage(), sqlException);
     }
     return preparedStatement;
   }
-  
-  
+
+  /**
+   * Sets one value using the most specific setter of the PreparedStatement.
+   *
+   * @param preparedStatement The statement to set the value on.
+   * @param positionInPreparedStatement The jdbc position (starting with 1).
+   * @param value The value to set.
+   * @throws SQLException If the driver does not like the value.
+   */
+  public static void applyParameter(
+      PreparedStatement preparedStatement,
+      int positionInPreparedStatement,
+      Object value) throws SQLException {
+
+    if (value instanceof BigDecimal) {
+      preparedStatement.setBigDecimal(positionInPreparedStatement, (BigDecimal) value);
+    } else if (value instanceof Boolean) {
+      preparedStatement.setBoolean(positionInPreparedStatement, (Boolean) value);
+    } else if (value instanceof Date) {
+      preparedStatement.setDate(positionInPreparedStatement, (Date) value);
+    } else if (value instanceof Double) {
+      preparedStatement.setDouble(positionInPreparedStatement, (Double) value);
+    } else if (value instanceof Float) {
+      preparedStatement.setFloat(positionInPreparedStatement, (Float) value);
+    } else if (value instanceof Integer) {
+      preparedStatement.setInt(positionInPreparedStatement, (Integer) value);
+    } else if (value instanceof Long) {
+      preparedStatement.setLong(positionInPreparedStatement, (Long) value);
+    } else if (value instanceof Short) {
+      preparedStatement.setShort(positionInPreparedStatement, (Short) value);
+    } else if (value instanceof String) {
+      preparedStatement.setString(positionInPreparedStatement, (String) value);
+    } else if (value instanceof Time) {
+      preparedStatement.setTime(positionInPreparedStatement, (Time) value);
+    } else if (value instanceof Timestamp) {
+      preparedStatement.setTimestamp(positionInPreparedStatement, (Timestamp) value);
+    } else if (value instanceof URL) {
+      preparedStatement.setURL(positionInPreparedStatement, (URL) value);
+    } else {
+      // Kind of a fallback. If you expect some other behavior feel
+      // free to implement it.
+      preparedStatement.setObject(positionInPreparedStatement, value);
+    }
+  }
+
+  /**
+   * @param value A parameter value.
+   * @return true if the value is a Collection or an array other than byte[] -
+   * these are expanded inside of "IN (...)".
+   */
+  public static boolean isCollection(Object value) {
+    return CollectionParameters.isCollection(value);
+  }
+
   public static void verifyThatAllNeededParametersAreProvidedByUser(
       Map<String, Object> parameterMap, 
       List<String> parametersInSqlSorted) {
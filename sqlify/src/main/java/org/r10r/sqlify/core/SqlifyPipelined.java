@@ -0,0 +1,235 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.metrics.QueryExecution.Kind;
+import org.r10r.sqlify.resultparser.ResultParser;
+
+/**
+ * Sends several queries with one round trip: the jdbc sql of all queries is
+ * joined with ';' into one PreparedStatement, executed once and the results
+ * are read one after another via getMoreResults().
+ *
+ * The driver has to support more than one statement per PreparedStatement.
+ * pgjdbc does. MySQL needs allowMultiQueries=true.
+ */
+public final class SqlifyPipelined {
+
+  private final List<Query<?>> queries = new ArrayList<>();
+
+  /**
+   * @param userProvidedSqlWithPlaceholder SQL with named parameters in curly
+   * braces. Must be a single statement.
+   * @param resultParser Parses the ResultSet of the query. null for updates -
+   * their result is the number of changed lines.
+   * @param parameterMap The values of the placeholders.
+   * @return The index of the result of this query.
+   */
+  public int add(
+      String userProvidedSqlWithPlaceholder,
+      ResultParser<?> resultParser,
+      Map<String, Object> parameterMap) {
+    return add(userProvidedSqlWithPlaceholder, resultParser, parameterMap, false);
+  }
+
+  /**
+   * @param userProvidedSqlWithPlaceholder SQL with named parameters in curly
+   * braces. Must be a single statement.
+   * @param resultParser Parses the ResultSet of the query. null for updates -
+   * their result is the number of changed lines.
+   * @param parameterMap The values of the placeholders. Collections are
+   * expanded inside of "IN (...)".
+   * @param collectionsAsArrays Bind Collections as one sql array instead
+   * (Postgres).
+   * @return The index of the result of this query.
+   */
+  public int add(
+      String userProvidedSqlWithPlaceholder,
+      ResultParser<?> resultParser,
+      Map<String, Object> parameterMap,
+      boolean collectionsAsArrays) {
+    return add(userProvidedSqlWithPlaceholder, resultParser, parameterMap, collectionsAsArrays, null);
+  }
+
+  /**
+   * @param <E> The type the result parser returns.
+   * @param userProvidedSqlWithPlaceholder SQL with named parameters in curly
+   * braces. Must be a single statement.
+   * @param resultParser Parses the ResultSet of the query. null for updates -
+   * their result is the number of changed lines.
+   * @param parameterMap The values of the placeholders. Collections are
+   * expanded inside of "IN (...)".
+   * @param collectionsAsArrays Bind Collections as one sql array instead
+   * (Postgres).
+   * @param resultConsumer Gets the parsed result of a select as soon as it
+   * has been read. May be null.
+   * @return The index of the result of this query.
+   */
+  public <E> int add(
+      String userProvidedSqlWithPlaceholder,
+      ResultParser<E> resultParser,
+      Map<String, Object> parameterMap,
+      boolean collectionsAsArrays,
+      Consumer<? super E> resultConsumer) {
+
+    ParsedSql parsedSql = SqlifyCore.parse(userProvidedSqlWithPlaceholder);
+    SqlifyCore.verifyThatAllNeededParametersAreProvidedByUser(parameterMap, parsedSql.getParameterNames());
+    CollectionParameters collectionParameters = parsedSql.getCollectionParameters();
+    List<Integer> shape = collectionParameters.shapeOf(parameterMap, collectionsAsArrays);
+    queries.add(new Query<>(parsedSql, resultParser, resultConsumer, parameterMap, collectionParameters, shape));
+    return queries.size() - 1;
+  }
+
+  public int size() {
+    return queries.size();
+  }
+
+  String getJdbcSql() {
+    StringBuilder jdbcSql = new StringBuilder();
+    for (Query<?> query : queries) {
+      if (jdbcSql.length() > 0) {
+        jdbcSql.append(";\n");
+      }
+      jdbcSql.append(withoutTrailingSemicolonsAndComments(query.jdbcSql));
+    }
+    return jdbcSql.toString();
+  }
+
+  /**
+   * Trailing comments go as well - a '-- comment' would swallow the
+   * separator to the next query.
+   */
+  private static String withoutTrailingSemicolonsAndComments(String sql) {
+    return sql.substring(0, SqlParser.endOfStatement(sql));
+  }
+
+  /**
+   * Every query is reported to the QueryListener as its own execution. The
+   * first one carries the prepare and the round trip, the others the time
+   * to get and map their result.
+   *
+   * @param connection The connection to use.
+   * @return The results of all queries in the order they have been added.
+   * The parsed result for selects, the number of changed lines (Integer) for
+   * updates.
+   */
+  public List<Object> execute(Connection connection) {
+    if (queries.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    Query<?> query = queries.get(0);
+    QueryTimer queryTimer = query.startTimer();
+    Throwable failure = null;
+    try (PreparedStatement preparedStatement = connection.prepareStatement(getJdbcSql())) {
+      queryTimer.prepared();
+      int positionInPreparedStatement = 1; // jdbc parameters start with 1...
+      for (Query<?> queryToBind : queries) {
+        positionInPreparedStatement = queryToBind.collectionParameters.bind(
+            preparedStatement, positionInPreparedStatement, queryToBind.parameterMap, queryToBind.shape);
+      }
+
+      List<Object> results = new ArrayList<>(queries.size());
+      queryTimer.mark();
+      boolean isResultSet = preparedStatement.execute();
+      while (true) {
+        queryTimer.executed();
+        Object result = readResult(preparedStatement, isResultSet, query, results.size());
+        if (query.resultParser == null) {
+          queryTimer.addRows((Integer) result);
+        } else {
+          queryTimer.mapped(result);
+        }
+        results.add(result);
+        queryTimer.finish(null);
+        queryTimer = null;
+
+        if (results.size() == queries.size()) {
+          return results;
+        }
+        query = queries.get(results.size());
+        queryTimer = query.startTimer();
+        isResultSet = preparedStatement.getMoreResults();
+      }
+    } catch (SqlifyException sqlifyException) {
+      failure = sqlifyException;
+      throw sqlifyException;
+    } catch (Exception exception) {
+      failure = exception;
+      throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+    } finally {
+      // queries after a failure are not reported - they did not run
+      if (queryTimer != null) {
+        queryTimer.finish(failure);
+      }
+    }
+  }
+
+  private static <E> Object readResult(
+      PreparedStatement preparedStatement,
+      boolean isResultSet,
+      Query<E> query,
+      int index) throws Exception {
+
+    if (query.resultParser == null) {
+      if (isResultSet) {
+        throw new SqlifyException("Arg. Query " + index + " returned rows, but I don't know how to parse them. Please specify result parser. Query: " + query.parsedSql.getSql());
+      }
+      return preparedStatement.getUpdateCount();
+    }
+
+    if (!isResultSet) {
+      throw new SqlifyException("Ops. Query " + index + " did not return rows. Maybe the driver does not support more than one statement at once. Query: " + query.parsedSql.getSql());
+    }
+    try (ResultSet resultSet = preparedStatement.getResultSet()) {
+      E result = query.resultParser.parseResultSet(resultSet);
+      if (query.resultConsumer != null) {
+        query.resultConsumer.accept(result);
+      }
+      return result;
+    }
+  }
+
+  private static final class Query<E> {
+
+    private final ParsedSql parsedSql;
+    private final ResultParser<E> resultParser;
+    private final Consumer<? super E> resultConsumer;
+    private final Map<String, Object> parameterMap;
+    private final CollectionParameters collectionParameters;
+    private final List<Integer> shape;
+    private final String jdbcSql;
+
+    private Query(
+        ParsedSql parsedSql,
+        ResultParser<E> resultParser,
+        Consumer<? super E> resultConsumer,
+        Map<String, Object> parameterMap,
+        CollectionParameters collectionParameters,
+        List<Integer> shape) {
+      this.parsedSql = parsedSql;
+      this.resultParser = resultParser;
+      this.resultConsumer = resultConsumer;
+      this.parameterMap = parameterMap;
+      this.collectionParameters = collectionParameters;
+      this.shape = shape;
+      this.jdbcSql = collectionParameters.jdbcSqlFor(shape);
+    }
+
+    private QueryTimer startTimer() {
+      return QueryTimer.start(
+          parsedSql.getSql(),
+          resultParser == null ? Kind.UPDATE : Kind.SELECT,
+          parameterMap,
+          jdbcSql,
+          collectionParameters.binderFor(parameterMap, shape));
+    }
+  }
+
+}
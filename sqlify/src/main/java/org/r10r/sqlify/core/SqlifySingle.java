@@ -8,49 +8,143 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.metrics.QueryExecution.Kind;
+import org.r10r.sqlify.rowparser.RowConsumer;
+import org.r10r.sqlify.rowparser.RowParser;
 
 public final class SqlifySingle {
 
+  private final String sql;
   private final String sqlForJdbc;
   private final ResultParser<?> resultParser;
+  private final ParameterBinder parameterBinder;
   private final Map<String, Object> parameterMap;
-  private final List<String> parametersInSqlSorted;
 
   public SqlifySingle(
       String userProvidedSqlWithPlaceholder, 
       ResultParser<?> resultParser, 
       Map<String, Object> parameterMap) {
+    this(userProvidedSqlWithPlaceholder, resultParser, parameterMap, false);
+  }
+
+  /**
+   * Collection and array parameters inside of "IN (...)" are expanded to one
+   * '?' per value - rounded up to the next power of two. See
+   * {@link CollectionParameters}.
+   *
+   * @param userProvidedSqlWithPlaceholder SQL with named parameters in curly braces.
+   * @param resultParser The result parser (may be null for updates).
+   * @param parameterMap The values of the placeholders.
+   * @param collectionsAsArrays Bind Collections as one sql array instead
+   * (Postgres).
+   */
+  public SqlifySingle(
+      String userProvidedSqlWithPlaceholder, 
+      ResultParser<?> resultParser, 
+      Map<String, Object> parameterMap,
+      boolean collectionsAsArrays) {
+    this(SqlifyCore.parse(userProvidedSqlWithPlaceholder), resultParser, parameterMap, collectionsAsArrays);
+  }
+
+  /**
+   * Like {@link #SqlifySingle(String, ResultParser, Map, boolean)} - for sql
+   * that is already parsed.
+   *
+   * @param parsedSql The parsed sql.
+   * @param resultParser The result parser (may be null for updates).
+   * @param parameterMap The values of the placeholders.
+   * @param collectionsAsArrays Bind Collections as one sql array instead
+   * (Postgres).
+   */
+  public SqlifySingle(
+      ParsedSql parsedSql,
+      ResultParser<?> resultParser,
+      Map<String, Object> parameterMap,
+      boolean collectionsAsArrays) {
+    List<String> parametersInSqlSorted = parsedSql.getParameterNames();
+    
+    SqlifyCore.verifyThatAllNeededParametersAreProvidedByUser(parameterMap, parametersInSqlSorted);
+
     this.resultParser = resultParser;
+    this.sql = parsedSql.getSql();
+    if (CollectionParameters.containsCollection(parameterMap, parametersInSqlSorted)) {
+      CollectionParameters collectionParameters = parsedSql.getCollectionParameters();
+      List<Integer> shape = collectionParameters.shapeOf(parameterMap, collectionsAsArrays);
+      this.sqlForJdbc = collectionParameters.jdbcSqlFor(shape);
+      this.parameterBinder = collectionParameters.binderFor(parameterMap, shape);
+    } else {
+      this.sqlForJdbc = parsedSql.getJdbcSql();
+      this.parameterBinder = preparedStatement -> 
+          SqlifyCore.applyParameterMapToPreparedStatement(preparedStatement, parameterMap, parametersInSqlSorted);
+    }
     this.parameterMap = parameterMap;
-    this.parametersInSqlSorted = SqlifyCore.extractParameterNames(userProvidedSqlWithPlaceholder);
-    this.sqlForJdbc = SqlifyCore.convertNamedParametersIntoJdbcCompliantPreparedStatement(userProvidedSqlWithPlaceholder);
- 
-     SqlifyCore.verifyThatAllNeededParametersAreProvidedByUser(parameterMap, parametersInSqlSorted);
+  }
+
+  /**
+   * For callers that already parsed the sql and know how to bind the
+   * parameters. No parsing and no verification happens here.
+   *
+   * @param parsedSql The parsed sql.
+   * @param resultParser The result parser (may be null for updates).
+   * @param parameterBinder Sets all parameters of the statement.
+   */
+  public SqlifySingle(
+      ParsedSql parsedSql,
+      ResultParser<?> resultParser,
+      ParameterBinder parameterBinder) {
+    this.resultParser = resultParser;
+    this.sql = parsedSql.getSql();
+    this.sqlForJdbc = parsedSql.getJdbcSql();
+    this.parameterBinder = parameterBinder;
+    this.parameterMap = null;
   }
 
   public <T> T executeSelect(Connection connection) {
+    QueryTimer queryTimer = QueryTimer.start(sql, Kind.SELECT, parameterMap, sqlForJdbc, parameterBinder);
+    Throwable failure = null;
     try (PreparedStatement preparedStatement = connection.prepareStatement(sqlForJdbc)) {
-      SqlifyCore.applyParameterMapToPreparedStatement(preparedStatement, parameterMap, parametersInSqlSorted);
+      queryTimer.prepared();
+      parameterBinder.bind(preparedStatement);
       
+      queryTimer.mark();
       ResultSet resultSet = preparedStatement.executeQuery();
+      queryTimer.executed();
 
       T t = resultParser.parseResultSet(resultSet);
+      queryTimer.mapped(t);
       return t;
     } catch (Exception exception) {
+      failure = exception;
       throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+    } finally {
+      queryTimer.finish(failure);
     }
   }
 
   public int executeUpdate(Connection connection) {
+    QueryTimer queryTimer = QueryTimer.start(sql, Kind.UPDATE, parameterMap, sqlForJdbc, parameterBinder);
+    Throwable failure = null;
     try (PreparedStatement preparedStatement = connection.prepareStatement(sqlForJdbc)) {
+      queryTimer.prepared();
       
-      SqlifyCore.applyParameterMapToPreparedStatement(preparedStatement, parameterMap, parametersInSqlSorted);
+      parameterBinder.bind(preparedStatement);
         
+      queryTimer.mark();
       int numberOfChangedLines = preparedStatement.executeUpdate();
+      queryTimer.executed();
+      queryTimer.addRows(numberOfChangedLines);
       return numberOfChangedLines;
     } catch (SQLException sqlException) {
+      failure = sqlException;
       throw new SqlifyException("Ops. Something strange happened:  " + sqlException.getMessage(), sqlException);
+    } finally {
+      queryTimer.finish(failure);
     }
   }
   
@@ -60,19 +154,181 @@ public final class SqlifySingle {
       throw new SqlifyException("Arg. I don't know how to parse the generated key. Please specify result parser. Example: '.parseResultWith(SingleResultParser.of(Long.class))'");
     }
     
+    QueryTimer queryTimer = QueryTimer.start(sql, Kind.UPDATE_RETURNING_KEYS, parameterMap, sqlForJdbc, parameterBinder);
+    Throwable failure = null;
     try (PreparedStatement preparedStatement = connection.prepareStatement(
           sqlForJdbc, 
           Statement.RETURN_GENERATED_KEYS)) {
+      queryTimer.prepared();
       
-      SqlifyCore.applyParameterMapToPreparedStatement(preparedStatement, parameterMap, parametersInSqlSorted);
+      parameterBinder.bind(preparedStatement);
       
-      preparedStatement.executeUpdate();
+      queryTimer.mark();
+      queryTimer.addRows(preparedStatement.executeUpdate());
+      queryTimer.executed();
       ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
-      return resultParser.parseResultSet(generatedKeys);
+      T t = resultParser.parseResultSet(generatedKeys);
+      queryTimer.mapped();
+      return t;
     } catch (Exception exception) {
+      failure = exception;
       throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+    } finally {
+      queryTimer.finish(failure);
     }
     
   }
+
+  /**
+   * Executes a select and streams the rows. Only 'fetchSize' rows are held
+   * in memory by the driver at any time. The statement is created forward
+   * only and read only.
+   *
+   * Needs a connection with autocommit turned off. Otherwise Postgres does
+   * not use a cursor and ignores 'fetchSize' - all rows would end up in
+   * memory.
+   *
+   * @param connection The connection to use for this query.
+   * @param rowParser Parses each row.
+   * @param fetchSize The number of rows the driver fetches at once.
+   * @return A stream of all rows. Must be closed to release the statement.
+   */
+  public <T> Stream<T> executeStream(Connection connection, RowParser<T> rowParser, int fetchSize) {
+    verifyThatStreamingIsPossible(connection);
+    QueryTimer queryTimer = QueryTimer.start(sql, Kind.STREAM, parameterMap, sqlForJdbc, parameterBinder);
+    PreparedStatement preparedStatement = null;
+    try {
+      preparedStatement = prepareStatementForStreaming(connection, fetchSize, queryTimer);
+      ResultSet resultSet = executeQuery(preparedStatement, queryTimer);
+      RowParser<T> rowParserForResultSet = rowParser.forResultSet(resultSet);
+
+      PreparedStatement statementToClose = preparedStatement;
+      Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+          Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+          try {
+            if (!resultSet.next()) {
+              return false;
+            }
+            action.accept(rowParserForResultSet.parse(resultSet));
+            queryTimer.addRows(1);
+            return true;
+          } catch (SqlifyException sqlifyException) {
+            throw sqlifyException;
+          } catch (Exception exception) {
+            throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+          }
+        }
+      };
+
+      // the execution is reported when the stream is closed - rows are
+      // mapped while the caller consumes them, so there is no mapping phase
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        try {
+          try {
+            resultSet.close();
+          } finally {
+            statementToClose.close();
+          }
+        } catch (SQLException sqlException) {
+          throw new SqlifyException("Ops. Could not close statement: " + sqlException.getMessage(), sqlException);
+        } finally {
+          queryTimer.finish(null);
+        }
+      });
+    } catch (Exception exception) {
+      closeQuietly(preparedStatement);
+      queryTimer.finish(exception);
+      throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+    }
+  }
+
+  /**
+   * Executes a select and hands the rows to the consumer one by one. Same as
+   * {@link #executeStream(Connection, RowParser, int)}, but closes the
+   * statement itself. Needs a connection with autocommit turned off, too.
+   *
+   * @param connection The connection to use for this query.
+   * @param rowParser Parses each row.
+   * @param fetchSize The number of rows the driver fetches at once.
+   * @param rowConsumer Receives each parsed row.
+   * @return The number of rows.
+   */
+  public <T> long executeForEach(
+      Connection connection,
+      RowParser<T> rowParser,
+      int fetchSize,
+      RowConsumer<T> rowConsumer) {
+    verifyThatStreamingIsPossible(connection);
+    QueryTimer queryTimer = QueryTimer.start(sql, Kind.STREAM, parameterMap, sqlForJdbc, parameterBinder);
+    Throwable failure = null;
+    try (PreparedStatement preparedStatement = prepareStatementForStreaming(connection, fetchSize, queryTimer);
+        ResultSet resultSet = executeQuery(preparedStatement, queryTimer)) {
+
+      RowParser<T> rowParserForResultSet = rowParser.forResultSet(resultSet);
+      long numberOfRows = 0;
+      while (resultSet.next()) {
+        rowConsumer.accept(rowParserForResultSet.parse(resultSet));
+        numberOfRows++;
+      }
+      // includes the time spent in the consumer
+      queryTimer.mapped();
+      queryTimer.addRows(numberOfRows);
+      return numberOfRows;
+    } catch (Exception exception) {
+      failure = exception;
+      throw new SqlifyException("Ops. Something strange happened: " + exception.getMessage(), exception);
+    } finally {
+      queryTimer.finish(failure);
+    }
+  }
+
+  private static void verifyThatStreamingIsPossible(Connection connection) {
+    try {
+      if (connection.getAutoCommit()) {
+        throw new SqlifyException("Ops. Streaming needs a connection with autocommit turned off - otherwise the driver ignores the fetch size and reads all rows at once. Use database.withTransaction(...) or database.withConnection(false, ...) for instance.");
+      }
+    } catch (SQLException sqlException) {
+      throw new SqlifyException("Ops. Something strange happened " + sqlException, sqlException);
+    }
+  }
+
+  private static ResultSet executeQuery(PreparedStatement preparedStatement, QueryTimer queryTimer) throws SQLException {
+    queryTimer.mark();
+    ResultSet resultSet = preparedStatement.executeQuery();
+    queryTimer.executed();
+    return resultSet;
+  }
+
+  private PreparedStatement prepareStatementForStreaming(
+      Connection connection, 
+      int fetchSize, 
+      QueryTimer queryTimer) throws SQLException {
+    PreparedStatement preparedStatement = connection.prepareStatement(
+        sqlForJdbc, 
+        ResultSet.TYPE_FORWARD_ONLY, 
+        ResultSet.CONCUR_READ_ONLY);
+    queryTimer.prepared();
+    try {
+      preparedStatement.setFetchSize(fetchSize);
+      parameterBinder.bind(preparedStatement);
+      return preparedStatement;
+    } catch (SQLException | RuntimeException exception) {
+      closeQuietly(preparedStatement);
+      throw exception;
+    }
+  }
+
+  private static void closeQuietly(Statement statement) {
+    if (statement == null) {
+      return;
+    }
+    try {
+      statement.close();
+    } catch (SQLException sqlException) {
+      // we are already handling another exception.
+    }
+  }
   
 }
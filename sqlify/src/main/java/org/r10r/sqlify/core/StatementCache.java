@@ -0,0 +1,363 @@
+package org.r10r.sqlify.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a LRU cache of PreparedStatements for each physical connection.
+ *
+ * Use {@link #wrap(Connection)} to get a connection whose
+ * prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) methods
+ * return cached statements. Closing such a statement does not close it, but
+ * clears its parameters, restores its query timeout, max rows and fetch
+ * size and returns it to the cache. All other ways to create statements
+ * are not cached.
+ *
+ * Lifecycle rules:
+ * <ul>
+ * <li>Statements are prepared on the physical connection (see
+ * {@link Connection#unwrap(Class)}). Therefore they survive when a pooled
+ * connection is returned to the pool and are reused the next time the pool
+ * hands out the same physical connection.</li>
+ * <li>When the physical connection is closed (eg because the pool retires
+ * it) the driver closes all its statements. The cache of that connection is
+ * dropped the next time a new physical connection shows up.</li>
+ * <li>Without a pool every connection is physically closed after use. The
+ * cache then only helps for statements executed more than once on the same
+ * connection.</li>
+ * <li>If a statement is still in use (eg a ResultSet of it is still open) and
+ * the same sql is prepared again, a new, uncached statement is returned.</li>
+ * <li>Evicted statements are closed as soon as they are not in use
+ * anymore.</li>
+ * </ul>
+ */
+public final class StatementCache {
+
+  private final int maximumStatementsPerConnection;
+  private final Map<Connection, ConnectionCache> connectionCaches = new IdentityHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public StatementCache(int maximumStatementsPerConnection) {
+    if (maximumStatementsPerConnection < 1) {
+      throw new IllegalArgumentException("The statement cache must hold at least 1 statement per connection, but was " + maximumStatementsPerConnection);
+    }
+    this.maximumStatementsPerConnection = maximumStatementsPerConnection;
+  }
+
+  /**
+   * @param connection The connection as handed out by the DataSource.
+   * @return A connection that uses the cache when preparing statements.
+   * @throws SQLException If the physical connection cannot be determined.
+   */
+  public Connection wrap(Connection connection) throws SQLException {
+    Connection physicalConnection = connection.isWrapperFor(Connection.class)
+        ? connection.unwrap(Connection.class)
+        : connection;
+
+    return (Connection) Proxy.newProxyInstance(
+        StatementCache.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        new CachingConnectionHandler(connection, connectionCacheFor(physicalConnection)));
+  }
+
+  private synchronized ConnectionCache connectionCacheFor(Connection physicalConnection) {
+    ConnectionCache connectionCache = connectionCaches.get(physicalConnection);
+    if (connectionCache == null) {
+      removeCachesOfClosedConnections();
+      connectionCache = new ConnectionCache(physicalConnection);
+      connectionCaches.put(physicalConnection, connectionCache);
+    }
+    return connectionCache;
+  }
+
+  private void removeCachesOfClosedConnections() {
+    for (Iterator<ConnectionCache> iterator = connectionCaches.values().iterator(); iterator.hasNext();) {
+      ConnectionCache connectionCache = iterator.next();
+      if (connectionCache.isPhysicalConnectionClosed()) {
+        iterator.remove();
+        connectionCache.clear();
+      }
+    }
+  }
+
+  /**
+   * @return The number of physical connections that currently have a cache.
+   */
+  public synchronized int getNumberOfConnections() {
+    return connectionCaches.size();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return hits / (hits + misses) or 0 if nothing has been prepared yet.
+   */
+  public double getHitRate() {
+    long hitCount = getHitCount();
+    long total = hitCount + getMissCount();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private static void closeQuietly(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException sqlException) {
+      // nothing we can do. The connection is likely gone anyway.
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException invocationTargetException) {
+      throw invocationTargetException.getCause();
+    }
+  }
+
+  /**
+   * The statements of one physical connection. A connection is only used by
+   * one thread at a time. This class is still synchronized so that it never
+   * breaks if that rule is violated.
+   */
+  private final class ConnectionCache {
+
+    private final Connection physicalConnection;
+    private final Map<Key, CachedStatement> statements;
+
+    private ConnectionCache(Connection physicalConnection) {
+      this.physicalConnection = physicalConnection;
+      this.statements = new LinkedHashMap<Key, CachedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+          if (size() <= maximumStatementsPerConnection) {
+            return false;
+          }
+          evictions.increment();
+          eldest.getValue().evict();
+          return true;
+        }
+      };
+    }
+
+    private boolean isPhysicalConnectionClosed() {
+      try {
+        return physicalConnection.isClosed();
+      } catch (SQLException sqlException) {
+        return true;
+      }
+    }
+
+    private synchronized void clear() {
+      statements.values().forEach(CachedStatement::evict);
+      statements.clear();
+    }
+
+    private synchronized PreparedStatement prepare(
+        Connection logicalConnection,
+        String sql,
+        int autoGeneratedKeys) throws SQLException {
+
+      Key key = new Key(sql, autoGeneratedKeys);
+      CachedStatement cachedStatement = statements.get(key);
+
+      if (cachedStatement != null && cachedStatement.statement.isClosed()) {
+        statements.remove(key);
+        cachedStatement = null;
+      }
+
+      if (cachedStatement == null) {
+        misses.increment();
+        cachedStatement = new CachedStatement(physicalConnection.prepareStatement(sql, autoGeneratedKeys));
+        statements.put(key, cachedStatement);
+      } else if (cachedStatement.inUse) {
+        // eg a nested query with the same sql while the ResultSet is still open.
+        misses.increment();
+        return physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+      } else {
+        hits.increment();
+      }
+
+      cachedStatement.inUse = true;
+      return (PreparedStatement) Proxy.newProxyInstance(
+          StatementCache.class.getClassLoader(),
+          new Class<?>[]{PreparedStatement.class},
+          new HandedOutStatementHandler(cachedStatement, logicalConnection, this));
+    }
+
+    private synchronized void giveBack(CachedStatement cachedStatement) {
+      cachedStatement.inUse = false;
+      if (cachedStatement.evicted) {
+        closeQuietly(cachedStatement.statement);
+        return;
+      }
+      try {
+        ResultSet resultSet = cachedStatement.statement.getResultSet();
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        cachedStatement.statement.clearParameters();
+        cachedStatement.statement.clearBatch();
+        cachedStatement.restoreSettings();
+      } catch (SQLException sqlException) {
+        // the statement is broken. Don't use it again.
+        statements.values().remove(cachedStatement);
+        closeQuietly(cachedStatement.statement);
+      }
+    }
+  }
+
+  private static final class Key {
+
+    private final String sql;
+    private final int autoGeneratedKeys;
+
+    private Key(String sql, int autoGeneratedKeys) {
+      this.sql = sql;
+      this.autoGeneratedKeys = autoGeneratedKeys;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return autoGeneratedKeys == key.autoGeneratedKeys && sql.equals(key.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sql, autoGeneratedKeys);
+    }
+  }
+
+  private static final class CachedStatement {
+
+    private final PreparedStatement statement;
+    // as prepared - the next user must not inherit the settings of the last one
+    private final int queryTimeout;
+    private final int maxRows;
+    private final int fetchSize;
+    private boolean inUse;
+    private boolean evicted;
+
+    private CachedStatement(PreparedStatement statement) throws SQLException {
+      this.statement = statement;
+      this.queryTimeout = statement.getQueryTimeout();
+      this.maxRows = statement.getMaxRows();
+      this.fetchSize = statement.getFetchSize();
+    }
+
+    private void restoreSettings() throws SQLException {
+      if (statement.getQueryTimeout() != queryTimeout) {
+        statement.setQueryTimeout(queryTimeout);
+      }
+      if (statement.getMaxRows() != maxRows) {
+        statement.setMaxRows(maxRows);
+      }
+      if (statement.getFetchSize() != fetchSize) {
+        statement.setFetchSize(fetchSize);
+      }
+    }
+
+    private void evict() {
+      evicted = true;
+      if (!inUse) {
+        closeQuietly(statement);
+      }
+    }
+  }
+
+  private static final class CachingConnectionHandler implements InvocationHandler {
+
+    private final Connection connection;
+    private final ConnectionCache connectionCache;
+
+    private CachingConnectionHandler(Connection connection, ConnectionCache connectionCache) {
+      this.connection = connection;
+      this.connectionCache = connectionCache;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("prepareStatement")) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 1) {
+          return connectionCache.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+        }
+        if (parameterTypes.length == 2 && parameterTypes[1] == int.class) {
+          return connectionCache.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+        }
+      }
+      return StatementCache.invoke(connection, method, args);
+    }
+  }
+
+  private static final class HandedOutStatementHandler implements InvocationHandler {
+
+    private final CachedStatement cachedStatement;
+    private final Connection logicalConnection;
+    private final ConnectionCache connectionCache;
+    private boolean closed;
+
+    private HandedOutStatementHandler(
+        CachedStatement cachedStatement,
+        Connection logicalConnection,
+        ConnectionCache connectionCache) {
+      this.cachedStatement = cachedStatement;
+      this.logicalConnection = logicalConnection;
+      this.connectionCache = connectionCache;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            connectionCache.giveBack(cachedStatement);
+          }
+          return null;
+        case "isClosed":
+          return closed || cachedStatement.statement.isClosed();
+        case "getConnection":
+          return logicalConnection;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          if (closed) {
+            throw new SQLException("Ops. This statement has already been closed.");
+          }
+          return StatementCache.invoke(cachedStatement.statement, method, args);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values with a fixed memory
+ * footprint - similar to HdrHistogram.
+ *
+ * Values below 32 are counted exactly. Larger values are counted in buckets
+ * of 16 per power of two - so any recorded value is reported with an error
+ * of at most 1/16 (6.25%). Values above 2^40 are counted as 2^40.
+ */
+public final class Histogram {
+
+  private static final int EXACT_VALUES = 32;
+  private static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final long MAXIMUM_VALUE = 1L << 40;
+  static final int NUMBER_OF_BUCKETS = indexOf(MAXIMUM_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void record(long value) {
+    long clamped = Math.max(0, Math.min(value, MAXIMUM_VALUE));
+    counts.incrementAndGet(indexOf(clamped));
+    sum.add(clamped);
+    max.accumulate(clamped);
+  }
+
+  static int indexOf(long value) {
+    if (value < EXACT_VALUES) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    return EXACT_VALUES + (exponent - 5) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return The highest value that is counted in the bucket.
+   */
+  static long highestValueOf(int index) {
+    if (index < EXACT_VALUES) {
+      return index;
+    }
+    int exponent = 5 + (index - EXACT_VALUES) / SUB_BUCKETS;
+    long subBucket = SUB_BUCKETS + (index - EXACT_VALUES) % SUB_BUCKETS;
+    return ((subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  /**
+   * @return The counts as of now. Values recorded while taking the snapshot
+   * may or may not be part of it.
+   */
+  public HistogramSnapshot snapshot() {
+    long[] bucketCounts = new long[NUMBER_OF_BUCKETS];
+    long total = 0;
+    for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+      bucketCounts[index] = counts.get(index);
+      total += bucketCounts[index];
+    }
+    return new HistogramSnapshot(bucketCounts, total, sum.sum(), max.get());
+  }
+
+  /**
+   * Forgets all recorded values. Values recorded while resetting may or may
+   * not survive it.
+   */
+  public void reset() {
+    for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+      counts.set(index, 0);
+    }
+    sum.reset();
+    max.reset();
+  }
+
+}
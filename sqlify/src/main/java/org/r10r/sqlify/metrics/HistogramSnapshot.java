@@ -0,0 +1,65 @@
+package org.r10r.sqlify.metrics;
+
+/**
+ * The immutable state of a {@link Histogram} at some point in time.
+ */
+public final class HistogramSnapshot {
+
+  private final long[] bucketCounts;
+  private final long count;
+  private final long sum;
+  private final long max;
+
+  HistogramSnapshot(long[] bucketCounts, long count, long sum, long max) {
+    this.bucketCounts = bucketCounts;
+    this.count = count;
+    this.sum = sum;
+    this.max = max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * @param percentile Between 0 and 100. For instance 99.9
+   * @return The value below or at which 'percentile' percent of all values
+   * are. 0 if nothing has been recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+    long seen = 0;
+    for (int index = 0; index < bucketCounts.length; index++) {
+      seen += bucketCounts[index];
+      if (seen >= rank) {
+        return Math.min(Histogram.highestValueOf(index), max);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count
+        + ", mean=" + Math.round(getMean())
+        + ", p50=" + getValueAtPercentile(50)
+        + ", p99=" + getValueAtPercentile(99)
+        + ", max=" + max;
+  }
+
+}
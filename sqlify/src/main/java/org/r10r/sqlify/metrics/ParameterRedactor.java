@@ -0,0 +1,57 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.Locale;
+
+/**
+ * Decides what the {@link SlowQueryLog} shows for the value of a
+ * placeholder.
+ */
+@FunctionalInterface
+public interface ParameterRedactor {
+
+  String REDACTED = "***";
+
+  /**
+   * @param name The name of the placeholder.
+   * @param value The value as bound to the statement.
+   * @return What to log instead of the value.
+   */
+  Object redact(String name, Object value);
+
+  /**
+   * @return A redactor that shows all values as they are.
+   */
+  static ParameterRedactor none() {
+    return (name, value) -> value;
+  }
+
+  /**
+   * @return A redactor that hides all values.
+   */
+  static ParameterRedactor all() {
+    return (name, value) -> REDACTED;
+  }
+
+  /**
+   * @param fragments Parts of placeholder names. Case insensitive. For
+   * instance "password", "token".
+   * @return A redactor that hides the values of placeholders whose name
+   * contains one of the fragments.
+   */
+  static ParameterRedactor namesContaining(String... fragments) {
+    String[] lowerCaseFragments = new String[fragments.length];
+    for (int i = 0; i < fragments.length; i++) {
+      lowerCaseFragments[i] = fragments[i].toLowerCase(Locale.ROOT);
+    }
+    return (name, value) -> {
+      String lowerCaseName = name.toLowerCase(Locale.ROOT);
+      for (String fragment : lowerCaseFragments) {
+        if (lowerCaseName.contains(fragment)) {
+          return REDACTED;
+        }
+      }
+      return value;
+    };
+  }
+
+}
@@ -0,0 +1,161 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import org.r10r.sqlify.core.ParameterBinder;
+
+/**
+ * What happened during one execution of a query or a batch.
+ *
+ * The phases do not add up to the total: binding parameters and everything
+ * in between is only part of the total.
+ */
+public final class QueryExecution {
+
+  public enum Kind {
+    SELECT,
+    UPDATE,
+    UPDATE_RETURNING_KEYS,
+    STREAM,
+    BATCH
+  }
+
+  private final String sql;
+  private final Kind kind;
+  private final Map<String, Object> parameters;
+  private final long prepareNanos;
+  private final long executeNanos;
+  private final long mappingNanos;
+  private final long totalNanos;
+  private final long rows;
+  private final long batchSize;
+  private final Throwable failure;
+  private final String jdbcSql;
+  private final ParameterBinder parameterBinder;
+
+  public QueryExecution(
+      String sql,
+      Kind kind,
+      Map<String, Object> parameters,
+      long prepareNanos,
+      long executeNanos,
+      long mappingNanos,
+      long totalNanos,
+      long rows,
+      long batchSize,
+      Throwable failure) {
+    this(sql, kind, parameters, prepareNanos, executeNanos, mappingNanos, totalNanos, rows, batchSize, failure, null, null);
+  }
+
+  public QueryExecution(
+      String sql,
+      Kind kind,
+      Map<String, Object> parameters,
+      long prepareNanos,
+      long executeNanos,
+      long mappingNanos,
+      long totalNanos,
+      long rows,
+      long batchSize,
+      Throwable failure,
+      String jdbcSql,
+      ParameterBinder parameterBinder) {
+    this.sql = sql;
+    this.kind = kind;
+    this.parameters = parameters == null ? Collections.emptyMap() : parameters;
+    this.prepareNanos = prepareNanos;
+    this.executeNanos = executeNanos;
+    this.mappingNanos = mappingNanos;
+    this.totalNanos = totalNanos;
+    this.rows = rows;
+    this.batchSize = batchSize;
+    this.failure = failure;
+    this.jdbcSql = jdbcSql;
+    this.parameterBinder = parameterBinder;
+  }
+
+  /**
+   * @return The sql as provided by the user. Including named placeholders.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return The values of the placeholders. Empty for batches. Do not
+   * modify.
+   */
+  public Map<String, Object> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return Time spent in Connection.prepareStatement.
+   */
+  public long getPrepareNanos() {
+    return prepareNanos;
+  }
+
+  /**
+   * @return Time spent in execute, executeQuery, executeUpdate or
+   * executeBatch.
+   */
+  public long getExecuteNanos() {
+    return executeNanos;
+  }
+
+  /**
+   * @return Time spent parsing the ResultSet (ResultParser, RowParser).
+   */
+  public long getMappingNanos() {
+    return mappingNanos;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * @return Rows returned (selects) or affected (updates). For a select
+   * parsed into a Collection its size, 0 or 1 for Optionals and 1 for any
+   * other single result.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @return The number of rows of a batch. 0 if this was not a batch.
+   */
+  public long getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return The exception that made the query fail or null.
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  /**
+   * @return The sql that was sent to the driver - with Collections expanded
+   * - or null if unknown.
+   */
+  public String getJdbcSql() {
+    return jdbcSql;
+  }
+
+  /**
+   * @return Binds the same values to {@link #getJdbcSql()} again or null if
+   * unknown. Not available for batches.
+   */
+  public ParameterBinder getParameterBinder() {
+    return parameterBinder;
+  }
+
+}
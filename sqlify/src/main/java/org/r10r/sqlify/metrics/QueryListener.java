@@ -0,0 +1,44 @@
+package org.r10r.sqlify.metrics;
+
+/**
+ * Gets notified about everything Sqlify does with the database. Install it
+ * via {@link QueryListeners#add(QueryListener)}.
+ *
+ * Listeners are called on the thread that executes the query - keep them
+ * fast. Exceptions thrown by a listener are ignored.
+ */
+public interface QueryListener {
+
+  /**
+   * @param nanos The time Database spent waiting for a connection of the
+   * DataSource.
+   */
+  default void onConnectionAcquired(long nanos) {
+  }
+
+  /**
+   * A nested block joined the connection of an outer block instead of
+   * acquiring one. See Database.withConnectionReuse().
+   */
+  default void onConnectionReused() {
+  }
+
+  /**
+   * A transaction failed and is about to be repeated. See
+   * Database.withRetryPolicy(...).
+   *
+   * @param sqlState The SQLState of the failure.
+   * @param attempt The attempt that failed. Starts with 1.
+   * @param wastedNanos The time of the failed attempt plus the backoff.
+   */
+  default void onTransactionRetried(String sqlState, int attempt, long wastedNanos) {
+  }
+
+  /**
+   * @param queryExecution The timings and row counts of one query (or one
+   * batch) - successful or not.
+   */
+  default void onQueryExecuted(QueryExecution queryExecution) {
+  }
+
+}
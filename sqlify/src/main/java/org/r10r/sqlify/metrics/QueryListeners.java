@@ -0,0 +1,116 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.Arrays;
+
+/**
+ * The listeners Sqlify notifies - shared by all queries of the jvm.
+ *
+ * <pre>
+ * QueryMetrics queryMetrics = new QueryMetrics();
+ * QueryListeners.add(queryMetrics);
+ * ...
+ * queryMetrics.snapshot();
+ * </pre>
+ *
+ * Without listeners Sqlify does not measure anything. The only overhead is
+ * reading one volatile field per query.
+ */
+public final class QueryListeners {
+
+  private static final QueryListener[] NONE = new QueryListener[0];
+
+  private static volatile QueryListener[] listeners = NONE;
+  private static volatile QueryListener current = null;
+
+  private QueryListeners() {
+  }
+
+  public static synchronized void add(QueryListener queryListener) {
+    QueryListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+    added[listeners.length] = queryListener;
+    update(added);
+  }
+
+  public static synchronized void remove(QueryListener queryListener) {
+    update(Arrays.stream(listeners)
+        .filter(listener -> listener != queryListener)
+        .toArray(QueryListener[]::new));
+  }
+
+  public static synchronized void clear() {
+    update(NONE);
+  }
+
+  private static void update(QueryListener[] updated) {
+    listeners = updated;
+    if (updated.length == 0) {
+      current = null;
+    } else if (updated.length == 1) {
+      current = updated[0];
+    } else {
+      current = new CompositeQueryListener(updated);
+    }
+  }
+
+  /**
+   * @return The listener that notifies all installed listeners or null if
+   * there are none.
+   */
+  public static QueryListener get() {
+    return current;
+  }
+
+  private static final class CompositeQueryListener implements QueryListener {
+
+    private final QueryListener[] listeners;
+
+    private CompositeQueryListener(QueryListener[] listeners) {
+      this.listeners = listeners;
+    }
+
+    @Override
+    public void onConnectionAcquired(long nanos) {
+      for (QueryListener listener : listeners) {
+        try {
+          listener.onConnectionAcquired(nanos);
+        } catch (RuntimeException runtimeException) {
+          // a broken listener must not break the other listeners or the query
+        }
+      }
+    }
+
+    @Override
+    public void onConnectionReused() {
+      for (QueryListener listener : listeners) {
+        try {
+          listener.onConnectionReused();
+        } catch (RuntimeException runtimeException) {
+          // a broken listener must not break the other listeners or the query
+        }
+      }
+    }
+
+    @Override
+    public void onTransactionRetried(String sqlState, int attempt, long wastedNanos) {
+      for (QueryListener listener : listeners) {
+        try {
+          listener.onTransactionRetried(sqlState, attempt, wastedNanos);
+        } catch (RuntimeException runtimeException) {
+          // a broken listener must not break the other listeners or the query
+        }
+      }
+    }
+
+    @Override
+    public void onQueryExecuted(QueryExecution queryExecution) {
+      for (QueryListener listener : listeners) {
+        try {
+          listener.onQueryExecuted(queryExecution);
+        } catch (RuntimeException runtimeException) {
+          // a broken listener must not break the other listeners or the query
+        }
+      }
+    }
+  }
+
+}
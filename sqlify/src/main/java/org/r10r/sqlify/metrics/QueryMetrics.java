@@ -0,0 +1,275 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects latency histograms, row counts and batch sizes per sql template
+ * in memory. Recording is lock-free.
+ *
+ * <pre>
+ * QueryMetrics queryMetrics = new QueryMetrics();
+ * QueryListeners.add(queryMetrics);
+ * ...
+ * for (Map.Entry&lt;String, QueryMetrics.TemplateSnapshot&gt; entry : queryMetrics.snapshot().getTemplates().entrySet()) {
+ *   log.info("{}: {}", entry.getKey(), entry.getValue().getTotalMicros());
+ * }
+ * </pre>
+ *
+ * Latencies are recorded in microseconds. At most 'maximumTemplates'
+ * templates are tracked separately - all others are counted as
+ * {@link #OTHER_TEMPLATES}. That keeps the memory bounded if an application
+ * builds sql dynamically.
+ */
+public final class QueryMetrics implements QueryListener {
+
+  public static final int DEFAULT_MAXIMUM_TEMPLATES = 1000;
+  public static final String OTHER_TEMPLATES = "(other)";
+
+  private final int maximumTemplates;
+  private final Map<String, TemplateMetrics> templates = new ConcurrentHashMap<>();
+  private final Histogram connectionAcquisitionMicros = new Histogram();
+  private final LongAdder connectionReuses = new LongAdder();
+  private final Map<String, LongAdder> transactionRetries = new ConcurrentHashMap<>();
+  private final Histogram transactionRetryWastedMicros = new Histogram();
+
+  public QueryMetrics() {
+    this(DEFAULT_MAXIMUM_TEMPLATES);
+  }
+
+  public QueryMetrics(int maximumTemplates) {
+    if (maximumTemplates < 1) {
+      throw new IllegalArgumentException("The maximum number of templates must be at least 1, but was " + maximumTemplates);
+    }
+    this.maximumTemplates = maximumTemplates;
+  }
+
+  @Override
+  public void onConnectionAcquired(long nanos) {
+    connectionAcquisitionMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  @Override
+  public void onConnectionReused() {
+    connectionReuses.increment();
+  }
+
+  @Override
+  public void onTransactionRetried(String sqlState, int attempt, long wastedNanos) {
+    transactionRetries.computeIfAbsent(sqlState, s -> new LongAdder()).increment();
+    transactionRetryWastedMicros.record(TimeUnit.NANOSECONDS.toMicros(wastedNanos));
+  }
+
+  @Override
+  public void onQueryExecuted(QueryExecution queryExecution) {
+    templateMetricsFor(queryExecution.getSql()).record(queryExecution);
+  }
+
+  private TemplateMetrics templateMetricsFor(String sql) {
+    TemplateMetrics templateMetrics = templates.get(sql);
+    if (templateMetrics != null) {
+      return templateMetrics;
+    }
+    String key = templates.size() < maximumTemplates ? sql : OTHER_TEMPLATES;
+    return templates.computeIfAbsent(key, k -> new TemplateMetrics());
+  }
+
+  /**
+   * @return The metrics as of now. Recording goes on while taking it.
+   */
+  public Snapshot snapshot() {
+    Map<String, TemplateSnapshot> templateSnapshots = new LinkedHashMap<>();
+    templates.forEach((sql, templateMetrics) -> templateSnapshots.put(sql, templateMetrics.snapshot()));
+    Map<String, Long> transactionRetriesBySqlState = new LinkedHashMap<>();
+    transactionRetries.forEach((sqlState, retries) -> transactionRetriesBySqlState.put(sqlState, retries.sum()));
+    return new Snapshot(
+        connectionAcquisitionMicros.snapshot(),
+        connectionReuses.sum(),
+        Collections.unmodifiableMap(transactionRetriesBySqlState),
+        transactionRetryWastedMicros.snapshot(),
+        Collections.unmodifiableMap(templateSnapshots));
+  }
+
+  /**
+   * Forgets everything recorded so far.
+   */
+  public void reset() {
+    templates.clear();
+    connectionAcquisitionMicros.reset();
+    connectionReuses.reset();
+    transactionRetries.clear();
+    transactionRetryWastedMicros.reset();
+  }
+
+  private static final class TemplateMetrics {
+
+    private final LongAdder failures = new LongAdder();
+    private final Histogram totalMicros = new Histogram();
+    private final Histogram prepareMicros = new Histogram();
+    private final Histogram executeMicros = new Histogram();
+    private final Histogram mappingMicros = new Histogram();
+    private final Histogram rows = new Histogram();
+    private final Histogram batchSizes = new Histogram();
+
+    private void record(QueryExecution queryExecution) {
+      if (queryExecution.getFailure() != null) {
+        failures.increment();
+      }
+      totalMicros.record(TimeUnit.NANOSECONDS.toMicros(queryExecution.getTotalNanos()));
+      prepareMicros.record(TimeUnit.NANOSECONDS.toMicros(queryExecution.getPrepareNanos()));
+      executeMicros.record(TimeUnit.NANOSECONDS.toMicros(queryExecution.getExecuteNanos()));
+      mappingMicros.record(TimeUnit.NANOSECONDS.toMicros(queryExecution.getMappingNanos()));
+      rows.record(queryExecution.getRows());
+      if (queryExecution.getKind() == QueryExecution.Kind.BATCH) {
+        batchSizes.record(queryExecution.getBatchSize());
+      }
+    }
+
+    private TemplateSnapshot snapshot() {
+      return new TemplateSnapshot(
+          failures.sum(),
+          totalMicros.snapshot(),
+          prepareMicros.snapshot(),
+          executeMicros.snapshot(),
+          mappingMicros.snapshot(),
+          rows.snapshot(),
+          batchSizes.snapshot());
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final HistogramSnapshot connectionAcquisitionMicros;
+    private final long connectionReuses;
+    private final Map<String, Long> transactionRetries;
+    private final HistogramSnapshot transactionRetryWastedMicros;
+    private final Map<String, TemplateSnapshot> templates;
+
+    private Snapshot(
+        HistogramSnapshot connectionAcquisitionMicros,
+        long connectionReuses,
+        Map<String, Long> transactionRetries,
+        HistogramSnapshot transactionRetryWastedMicros,
+        Map<String, TemplateSnapshot> templates) {
+      this.connectionAcquisitionMicros = connectionAcquisitionMicros;
+      this.connectionReuses = connectionReuses;
+      this.transactionRetries = transactionRetries;
+      this.transactionRetryWastedMicros = transactionRetryWastedMicros;
+      this.templates = templates;
+    }
+
+    /**
+     * @return Time spent waiting for the DataSource in Database.
+     */
+    public HistogramSnapshot getConnectionAcquisitionMicros() {
+      return connectionAcquisitionMicros;
+    }
+
+    /**
+     * @return How often a nested block joined an outer connection instead
+     * of waiting for the DataSource.
+     */
+    public long getConnectionReuses() {
+      return connectionReuses;
+    }
+
+    /**
+     * @return The number of repeated transactions per SQLState.
+     */
+    public Map<String, Long> getTransactionRetries() {
+      return transactionRetries;
+    }
+
+    /**
+     * @return Time spent in failed attempts and backoff per retry.
+     */
+    public HistogramSnapshot getTransactionRetryWastedMicros() {
+      return transactionRetryWastedMicros;
+    }
+
+    /**
+     * @return The metrics of each sql template (as provided by the user).
+     */
+    public Map<String, TemplateSnapshot> getTemplates() {
+      return templates;
+    }
+  }
+
+  /**
+   * The metrics of one sql template. See {@link QueryExecution} for the
+   * phases.
+   */
+  public static final class TemplateSnapshot {
+
+    private final long failures;
+    private final HistogramSnapshot totalMicros;
+    private final HistogramSnapshot prepareMicros;
+    private final HistogramSnapshot executeMicros;
+    private final HistogramSnapshot mappingMicros;
+    private final HistogramSnapshot rows;
+    private final HistogramSnapshot batchSizes;
+
+    private TemplateSnapshot(
+        long failures,
+        HistogramSnapshot totalMicros,
+        HistogramSnapshot prepareMicros,
+        HistogramSnapshot executeMicros,
+        HistogramSnapshot mappingMicros,
+        HistogramSnapshot rows,
+        HistogramSnapshot batchSizes) {
+      this.failures = failures;
+      this.totalMicros = totalMicros;
+      this.prepareMicros = prepareMicros;
+      this.executeMicros = executeMicros;
+      this.mappingMicros = mappingMicros;
+      this.rows = rows;
+      this.batchSizes = batchSizes;
+    }
+
+    /**
+     * @return The number of executions - successful or not.
+     */
+    public long getCount() {
+      return totalMicros.getCount();
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public HistogramSnapshot getTotalMicros() {
+      return totalMicros;
+    }
+
+    public HistogramSnapshot getPrepareMicros() {
+      return prepareMicros;
+    }
+
+    public HistogramSnapshot getExecuteMicros() {
+      return executeMicros;
+    }
+
+    public HistogramSnapshot getMappingMicros() {
+      return mappingMicros;
+    }
+
+    /**
+     * @return Rows returned or affected per execution.
+     */
+    public HistogramSnapshot getRows() {
+      return rows;
+    }
+
+    /**
+     * @return Rows per batch. Only recorded for batches.
+     */
+    public HistogramSnapshot getBatchSizes() {
+      return batchSizes;
+    }
+  }
+
+}
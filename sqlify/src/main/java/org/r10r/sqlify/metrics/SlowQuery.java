@@ -0,0 +1,90 @@
+package org.r10r.sqlify.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A query that took longer than the threshold of the {@link SlowQueryLog}.
+ */
+public final class SlowQuery {
+
+  private final QueryExecution queryExecution;
+  private final Map<String, Object> redactedParameters;
+  private final long suppressedBefore;
+  private final String explainPlan;
+
+  SlowQuery(
+      QueryExecution queryExecution,
+      Map<String, Object> redactedParameters,
+      long suppressedBefore,
+      String explainPlan) {
+    this.queryExecution = queryExecution;
+    this.redactedParameters = redactedParameters;
+    this.suppressedBefore = suppressedBefore;
+    this.explainPlan = explainPlan;
+  }
+
+  /**
+   * @return The timings and row counts. Note: its parameters are not
+   * redacted.
+   */
+  public QueryExecution getQueryExecution() {
+    return queryExecution;
+  }
+
+  /**
+   * @return The parameters after redaction.
+   */
+  public Map<String, Object> getRedactedParameters() {
+    return redactedParameters;
+  }
+
+  /**
+   * @return The number of slow queries that have not been logged since the
+   * last logged one because of the rate limit.
+   */
+  public long getSuppressedBefore() {
+    return suppressedBefore;
+  }
+
+  /**
+   * @return The output of EXPLAIN (ANALYZE, BUFFERS) or null if not
+   * captured.
+   */
+  public String getExplainPlan() {
+    return explainPlan;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder message = new StringBuilder()
+        .append("Slow ").append(queryExecution.getKind())
+        .append(" took ").append(millis(queryExecution.getTotalNanos())).append(" ms")
+        .append(" (prepare ").append(millis(queryExecution.getPrepareNanos()))
+        .append(" ms, execute ").append(millis(queryExecution.getExecuteNanos()))
+        .append(" ms, mapping ").append(millis(queryExecution.getMappingNanos()))
+        .append(" ms, rows ").append(queryExecution.getRows());
+    if (queryExecution.getBatchSize() > 0) {
+      message.append(", batch size ").append(queryExecution.getBatchSize());
+    }
+    message.append("): ").append(queryExecution.getSql());
+    if (!redactedParameters.isEmpty()) {
+      message.append(" with ").append(redactedParameters);
+    }
+    if (queryExecution.getFailure() != null) {
+      message.append(" failed with ").append(queryExecution.getFailure());
+    }
+    if (suppressedBefore > 0) {
+      message.append(" (").append(suppressedBefore).append(" slow queries suppressed before)");
+    }
+    if (explainPlan != null) {
+      message.append('\n').append(explainPlan);
+    }
+    return message.toString();
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+}
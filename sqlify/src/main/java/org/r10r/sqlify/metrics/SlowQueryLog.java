@@ -0,0 +1,249 @@
+package org.r10r.sqlify.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.r10r.sqlify.core.ParsedSql;
+import org.r10r.sqlify.core.SqlifyCore;
+
+/**
+ * Logs queries that take longer than a threshold - including their
+ * parameters and how the time was spent:
+ *
+ * <pre>
+ * QueryListeners.add(SlowQueryLog.withThreshold(200, TimeUnit.MILLISECONDS)
+ *     .withRedactor(ParameterRedactor.namesContaining("password", "token"))
+ *     .withMaximumPerSecond(10));
+ * </pre>
+ *
+ * Fast queries cost one comparison. Slow queries are logged at most
+ * 'maximumPerSecond' times per second, the others are only counted and
+ * reported with the next logged one.
+ *
+ * By default slow queries are logged via java.util.logging (logger
+ * "org.r10r.sqlify.metrics.SlowQueryLog", level WARNING). Use
+ * {@link #withSink(Consumer)} to hand them to your own logging.
+ *
+ * Instances are thread-safe. The with... methods return new instances -
+ * each with its own rate limit.
+ */
+public final class SlowQueryLog implements QueryListener {
+
+  public static final int DEFAULT_MAXIMUM_PER_SECOND = 10;
+
+  private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+  private static final Set<QueryExecution.Kind> EXPLAINABLE_KINDS
+      = EnumSet.of(QueryExecution.Kind.SELECT, QueryExecution.Kind.STREAM);
+
+  private final long thresholdNanos;
+  private final ParameterRedactor parameterRedactor;
+  private final int maximumPerSecond;
+  private final Consumer<SlowQuery> sink;
+  private final DataSource explainDataSource;
+  private final ThreadPoolExecutor explainExecutor;
+
+  private long currentSecond;
+  private int loggedInCurrentSecond;
+  private long suppressed;
+
+  private SlowQueryLog(
+      long thresholdNanos,
+      ParameterRedactor parameterRedactor,
+      int maximumPerSecond,
+      Consumer<SlowQuery> sink,
+      DataSource explainDataSource) {
+    this.thresholdNanos = thresholdNanos;
+    this.parameterRedactor = parameterRedactor;
+    this.maximumPerSecond = maximumPerSecond;
+    this.sink = sink;
+    this.explainDataSource = explainDataSource;
+    this.explainExecutor = explainDataSource == null ? null : createExplainExecutor();
+  }
+
+  /**
+   * @param threshold Queries that take at least that long are logged.
+   * @param timeUnit The unit of the threshold.
+   * @return A slow query log that shows all parameters.
+   */
+  public static SlowQueryLog withThreshold(long threshold, TimeUnit timeUnit) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("The threshold must not be negative, but was " + threshold);
+    }
+    return new SlowQueryLog(
+        timeUnit.toNanos(threshold),
+        ParameterRedactor.none(),
+        DEFAULT_MAXIMUM_PER_SECOND,
+        slowQuery -> LOGGER.log(Level.WARNING, slowQuery.toString()),
+        null);
+  }
+
+  /**
+   * @param parameterRedactor Decides what is logged for each parameter.
+   * @return A new SlowQueryLog. The current one is not changed.
+   */
+  public SlowQueryLog withRedactor(ParameterRedactor parameterRedactor) {
+    return new SlowQueryLog(thresholdNanos, parameterRedactor, maximumPerSecond, sink, explainDataSource);
+  }
+
+  /**
+   * @param maximumPerSecond The maximum number of slow queries logged per
+   * second.
+   * @return A new SlowQueryLog. The current one is not changed.
+   */
+  public SlowQueryLog withMaximumPerSecond(int maximumPerSecond) {
+    if (maximumPerSecond < 1) {
+      throw new IllegalArgumentException("The maximum per second must be at least 1, but was " + maximumPerSecond);
+    }
+    return new SlowQueryLog(thresholdNanos, parameterRedactor, maximumPerSecond, sink, explainDataSource);
+  }
+
+  /**
+   * @param sink Receives the slow queries instead of java.util.logging.
+   * @return A new SlowQueryLog. The current one is not changed.
+   */
+  public SlowQueryLog withSink(Consumer<SlowQuery> sink) {
+    return new SlowQueryLog(thresholdNanos, parameterRedactor, maximumPerSecond, sink, explainDataSource);
+  }
+
+  /**
+   * Runs EXPLAIN (ANALYZE, BUFFERS) for slow selects on PostgreSQL and adds
+   * the plan to the log entry. Note that ANALYZE executes the query once
+   * more. Therefore it is only done for selects, not for updates or
+   * batches. The plan is for the sql and the values the query was executed
+   * with - including expanded IN lists.
+   *
+   * The explain runs on a connection of the given DataSource in a
+   * background thread - one at a time. Slow queries that arrive while the
+   * queue is full are logged without plan. The sink is then called from
+   * that background thread.
+   *
+   * @param dataSource Provides the connections for EXPLAIN.
+   * @return A new SlowQueryLog. The current one is not changed.
+   */
+  public SlowQueryLog withExplainAnalyze(DataSource dataSource) {
+    return new SlowQueryLog(thresholdNanos, parameterRedactor, maximumPerSecond, sink, dataSource);
+  }
+
+  @Override
+  public void onQueryExecuted(QueryExecution queryExecution) {
+    if (queryExecution.getTotalNanos() < thresholdNanos) {
+      return;
+    }
+    long suppressedBefore = tryAcquire();
+    if (suppressedBefore < 0) {
+      return;
+    }
+
+    Map<String, Object> redactedParameters = redact(queryExecution.getParameters());
+    if (explainExecutor != null && isExplainable(queryExecution)) {
+      try {
+        explainExecutor.execute(() -> sink.accept(new SlowQuery(
+            queryExecution, redactedParameters, suppressedBefore, explain(queryExecution))));
+        return;
+      } catch (RuntimeException rejected) {
+        // queue is full - log without plan
+      }
+    }
+    sink.accept(new SlowQuery(queryExecution, redactedParameters, suppressedBefore, null));
+  }
+
+  /**
+   * @return The number of slow queries suppressed before this one or -1 if
+   * this one has to be suppressed as well.
+   */
+  private synchronized long tryAcquire() {
+    long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    if (second != currentSecond) {
+      currentSecond = second;
+      loggedInCurrentSecond = 0;
+    }
+    if (loggedInCurrentSecond >= maximumPerSecond) {
+      suppressed++;
+      return -1;
+    }
+    loggedInCurrentSecond++;
+    long suppressedBefore = suppressed;
+    suppressed = 0;
+    return suppressedBefore;
+  }
+
+  private Map<String, Object> redact(Map<String, Object> parameters) {
+    if (parameters.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Object> redactedParameters = new LinkedHashMap<>();
+    parameters.forEach((name, value) -> redactedParameters.put(name, parameterRedactor.redact(name, value)));
+    return Collections.unmodifiableMap(redactedParameters);
+  }
+
+  /**
+   * Only successful selects whose parameters can be bound again - via the
+   * binder of the execution or by name.
+   */
+  private static boolean isExplainable(QueryExecution queryExecution) {
+    return EXPLAINABLE_KINDS.contains(queryExecution.getKind())
+        && queryExecution.getFailure() == null
+        && (queryExecution.getParameterBinder() != null
+            || !queryExecution.getParameters().isEmpty()
+            || SqlifyCore.parse(queryExecution.getSql()).getParameterCount() == 0);
+  }
+
+  private String explain(QueryExecution queryExecution) {
+    try (Connection connection = explainDataSource.getConnection()) {
+      if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+        return null;
+      }
+      // the same sql and binder as the query - Collections are expanded the same way
+      ParsedSql parsedSql = SqlifyCore.parse(queryExecution.getSql());
+      String jdbcSql = queryExecution.getJdbcSql() != null ? queryExecution.getJdbcSql() : parsedSql.getJdbcSql();
+      try (PreparedStatement preparedStatement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + jdbcSql)) {
+        if (queryExecution.getParameterBinder() != null) {
+          queryExecution.getParameterBinder().bind(preparedStatement);
+        } else {
+          List<String> parameterNames = parsedSql.getParameterNames();
+          for (int i = 0; i < parameterNames.size(); i++) {
+            SqlifyCore.applyParameter(preparedStatement, i + 1, queryExecution.getParameters().get(parameterNames.get(i)));
+          }
+        }
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          while (resultSet.next()) {
+            if (plan.length() > 0) {
+              plan.append('\n');
+            }
+            plan.append(resultSet.getString(1));
+          }
+        }
+        return plan.toString();
+      }
+    } catch (Exception exception) {
+      return "Could not explain: " + exception.getMessage();
+    }
+  }
+
+  private static ThreadPoolExecutor createExplainExecutor() {
+    return new ThreadPoolExecutor(
+        0, 1, 30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(16),
+        runnable -> {
+          Thread thread = new Thread(runnable, "sqlify-explain");
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+}
@@ -0,0 +1,166 @@
+package org.r10r.sqlify.resultparser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * A read-only table stored column by column. Created by
+ * {@link ColumnarResultParser}.
+ *
+ * Columns are numbered from 0 in the order of the select. Depending on its
+ * {@link ColumnType} a column is stored as
+ * <ul>
+ * <li>LONG: long[] - see {@link #getLongs(int)}</li>
+ * <li>DOUBLE: double[] - see {@link #getDoubles(int)}</li>
+ * <li>STRING: int[] codes into a String[] dictionary - see
+ * {@link #getStringCodes(int)} and {@link #getStringDictionary(int)}</li>
+ * <li>OBJECT: Object[] - see {@link #getObjects(int)}</li>
+ * </ul>
+ *
+ * The arrays are returned without copying them and have exactly
+ * {@link #getRowCount()} elements. Do not modify them.
+ *
+ * Null values are stored as 0, 0.0, code -1 or null and marked in a bitmap
+ * per column: row i is null if bit (i &amp; 63) of word (i &gt;&gt; 6) is set.
+ */
+public final class ColumnarResult {
+
+  public enum ColumnType {
+    LONG,
+    DOUBLE,
+    STRING,
+    OBJECT
+  }
+
+  private static final long[] NO_NULLS = new long[0];
+
+  private final int rowCount;
+  private final List<String> columnNames;
+  private final ColumnType[] columnTypes;
+  private final Object[] values;
+  private final String[][] dictionaries;
+  private final long[][] nullBitmaps;
+
+  ColumnarResult(
+      int rowCount,
+      List<String> columnNames,
+      ColumnType[] columnTypes,
+      Object[] values,
+      String[][] dictionaries,
+      long[][] nullBitmaps) {
+    this.rowCount = rowCount;
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.columnTypes = columnTypes;
+    this.values = values;
+    this.dictionaries = dictionaries;
+    this.nullBitmaps = nullBitmaps;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columnTypes.length;
+  }
+
+  /**
+   * @return The column labels as returned by the driver.
+   */
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * @param columnName The column label (case insensitive).
+   * @return The index of the column.
+   */
+  public int indexOf(String columnName) {
+    for (int column = 0; column < columnNames.size(); column++) {
+      if (columnNames.get(column).equalsIgnoreCase(columnName)) {
+        return column;
+      }
+    }
+    throw new SqlifyException("Ops. There is no column '" + columnName + "'. Columns are: " + columnNames);
+  }
+
+  public ColumnType getColumnType(int column) {
+    return columnTypes[column];
+  }
+
+  public long[] getLongs(int column) {
+    return (long[]) valuesOf(column, ColumnType.LONG);
+  }
+
+  public double[] getDoubles(int column) {
+    return (double[]) valuesOf(column, ColumnType.DOUBLE);
+  }
+
+  /**
+   * @param column The index of a STRING column.
+   * @return One index into {@link #getStringDictionary(int)} per row. -1 for
+   * null.
+   */
+  public int[] getStringCodes(int column) {
+    return (int[]) valuesOf(column, ColumnType.STRING);
+  }
+
+  /**
+   * @param column The index of a STRING column.
+   * @return The distinct values of the column in the order they appeared.
+   */
+  public String[] getStringDictionary(int column) {
+    valuesOf(column, ColumnType.STRING);
+    return dictionaries[column];
+  }
+
+  public Object[] getObjects(int column) {
+    return (Object[]) valuesOf(column, ColumnType.OBJECT);
+  }
+
+  /**
+   * @param column The index of a STRING or OBJECT column.
+   * @param row The row.
+   * @return The value. Decodes the dictionary for STRING columns.
+   */
+  public String getString(int column, int row) {
+    if (columnTypes[column] == ColumnType.STRING) {
+      int code = getStringCodes(column)[row];
+      return code < 0 ? null : dictionaries[column][code];
+    }
+    Object value = getObjects(column)[row];
+    return value == null ? null : value.toString();
+  }
+
+  /**
+   * @param column The column.
+   * @return The null bitmap of the column. Empty if the column has no null.
+   */
+  public long[] getNullBitmap(int column) {
+    long[] nullBitmap = nullBitmaps[column];
+    return nullBitmap == null ? NO_NULLS : nullBitmap;
+  }
+
+  public boolean isNull(int column, int row) {
+    long[] nullBitmap = nullBitmaps[column];
+    int word = row >> 6;
+    return nullBitmap != null
+        && word < nullBitmap.length
+        && (nullBitmap[word] & (1L << row)) != 0;
+  }
+
+  private Object valuesOf(int column, ColumnType columnType) {
+    if (columnTypes[column] != columnType) {
+      throw new SqlifyException("Ops. Column '" + columnNames.get(column) + "' is " + columnTypes[column] + ", not " + columnType + ".");
+    }
+    return values[column];
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnarResult{rows=" + rowCount + ", columns=" + columnNames + ", types=" + Arrays.toString(columnTypes) + "}";
+  }
+
+}
@@ -0,0 +1,308 @@
+package org.r10r.sqlify.resultparser;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.resultparser.ColumnarResult.ColumnType;
+
+/**
+ * Reads a whole ResultSet column by column into a {@link ColumnarResult} -
+ * no object per row and no boxing for numbers. Meant for wide results that
+ * are aggregated right away:
+ *
+ * <pre>
+ * ColumnarResult report = Sqlify.sql("SELECT country, visits, revenue FROM report")
+ *     .parseResultWith(ColumnarResultParser.of())
+ *     .executeSelect(connection);
+ * long[] visits = report.getLongs(report.indexOf("visits"));
+ * </pre>
+ *
+ * The ResultSetMetaData is read once. The type of each column follows its
+ * sql type:
+ * <ul>
+ * <li>BIGINT, INTEGER, SMALLINT, TINYINT: LONG</li>
+ * <li>DOUBLE, FLOAT, REAL: DOUBLE</li>
+ * <li>CHAR, VARCHAR, LONGVARCHAR, NCHAR, NVARCHAR, LONGNVARCHAR: STRING
+ * (dictionary encoded)</li>
+ * <li>everything else - including NUMERIC and DECIMAL: OBJECT</li>
+ * </ul>
+ *
+ * Use {@link #withColumnType(String, ColumnType)} to override it - for
+ * instance to read a NUMERIC sum as DOUBLE, or a string column with mostly
+ * distinct values as OBJECT.
+ */
+public final class ColumnarResultParser implements ResultParser<ColumnarResult> {
+
+  public static final int DEFAULT_EXPECTED_ROWS = 16;
+
+  private final Map<String, ColumnType> columnTypeOverrides;
+  private final int expectedRows;
+
+  private ColumnarResultParser(Map<String, ColumnType> columnTypeOverrides, int expectedRows) {
+    this.columnTypeOverrides = columnTypeOverrides;
+    this.expectedRows = expectedRows;
+  }
+
+  public static ColumnarResultParser of() {
+    return new ColumnarResultParser(Collections.emptyMap(), DEFAULT_EXPECTED_ROWS);
+  }
+
+  /**
+   * @param columnName The column label (case insensitive).
+   * @param columnType The type to use instead of the one derived from the
+   * sql type.
+   * @return A new parser. The current one is not changed.
+   */
+  public ColumnarResultParser withColumnType(String columnName, ColumnType columnType) {
+    Map<String, ColumnType> newOverrides = new HashMap<>(columnTypeOverrides);
+    newOverrides.put(columnName.toLowerCase(Locale.ROOT), columnType);
+    return new ColumnarResultParser(newOverrides, expectedRows);
+  }
+
+  /**
+   * @param expectedRows The number of rows the query most likely returns.
+   * All columns are allocated with that size right away.
+   * @return A new parser. The current one is not changed.
+   */
+  public ColumnarResultParser withExpectedRows(int expectedRows) {
+    if (expectedRows < 0) {
+      throw new SqlifyException("Ops. The expected number of rows must not be negative, but was " + expectedRows);
+    }
+    return new ColumnarResultParser(columnTypeOverrides, expectedRows);
+  }
+
+  @Override
+  public ColumnarResult parseResultSet(ResultSet resultSet) throws Exception {
+    ResultSetMetaData metaData = resultSet.getMetaData();
+    int columnCount = metaData.getColumnCount();
+    List<String> columnNames = new ArrayList<>(columnCount);
+    Column[] columns = new Column[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      String columnName = metaData.getColumnLabel(i + 1);
+      columnNames.add(columnName);
+      ColumnType columnType = columnTypeOverrides.get(columnName.toLowerCase(Locale.ROOT));
+      if (columnType == null) {
+        columnType = columnTypeOf(metaData.getColumnType(i + 1));
+      }
+      columns[i] = Column.of(columnType, i + 1, expectedRows);
+    }
+
+    int row = 0;
+    while (resultSet.next()) {
+      for (Column column : columns) {
+        column.read(resultSet, row);
+      }
+      row++;
+    }
+
+    ColumnType[] columnTypes = new ColumnType[columnCount];
+    Object[] values = new Object[columnCount];
+    String[][] dictionaries = new String[columnCount][];
+    long[][] nullBitmaps = new long[columnCount][];
+    for (int i = 0; i < columnCount; i++) {
+      columnTypes[i] = columns[i].columnType;
+      values[i] = columns[i].values(row);
+      dictionaries[i] = columns[i].dictionary();
+      nullBitmaps[i] = columns[i].nullBitmap;
+    }
+    return new ColumnarResult(row, columnNames, columnTypes, values, dictionaries, nullBitmaps);
+  }
+
+  static ColumnType columnTypeOf(int sqlType) {
+    switch (sqlType) {
+      case Types.BIGINT:
+      case Types.INTEGER:
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return ColumnType.LONG;
+      case Types.DOUBLE:
+      case Types.FLOAT:
+      case Types.REAL:
+        return ColumnType.DOUBLE;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return ColumnType.STRING;
+      default:
+        return ColumnType.OBJECT;
+    }
+  }
+
+  /**
+   * Collects the values of one column while the rows are read.
+   */
+  private abstract static class Column {
+
+    final ColumnType columnType;
+    final int index;
+    long[] nullBitmap;
+
+    Column(ColumnType columnType, int index) {
+      this.columnType = columnType;
+      this.index = index;
+    }
+
+    static Column of(ColumnType columnType, int index, int expectedRows) {
+      switch (columnType) {
+        case LONG:
+          return new LongColumn(index, expectedRows);
+        case DOUBLE:
+          return new DoubleColumn(index, expectedRows);
+        case STRING:
+          return new StringColumn(index, expectedRows);
+        default:
+          return new ObjectColumn(index, expectedRows);
+      }
+    }
+
+    abstract void read(ResultSet resultSet, int row) throws Exception;
+
+    /**
+     * @param rowCount The number of rows read.
+     * @return The values - trimmed to rowCount.
+     */
+    abstract Object values(int rowCount);
+
+    String[] dictionary() {
+      return null;
+    }
+
+    void markNull(int row) {
+      int word = row >> 6;
+      if (nullBitmap == null) {
+        nullBitmap = new long[word + 1];
+      } else if (word >= nullBitmap.length) {
+        nullBitmap = Arrays.copyOf(nullBitmap, Math.max(word + 1, nullBitmap.length * 2));
+      }
+      nullBitmap[word] |= 1L << row;
+    }
+  }
+
+  private static final class LongColumn extends Column {
+
+    private long[] values;
+
+    LongColumn(int index, int expectedRows) {
+      super(ColumnType.LONG, index);
+      this.values = new long[expectedRows];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int row) throws Exception {
+      values = GrowingArrays.ensureCapacity(values, row);
+      long value = resultSet.getLong(index);
+      // the driver returns 0 for null - wasNull() is only needed then
+      if (value == 0L && resultSet.wasNull()) {
+        markNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    Object values(int rowCount) {
+      return GrowingArrays.trim(values, rowCount);
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+
+    private double[] values;
+
+    DoubleColumn(int index, int expectedRows) {
+      super(ColumnType.DOUBLE, index);
+      this.values = new double[expectedRows];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int row) throws Exception {
+      values = GrowingArrays.ensureCapacity(values, row);
+      double value = resultSet.getDouble(index);
+      if (value == 0.0 && resultSet.wasNull()) {
+        markNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    Object values(int rowCount) {
+      return GrowingArrays.trim(values, rowCount);
+    }
+  }
+
+  private static final class StringColumn extends Column {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int[] values;
+
+    StringColumn(int index, int expectedRows) {
+      super(ColumnType.STRING, index);
+      this.values = new int[expectedRows];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int row) throws Exception {
+      values = GrowingArrays.ensureCapacity(values, row);
+      String value = resultSet.getString(index);
+      if (value == null) {
+        markNull(row);
+        values[row] = -1;
+        return;
+      }
+      Integer code = codes.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        codes.put(value, code);
+        dictionary.add(value);
+      }
+      values[row] = code;
+    }
+
+    @Override
+    Object values(int rowCount) {
+      return GrowingArrays.trim(values, rowCount);
+    }
+
+    @Override
+    String[] dictionary() {
+      return dictionary.toArray(new String[dictionary.size()]);
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+
+    private Object[] values;
+
+    ObjectColumn(int index, int expectedRows) {
+      super(ColumnType.OBJECT, index);
+      this.values = new Object[expectedRows];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int row) throws Exception {
+      values = GrowingArrays.ensureCapacity(values, row);
+      Object value = resultSet.getObject(index);
+      if (value == null) {
+        markNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    Object values(int rowCount) {
+      return GrowingArrays.trim(values, rowCount);
+    }
+  }
+
+}
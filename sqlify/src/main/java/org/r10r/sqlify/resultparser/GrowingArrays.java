@@ -0,0 +1,69 @@
+package org.r10r.sqlify.resultparser;
+
+import java.util.Arrays;
+
+/**
+ * The grow-and-trim of the arrays the primitive result parsers collect their
+ * rows in. Arrays grow by half of their size (at least to
+ * {@link #MINIMUM_CAPACITY}) and are trimmed once at the end - unless the
+ * expected number of rows was exact.
+ */
+final class GrowingArrays {
+
+  static final int MINIMUM_CAPACITY = 16;
+
+  private GrowingArrays() {
+  }
+
+  /**
+   * @param capacity The current capacity.
+   * @return The next capacity.
+   */
+  static int grow(int capacity) {
+    return Math.max(MINIMUM_CAPACITY, capacity + (capacity >> 1));
+  }
+
+  /**
+   * @param values The array.
+   * @param size The number of used elements - the index of the next one.
+   * @return The array itself or a larger copy if it is full.
+   */
+  static long[] ensureCapacity(long[] values, int size) {
+    return size < values.length ? values : Arrays.copyOf(values, grow(size));
+  }
+
+  static int[] ensureCapacity(int[] values, int size) {
+    return size < values.length ? values : Arrays.copyOf(values, grow(size));
+  }
+
+  static double[] ensureCapacity(double[] values, int size) {
+    return size < values.length ? values : Arrays.copyOf(values, grow(size));
+  }
+
+  static Object[] ensureCapacity(Object[] values, int size) {
+    return size < values.length ? values : Arrays.copyOf(values, grow(size));
+  }
+
+  /**
+   * @param values The array.
+   * @param size The number of used elements.
+   * @return The array itself if it is full, otherwise a copy of the used
+   * elements.
+   */
+  static long[] trim(long[] values, int size) {
+    return size == values.length ? values : Arrays.copyOf(values, size);
+  }
+
+  static int[] trim(int[] values, int size) {
+    return size == values.length ? values : Arrays.copyOf(values, size);
+  }
+
+  static double[] trim(double[] values, int size) {
+    return size == values.length ? values : Arrays.copyOf(values, size);
+  }
+
+  static Object[] trim(Object[] values, int size) {
+    return size == values.length ? values : Arrays.copyOf(values, size);
+  }
+
+}
@@ -34,11 +34,26 @@ public class ListResultParser<T> implements ResultParser<List<T>> {
   @Override
   public List<T> parseResultSet(ResultSet resultSet) throws Exception {
     List<T> list = new ArrayList<>();
+    RowParser<T> rowParserForResultSet = rowParser.forResultSet(resultSet);
     while (resultSet.next()) {
-      T t = rowParser.parse(resultSet);
+      T t = rowParserForResultSet.parse(resultSet);
       list.add(t);
     }
     return list;
   }
 
+  /**
+   * Parsers of the same row parser are equal - see ResultCache.
+   */
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof ListResultParser
+        && rowParser.equals(((ListResultParser<?>) object).rowParser);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * ListResultParser.class.hashCode() + rowParser.hashCode();
+  }
+
 }
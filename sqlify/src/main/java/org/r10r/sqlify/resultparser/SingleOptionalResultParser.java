@@ -34,7 +34,7 @@ public class SingleOptionalResultParser<T> implements ResultParser<Optional<T>>
   public Optional<T> parseResultSet(ResultSet resultSet) throws Exception {
     Optional<T> optional;
     if (resultSet.next()) {
-      T t = rowParser.parse(resultSet);
+      T t = rowParser.forResultSet(resultSet).parse(resultSet);
       optional = Optional.of(t);
     } else {
       optional = Optional.empty();
@@ -42,4 +42,18 @@ public class SingleOptionalResultParser<T> implements ResultParser<Optional<T>>
     return optional;
   }
 
+  /**
+   * Parsers of the same row parser are equal - see ResultCache.
+   */
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof SingleOptionalResultParser
+        && rowParser.equals(((SingleOptionalResultParser<?>) object).rowParser);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * SingleOptionalResultParser.class.hashCode() + rowParser.hashCode();
+  }
+
 }
@@ -33,10 +33,24 @@ public class SingleResultParser<T> implements ResultParser<T> {
   @Override
   public T parseResultSet(ResultSet resultSet) throws Exception {
     if (resultSet.next()) {
-      return rowParser.parse(resultSet);
+      return rowParser.forResultSet(resultSet).parse(resultSet);
     } else {
       throw new SqlifyException("Ops. Could not parse single result, or there was no result.");
     }
   }
 
+  /**
+   * Parsers of the same row parser are equal - see ResultCache.
+   */
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof SingleResultParser
+        && rowParser.equals(((SingleResultParser<?>) object).rowParser);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * SingleResultParser.class.hashCode() + rowParser.hashCode();
+  }
+
 }
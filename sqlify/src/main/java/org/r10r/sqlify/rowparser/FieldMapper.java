@@ -0,0 +1,452 @@
+package org.r10r.sqlify.rowparser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Copies one column of the current row into one field of a Pojo.
+ *
+ * Mappers are created once per field by the {@link PojoRowParser}. Fields of
+ * primitive type get a specialized mapper that reads and sets the primitive
+ * value without boxing it.
+ *
+ * A mapper reads its column by label. Once the columns of a ResultSet are
+ * known {@link #withColumnIndex(int)} creates a mapper that reads the column
+ * by index - which is much cheaper for most drivers.
+ */
+abstract class FieldMapper {
+
+  private static final MethodHandle FIELD_SET;
+
+  static {
+    try {
+      FIELD_SET = MethodHandles.lookup().findVirtual(
+          Field.class, "set", MethodType.methodType(void.class, Object.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException exception) {
+      throw new ExceptionInInitializerError(exception);
+    }
+  }
+
+  protected final String column;
+  protected final MethodHandle setter;
+  // 0 => read the column by its label
+  protected final int columnIndex;
+
+  private FieldMapper(String column, MethodHandle setter, int columnIndex) {
+    this.column = column;
+    this.setter = setter;
+    this.columnIndex = columnIndex;
+  }
+
+  abstract void map(ResultSet resultSet, Object target) throws Throwable;
+
+  /**
+   * @param columnIndex The index of the column in the ResultSet (starting
+   * with 1).
+   * @return A mapper for the same field that reads the column by index.
+   */
+  abstract FieldMapper withColumnIndex(int columnIndex);
+
+  String getColumn() {
+    return column;
+  }
+
+  static FieldMapper of(Field field) {
+    String column = field.getName();
+    Class<?> type = field.getType();
+
+    if (type == int.class) {
+      return new IntFieldMapper(column, setterFor(field, int.class), 0);
+    } else if (type == long.class) {
+      return new LongFieldMapper(column, setterFor(field, long.class), 0);
+    } else if (type == double.class) {
+      return new DoubleFieldMapper(column, setterFor(field, double.class), 0);
+    } else if (type == float.class) {
+      return new FloatFieldMapper(column, setterFor(field, float.class), 0);
+    } else if (type == short.class) {
+      return new ShortFieldMapper(column, setterFor(field, short.class), 0);
+    } else if (type == byte.class) {
+      return new ByteFieldMapper(column, setterFor(field, byte.class), 0);
+    } else if (type == boolean.class) {
+      return new BooleanFieldMapper(column, setterFor(field, boolean.class), 0);
+    }
+
+    ColumnType columnType = ColumnType.of(type);
+    if (columnType == null) {
+      throw new SqlifyException("Ops. not supported... " + field.getName() + " -- " + field.getType());
+    }
+    return new ObjectFieldMapper(column, setterFor(field, Object.class), 0, columnType);
+  }
+
+  /**
+   * @return A setter of type (Object, valueType)void.
+   */
+  private static MethodHandle setterFor(Field field, Class<?> valueType) {
+    MethodType methodType = MethodType.methodType(void.class, Object.class, valueType);
+    field.setAccessible(true);
+    try {
+      return MethodHandles.lookup().unreflectSetter(field).asType(methodType);
+    } catch (IllegalAccessException illegalAccessException) {
+      // Java 8 does not hand out setters for final fields. Plain reflection
+      // can still set them.
+      MethodHandle fieldSet = MethodHandles.insertArguments(FIELD_SET, 0, field);
+      return fieldSet.asType(methodType);
+    }
+  }
+
+  /**
+   * The supported non-primitive field types and how to read them.
+   */
+  enum ColumnType {
+    STRING {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getString(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getString(columnIndex);
+      }
+    },
+    INTEGER {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getInt(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getInt(columnIndex);
+      }
+    },
+    LONG {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getLong(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getLong(columnIndex);
+      }
+    },
+    DOUBLE {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getDouble(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getDouble(columnIndex);
+      }
+    },
+    FLOAT {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getFloat(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getFloat(columnIndex);
+      }
+    },
+    SHORT {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getShort(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getShort(columnIndex);
+      }
+    },
+    BYTES {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getBytes(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getBytes(columnIndex);
+      }
+    },
+    BIG_DECIMAL {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getBigDecimal(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getBigDecimal(columnIndex);
+      }
+    },
+    BOOLEAN {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getBoolean(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getBoolean(columnIndex);
+      }
+    },
+    DATE {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getDate(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getDate(columnIndex);
+      }
+    },
+    TIME {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getTime(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getTime(columnIndex);
+      }
+    },
+    TIMESTAMP {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getTimestamp(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getTimestamp(columnIndex);
+      }
+    },
+    OFFSET_DATE_TIME {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getObject(column, OffsetDateTime.class);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getObject(columnIndex, OffsetDateTime.class);
+      }
+    },
+    URL {
+      @Override
+      Object read(ResultSet resultSet, String column) throws SQLException {
+        return resultSet.getURL(column);
+      }
+
+      @Override
+      Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getURL(columnIndex);
+      }
+    };
+
+    abstract Object read(ResultSet resultSet, String column) throws SQLException;
+
+    abstract Object read(ResultSet resultSet, int columnIndex) throws SQLException;
+
+    static ColumnType of(Class<?> type) {
+      if (type == String.class) {
+        return STRING;
+      } else if (type == Integer.class) {
+        return INTEGER;
+      } else if (type == Long.class) {
+        return LONG;
+      } else if (type == Double.class) {
+        return DOUBLE;
+      } else if (type == Float.class) {
+        return FLOAT;
+      } else if (type == Short.class) {
+        return SHORT;
+      } else if (type == byte[].class) {
+        return BYTES;
+      } else if (type == BigDecimal.class) {
+        return BIG_DECIMAL;
+      } else if (type == Boolean.class) {
+        return BOOLEAN;
+      } else if (type == Date.class) {
+        return DATE;
+      } else if (type == Time.class) {
+        return TIME;
+      } else if (type == Timestamp.class) {
+        return TIMESTAMP;
+      } else if (type == OffsetDateTime.class) {
+        return OFFSET_DATE_TIME;
+      } else if (type == java.net.URL.class) {
+        return URL;
+      } else {
+        return null;
+      }
+    }
+  }
+
+  private static final class ObjectFieldMapper extends FieldMapper {
+
+    private final ColumnType columnType;
+
+    private ObjectFieldMapper(String column, MethodHandle setter, int columnIndex, ColumnType columnType) {
+      super(column, setter, columnIndex);
+      this.columnType = columnType;
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      Object value = columnIndex > 0 ? columnType.read(resultSet, columnIndex) : columnType.read(resultSet, column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new ObjectFieldMapper(column, setter, columnIndex, columnType);
+    }
+  }
+
+  private static final class IntFieldMapper extends FieldMapper {
+
+    private IntFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      int value = columnIndex > 0 ? resultSet.getInt(columnIndex) : resultSet.getInt(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new IntFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class LongFieldMapper extends FieldMapper {
+
+    private LongFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      long value = columnIndex > 0 ? resultSet.getLong(columnIndex) : resultSet.getLong(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new LongFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class DoubleFieldMapper extends FieldMapper {
+
+    private DoubleFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      double value = columnIndex > 0 ? resultSet.getDouble(columnIndex) : resultSet.getDouble(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new DoubleFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class FloatFieldMapper extends FieldMapper {
+
+    private FloatFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      float value = columnIndex > 0 ? resultSet.getFloat(columnIndex) : resultSet.getFloat(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new FloatFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class ShortFieldMapper extends FieldMapper {
+
+    private ShortFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      short value = columnIndex > 0 ? resultSet.getShort(columnIndex) : resultSet.getShort(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new ShortFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class ByteFieldMapper extends FieldMapper {
+
+    private ByteFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      byte value = columnIndex > 0 ? resultSet.getByte(columnIndex) : resultSet.getByte(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new ByteFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+  private static final class BooleanFieldMapper extends FieldMapper {
+
+    private BooleanFieldMapper(String column, MethodHandle setter, int columnIndex) {
+      super(column, setter, columnIndex);
+    }
+
+    @Override
+    void map(ResultSet resultSet, Object target) throws Throwable {
+      boolean value = columnIndex > 0 ? resultSet.getBoolean(columnIndex) : resultSet.getBoolean(column);
+      setter.invokeExact(target, value);
+    }
+
+    @Override
+    FieldMapper withColumnIndex(int columnIndex) {
+      return new BooleanFieldMapper(column, setter, columnIndex);
+    }
+  }
+
+}
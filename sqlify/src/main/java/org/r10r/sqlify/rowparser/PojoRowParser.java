@@ -1,15 +1,19 @@
 package org.r10r.sqlify.rowparser;
 
-import java.lang.reflect.AccessibleObject;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.math.BigDecimal;
-import java.net.URL;
-import java.sql.Date;
+import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
-import java.sql.Time;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import org.r10r.sqlify.SqlifyException;
 
 /**
@@ -37,6 +41,18 @@ import org.r10r.sqlify.SqlifyException;
  * - The parser does NOT take into account any inheritance of fields.
  * - The parser does NOT follow any bean specification. It simply uses the fields
  *   you declare.
+ * - Static and synthetic fields are ignored.
+ * 
+ * The class is inspected only once when the parser is created. Fields are
+ * then set via MethodHandles - primitive fields without boxing. Use
+ * {@link RowParsers#getDefaultParserFor(Class)} to share one parser per class.
+ * 
+ * Before the first row of a ResultSet is parsed the ResultSetMetaData is used
+ * to find the index of the column of each field (case insensitive). All rows
+ * are then read by column index. Fields without a column are reported right
+ * away. Columns without a field are ignored - use
+ * {@link #failingOnUnmappedColumns()} to report them as well. If the driver
+ * does not provide ResultSetMetaData columns are read by label.
  * 
  * @author ra
  * @param <E> The class this parser will populate with values from a row
@@ -44,72 +60,132 @@ import org.r10r.sqlify.SqlifyException;
 public class PojoRowParser<E> implements RowParser<E> {
 
   private final Class<E> clazz;
+  private final MethodHandle constructor;
+  private final FieldMapper[] fieldMappers;
+  private final boolean failOnUnmappedColumns;
+
+  private PojoRowParser(Class<E> clazz, MethodHandle constructor, FieldMapper[] fieldMappers, boolean failOnUnmappedColumns) {
+    this.clazz = clazz;
+    this.constructor = constructor;
+    this.fieldMappers = fieldMappers;
+    this.failOnUnmappedColumns = failOnUnmappedColumns;
+  }
 
   PojoRowParser(Class<E> clazz) {
     this.clazz = clazz;
+    this.constructor = constructorOf(clazz);
+    this.failOnUnmappedColumns = false;
+
+    List<FieldMapper> mappers = new ArrayList<>();
+    for (Field field : clazz.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+        continue;
+      }
+      mappers.add(FieldMapper.of(field));
+    }
+    this.fieldMappers = mappers.toArray(new FieldMapper[mappers.size()]);
+  }
+
+  /**
+   * Strict mode: columns of the result without a field are reported before
+   * the first row - eg a misspelled alias.
+   *
+   * @return A new parser. The current one is not changed.
+   */
+  public PojoRowParser<E> failingOnUnmappedColumns() {
+    return new PojoRowParser<>(clazz, constructor, fieldMappers, true);
+  }
+
+  private static MethodHandle constructorOf(Class<?> clazz) {
+    try {
+      Constructor<?> constructor = clazz.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return MethodHandles.lookup()
+          .unreflectConstructor(constructor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException exception) {
+      throw new SqlifyException("Ops. " + clazz.getName() + " needs a constructor without arguments.", exception);
+    }
   }
 
   @Override
-  public E parse(ResultSet resultSet) throws Exception {
-    E e = clazz.newInstance(); // Java 11 version: clazz.getDeclaredConstructor().newInstance();
-    for (Field field : e.getClass().getDeclaredFields()) {
-      String name = field.getName();
-      Class<?> type = field.getType();
-      boolean initialFieldAccessibility = field.isAccessible(); // Java 11 version: field.canAccess(e);
-          
-      field.setAccessible(true);
-      
-      if (type == String.class) {
-        String value = resultSet.getString(name);
-        field.set(e, value);
-      } else if (type == Integer.class || type == int.class) {
-        Integer value = resultSet.getInt(name);
-        field.set(e, value);
-      } else if (type == Long.class || type == long.class) {
-        Long value = resultSet.getLong(name);
-        field.set(e, value);
-      } else if (type == Double.class || type == double.class) {
-        Double value = resultSet.getDouble(name);
-        field.set(e, value);
-      } else if (type == Float.class || type == float.class) {
-        Float value = resultSet.getFloat(name);
-        field.set(e, value);
-      } else if (type == Short.class || type == short.class) {
-        Short value = resultSet.getShort(name);
-        field.set(e, value);
-      } else if (type == byte.class) {
-        byte value = resultSet.getByte(name);
-        field.set(e, value);
-      } else if (type == byte[].class) {
-        byte[] value = resultSet.getBytes(name);
-        field.set(e, value);
-      } else if (type == BigDecimal.class) {
-        BigDecimal value = resultSet.getBigDecimal(name);
-        field.set(e, value);
-      } else if (type == Boolean.class || type == boolean.class) {
-        Boolean value = resultSet.getBoolean(name);
-        field.set(e, value);
-      } else if (type == Date.class) {
-        Date value = resultSet.getDate(name);
-        field.set(e, value);
-      } else if (type == Time.class) {
-        Time value = resultSet.getTime(name);
-        field.set(e, value);
-      } else if (type == Timestamp.class) {
-        Timestamp value = resultSet.getTimestamp(name);
-        field.set(e, value);
-      } else if (type == OffsetDateTime.class) {
-        OffsetDateTime value = resultSet.getObject(name, OffsetDateTime.class);
-        field.set(e, value);
-      } else if (type == URL.class) {
-        URL value = resultSet.getURL(name);
-        field.set(e, value);
+  public RowParser<E> forResultSet(ResultSet resultSet) throws Exception {
+    ResultSetMetaData metaData = resultSet.getMetaData();
+    if (metaData == null) {
+      return this;
+    }
+
+    Map<String, Integer> columnIndexByLabel = new LinkedHashMap<>();
+    Map<String, Integer> columnIndexByLowerCaseLabel = new HashMap<>();
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      String label = metaData.getColumnLabel(i);
+      // like the drivers: the first column with a label wins.
+      columnIndexByLabel.putIfAbsent(label, i);
+      columnIndexByLowerCaseLabel.putIfAbsent(label.toLowerCase(Locale.ROOT), i);
+    }
+
+    FieldMapper[] indexedFieldMappers = new FieldMapper[fieldMappers.length];
+    List<String> fieldsWithoutColumn = new ArrayList<>();
+    Map<String, Integer> columnsWithoutField = new LinkedHashMap<>(columnIndexByLabel);
+    for (int i = 0; i < fieldMappers.length; i++) {
+      String column = fieldMappers[i].getColumn();
+      Integer columnIndex = columnIndexByLabel.get(column);
+      if (columnIndex == null) {
+        columnIndex = columnIndexByLowerCaseLabel.get(column.toLowerCase(Locale.ROOT));
+      }
+      if (columnIndex == null) {
+        fieldsWithoutColumn.add(column);
       } else {
-        throw new SqlifyException("Ops. not supported... " + field.getName() + " -- " + field.getType());
+        indexedFieldMappers[i] = fieldMappers[i].withColumnIndex(columnIndex);
+        columnsWithoutField.values().remove(columnIndex);
       }
-      field.setAccessible(initialFieldAccessibility);
     }
-    return e;
+
+    if (!fieldsWithoutColumn.isEmpty()) {
+      throw new SqlifyException("Ops. The result does not contain a column for the following fields of " 
+          + clazz.getName() + ": " + String.join(", ", fieldsWithoutColumn)
+          + ". Columns without field: " + String.join(", ", columnsWithoutField.keySet()));
+    }
+
+    if (failOnUnmappedColumns && !columnsWithoutField.isEmpty()) {
+      throw new SqlifyException("Ops. The result contains columns without a field of "
+          + clazz.getName() + ": " + String.join(", ", columnsWithoutField.keySet())
+          + ". Please select only the columns you need.");
+    }
+
+    return new PojoRowParser<>(clazz, constructor, indexedFieldMappers, failOnUnmappedColumns);
+  }
+
+  @Override
+  public E parse(ResultSet resultSet) throws Exception {
+    try {
+      Object e = (Object) constructor.invokeExact();
+      for (FieldMapper fieldMapper : fieldMappers) {
+        fieldMapper.map(resultSet, e);
+      }
+      return clazz.cast(e);
+    } catch (Exception | Error exception) {
+      throw exception;
+    } catch (Throwable throwable) {
+      throw new SqlifyException(throwable);
+    }
+  }
+
+  /**
+   * Parsers of the same class and mode are equal - see ResultCache.
+   */
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof PojoRowParser)) {
+      return false;
+    }
+    PojoRowParser<?> other = (PojoRowParser<?>) object;
+    return clazz == other.clazz && failOnUnmappedColumns == other.failOnUnmappedColumns;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * clazz.hashCode() + (failOnUnmappedColumns ? 1 : 0);
   }
 
 }
@@ -0,0 +1,13 @@
+package org.r10r.sqlify.rowparser;
+
+/**
+ * Receives the parsed rows of a streamed query one by one.
+ *
+ * @param <T> The type of a parsed row.
+ */
+@FunctionalInterface
+public interface RowConsumer<T> {
+
+  void accept(T row) throws Exception;
+
+}
@@ -5,4 +5,20 @@ import java.sql.ResultSet;
 public interface RowParser<T> {
 
   T parse(ResultSet resultSet) throws Exception;
+
+  /**
+   * Called by the result parsers once per ResultSet - before the first row
+   * is parsed. A RowParser can use that to look at the ResultSetMetaData and
+   * to return a parser that is specialized for the columns of that
+   * ResultSet (eg reading columns by index instead of by label).
+   *
+   * @param resultSet The ResultSet whose rows will be parsed.
+   * @return The parser to use for all rows of the ResultSet. By default this
+   * parser itself.
+   * @throws Exception If the rows of the ResultSet cannot be parsed.
+   */
+  default RowParser<T> forResultSet(ResultSet resultSet) throws Exception {
+    return this;
+  }
+
 }
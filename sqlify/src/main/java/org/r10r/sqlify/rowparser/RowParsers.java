@@ -2,9 +2,18 @@ package org.r10r.sqlify.rowparser;
 
 public class RowParsers<T> {
 
+  private static final ClassValue<PojoRowParser<?>> POJO_ROW_PARSERS = new ClassValue<PojoRowParser<?>>() {
+    @Override
+    protected PojoRowParser<?> computeValue(Class<?> type) {
+      return new PojoRowParser<>(type);
+    }
+  };
+
   /**
    * Determines the default RowParser for a class.
    * 
+   * Pojo parsers are created only once per class and then shared.
+   * 
    * Use your own RowParser implementation if you need something more flexible.
    * 
    */  
@@ -14,8 +23,27 @@ public class RowParsers<T> {
     } else if (e == Long.class) {
       return new SingleLongRowParser();
     } else {
-      return new PojoRowParser<>(e);
+      return POJO_ROW_PARSERS.get(e);
     }
   }
 
+  /**
+   * The shared PojoRowParser of a class - eg to create one that reports
+   * unmapped columns:
+   *
+   * <pre>
+   * ListResultParser.of(RowParsers.getPojoParserFor(Guestbook.class).failingOnUnmappedColumns())
+   * </pre>
+   *
+   * @param <E> The class of each row.
+   * @param clazz The class of each row.
+   * @return The shared parser of the class.
+   */
+  public static <E> PojoRowParser<E> getPojoParserFor(Class<E> clazz) {
+    // the parser of a class is always created for that class
+    @SuppressWarnings("unchecked")
+    PojoRowParser<E> pojoRowParser = (PojoRowParser<E>) POJO_ROW_PARSERS.get(clazz);
+    return pojoRowParser;
+  }
+
 }
@@ -8,5 +8,15 @@ public class SingleLongRowParser implements RowParser<Long> {
   public Long parse(ResultSet resultSet) throws Exception {
     return resultSet.getLong(1);
   }
-    
+
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof SingleLongRowParser;
+  }
+
+  @Override
+  public int hashCode() {
+    return SingleLongRowParser.class.hashCode();
+  }
+
 }
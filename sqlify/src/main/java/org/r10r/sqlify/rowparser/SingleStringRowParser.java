@@ -9,4 +9,14 @@ public class SingleStringRowParser implements RowParser<String> {
     return resultSet.getString(1);
   }
 
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof SingleStringRowParser;
+  }
+
+  @Override
+  public int hashCode() {
+    return SingleStringRowParser.class.hashCode();
+  }
+
 }
@@ -0,0 +1,172 @@
+package org.r10r.sqlify;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AsyncDatabaseTest {
+
+  DataSource dataSource;
+  Connection connection;
+  PreparedStatement preparedStatement;
+
+  @Before
+  public void init() throws Exception {
+    dataSource = Mockito.mock(DataSource.class);
+    connection = Mockito.mock(Connection.class);
+    preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement("SELECT 1")).thenReturn(preparedStatement);
+  }
+
+  @Test
+  public void neverRunsMoreBlocksThanAllowedAtTheSameTime() throws Exception {
+    // given
+    AsyncDatabase asyncDatabase = Database.use(dataSource).withMaximumAsyncConcurrency(2).async();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximumRunning = new AtomicInteger();
+
+    // when
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      int number = i;
+      futures.add(asyncDatabase.withConnection(c -> {
+        maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep(5);
+        running.decrementAndGet();
+        return number;
+      }));
+    }
+
+    // then
+    for (int i = 0; i < 20; i++) {
+      assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+    }
+    assertThat(maximumRunning.get()).isEqualTo(2);
+    assertThat(asyncDatabase.getAvailablePermits()).isEqualTo(2);
+  }
+
+  @Test
+  public void asyncDatabasesOfOneDatabaseShareTheLimit() throws Exception {
+    // given
+    Database database = Database.use(dataSource).withMaximumAsyncConcurrency(2);
+    AsyncDatabase first = database.async();
+    AsyncDatabase second = database.withStatementCache(10).async().withTimeout(5, TimeUnit.SECONDS);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximumRunning = new AtomicInteger();
+
+    // when
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      AsyncDatabase asyncDatabase = i % 2 == 0 ? first : second;
+      futures.add(asyncDatabase.withConnection(c -> {
+        maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep(5);
+        running.decrementAndGet();
+        return 1;
+      }));
+    }
+
+    // then
+    for (CompletableFuture<Integer> future : futures) {
+      future.get(5, TimeUnit.SECONDS);
+    }
+    assertThat(maximumRunning.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void limitFollowsTheSizeOfTheConnectionPool() throws Exception {
+    // given
+    HikariDataSource hikariDataSource = new HikariDataSource();
+    hikariDataSource.setMaximumPoolSize(3);
+
+    // when
+    AsyncDatabase asyncDatabase = Database.use(hikariDataSource).async();
+
+    // then
+    assertThat(asyncDatabase.getAvailablePermits()).isEqualTo(3);
+    assertThat(Database.use(dataSource).async().getAvailablePermits())
+        .isEqualTo(AsyncDatabase.DEFAULT_MAXIMUM_CONCURRENCY);
+  }
+
+  @Test
+  public void closedStatementsAreNotCancelled() throws Exception {
+    // given
+    AsyncDatabase asyncDatabase = Database.use(dataSource).async().withTimeout(500, TimeUnit.MILLISECONDS);
+    CountDownLatch timedOut = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<Object> future = asyncDatabase.withConnection(c -> {
+      try (PreparedStatement statement = c.prepareStatement("SELECT 1")) {
+        statement.execute();
+      } catch (Exception exception) {
+        throw new SqlifyException(exception);
+      }
+      try {
+        timedOut.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException interruptedException) {
+        throw new SqlifyException(interruptedException);
+      }
+      return null;
+    });
+    future.whenComplete((result, throwable) -> timedOut.countDown());
+
+    // then
+    assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(TimeoutException.class);
+    verify(preparedStatement).close();
+    verify(preparedStatement, never()).cancel();
+  }
+
+  @Test
+  public void cancelsStatementsAfterTheTimeout() throws Exception {
+    // given
+    AsyncDatabase asyncDatabase = Database.use(dataSource).async().withTimeout(50, TimeUnit.MILLISECONDS);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      cancelled.countDown();
+      return null;
+    }).when(preparedStatement).cancel();
+
+    // when
+    CompletableFuture<Object> future = asyncDatabase.withConnection(c -> {
+      try (PreparedStatement statement = c.prepareStatement("SELECT 1")) {
+        // a long running query that only stops when it is cancelled
+        cancelled.await(5, TimeUnit.SECONDS);
+        return null;
+      } catch (Exception exception) {
+        throw new SqlifyException(exception);
+      }
+    });
+
+    // then
+    assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(TimeoutException.class);
+    assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    verify(preparedStatement).setQueryTimeout(1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException interruptedException) {
+      throw new SqlifyException(interruptedException);
+    }
+  }
+
+}
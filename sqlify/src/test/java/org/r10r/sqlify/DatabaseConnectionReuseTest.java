@@ -0,0 +1,111 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.r10r.sqlify.metrics.QueryListeners;
+import org.r10r.sqlify.metrics.QueryMetrics;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DatabaseConnectionReuseTest {
+
+  DataSource dataSource;
+  Connection connection;
+  QueryMetrics queryMetrics;
+
+  @Before
+  public void init() throws Exception {
+    dataSource = Mockito.mock(DataSource.class);
+    connection = Mockito.mock(Connection.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    queryMetrics = new QueryMetrics();
+    QueryListeners.add(queryMetrics);
+  }
+
+  @After
+  public void cleanup() {
+    QueryListeners.clear();
+  }
+
+  @Test
+  public void nestedTransactionsJoinTheOuterOne() throws Exception {
+    // given
+    Database database = Database.use(dataSource).withConnectionReuse();
+
+    // when
+    database.withTransaction(outer -> database.withTransaction(inner ->
+        database.withConnection(innermost -> innermost)));
+
+    // then
+    verify(dataSource, times(1)).getConnection();
+    verify(connection, times(1)).commit();
+    verify(connection, times(1)).close();
+    assertThat(queryMetrics.snapshot().getConnectionReuses()).isEqualTo(2);
+    assertThat(queryMetrics.snapshot().getConnectionAcquisitionMicros().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void aFailingNestedTransactionRollsBackTheOuterOne() throws Exception {
+    // given
+    Database database = Database.use(dataSource).withConnectionReuse();
+
+    // when
+    assertThatThrownBy(() -> database.withTransaction(outer -> database.withTransaction(inner -> {
+      throw new SqlifyException("Ops. Broken.");
+    }))).isInstanceOf(SqlifyException.class);
+
+    // then
+    verify(connection, never()).commit();
+    verify(connection, times(1)).rollback();
+  }
+
+  @Test
+  public void aNestedTransactionInsideAutocommitTurnsAutocommitOffForItsDuration() throws Exception {
+    // given
+    Database database = Database.use(dataSource).withConnectionReuse();
+    when(connection.getAutoCommit()).thenReturn(true);
+
+    // when
+    database.withConnection(outer -> database.withTransaction(inner -> null));
+
+    // then
+    verify(dataSource, times(1)).getConnection();
+    InOrder inOrder = inOrder(connection);
+    inOrder.verify(connection).setAutoCommit(false);
+    inOrder.verify(connection).commit();
+    inOrder.verify(connection).setAutoCommit(true);
+    inOrder.verify(connection).close();
+  }
+
+  @Test
+  public void takesANewConnectionForEachBlockWithoutReuse() throws Exception {
+    // given
+    Database database = Database.use(dataSource);
+
+    // when
+    database.withTransaction(outer -> database.withConnection(inner -> inner));
+
+    // then
+    verify(dataSource, times(2)).getConnection();
+    assertThat(queryMetrics.snapshot().getConnectionReuses()).isEqualTo(0);
+  }
+
+  @Test
+  public void setsAutocommitOnlyIfItDiffers() throws Exception {
+    // given
+    Database database = Database.use(dataSource);
+    when(connection.getAutoCommit()).thenReturn(true);
+
+    // when
+    database.withConnection(c -> c);
+
+    // then
+    verify(connection, never()).setAutoCommit(anyBoolean());
+  }
+
+}
@@ -0,0 +1,172 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.metrics.QueryExecution;
+import org.r10r.sqlify.metrics.QueryListener;
+import org.r10r.sqlify.metrics.QueryListeners;
+import org.r10r.sqlify.resultparser.SingleResultParser;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PipelineTest {
+
+  Connection connection;
+  PreparedStatement preparedStatement;
+
+  @Before
+  public void init() throws Exception {
+    connection = Mockito.mock(Connection.class);
+    preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement(
+        "SELECT name FROM t WHERE id = ?;\n"
+        + "UPDATE t SET seen = true WHERE id = ?;\n"
+        + "SELECT count(*) FROM t WHERE name = ?"))
+        .thenReturn(preparedStatement);
+  }
+
+  @Test
+  public void sendsAllQueriesAtOnceAndReturnsTheirResultsInOrder() throws Exception {
+    // given
+    ResultSet names = Mockito.mock(ResultSet.class);
+    ResultSet counts = Mockito.mock(ResultSet.class);
+    when(names.next()).thenReturn(true);
+    when(names.getString(1)).thenReturn("john");
+    when(counts.next()).thenReturn(true);
+    when(counts.getLong(1)).thenReturn(3L);
+    when(preparedStatement.execute()).thenReturn(true);
+    when(preparedStatement.getResultSet()).thenReturn(names, counts);
+    when(preparedStatement.getMoreResults()).thenReturn(false, true, false);
+    when(preparedStatement.getUpdateCount()).thenReturn(1);
+
+    Pipeline pipeline = Sqlify.pipeline(connection);
+    Pipeline.Result<String> name = pipeline.add(Sqlify.sql("SELECT name FROM t WHERE id = {id}; -- by id")
+        .withParameter("id", 7L),
+        SingleResultParser.of(String.class));
+    Pipeline.Result<Integer> updated = pipeline.add(Sqlify.sql("UPDATE t SET seen = true WHERE id = {id}")
+        .withParameter("id", 7L));
+    Pipeline.Result<Long> count = pipeline.add(Sqlify.sql("SELECT count(*) FROM t WHERE name = {name}")
+        .withParameter("name", "john"),
+        SingleResultParser.of(Long.class));
+
+    // when
+    pipeline.execute();
+
+    // then
+    assertThat(name.get()).isEqualTo("john");
+    assertThat(updated.get()).isEqualTo(1);
+    assertThat(count.get()).isEqualTo(3L);
+    verify(preparedStatement).setLong(1, 7L);
+    verify(preparedStatement).setLong(2, 7L);
+    verify(preparedStatement).setString(3, "john");
+    verify(preparedStatement, times(1)).execute();
+  }
+
+  @Test
+  public void expandsCollectionsInsideOfInLists() throws Exception {
+    // given
+    PreparedStatement expanded = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement(
+        "DELETE FROM t WHERE id IN (?, ?);\n"
+        + "UPDATE t SET seen = true WHERE id = ?"))
+        .thenReturn(expanded);
+    when(expanded.execute()).thenReturn(false);
+    when(expanded.getMoreResults()).thenReturn(false);
+    when(expanded.getUpdateCount()).thenReturn(2, 1);
+
+    Pipeline pipeline = Sqlify.pipeline(connection);
+    Pipeline.Result<Integer> deleted = pipeline.add(Sqlify.sql("DELETE FROM t WHERE id IN ({ids})")
+        .withParameter("ids", Arrays.asList(1L, 2L)));
+    Pipeline.Result<Integer> updated = pipeline.add(Sqlify.sql("UPDATE t SET seen = true WHERE id = {id}")
+        .withParameter("id", 3L));
+
+    // when
+    pipeline.execute();
+
+    // then
+    assertThat(deleted.get()).isEqualTo(2);
+    assertThat(updated.get()).isEqualTo(1);
+    verify(expanded).setLong(1, 1L);
+    verify(expanded).setLong(2, 2L);
+    verify(expanded).setLong(3, 3L);
+  }
+
+  @Test
+  public void reportsEveryQueryToTheQueryListener() throws Exception {
+    // given
+    ResultSet names = Mockito.mock(ResultSet.class);
+    ResultSet counts = Mockito.mock(ResultSet.class);
+    when(names.next()).thenReturn(true);
+    when(names.getString(1)).thenReturn("john");
+    when(counts.next()).thenReturn(true);
+    when(counts.getLong(1)).thenReturn(3L);
+    when(preparedStatement.execute()).thenReturn(true);
+    when(preparedStatement.getResultSet()).thenReturn(names, counts);
+    when(preparedStatement.getMoreResults()).thenReturn(false, true);
+    when(preparedStatement.getUpdateCount()).thenReturn(2);
+
+    List<QueryExecution> queryExecutions = new ArrayList<>();
+    QueryListeners.add(new QueryListener() {
+      @Override
+      public void onQueryExecuted(QueryExecution queryExecution) {
+        queryExecutions.add(queryExecution);
+      }
+    });
+
+    Pipeline pipeline = Sqlify.pipeline(connection);
+    pipeline.add(Sqlify.sql("SELECT name FROM t WHERE id = {id}").withParameter("id", 7L),
+        SingleResultParser.of(String.class));
+    pipeline.add(Sqlify.sql("UPDATE t SET seen = true WHERE id = {id}").withParameter("id", 7L));
+    pipeline.add(Sqlify.sql("SELECT count(*) FROM t WHERE name = {name}").withParameter("name", "john"),
+        SingleResultParser.of(Long.class));
+
+    // when
+    try {
+      pipeline.execute();
+    } finally {
+      QueryListeners.clear();
+    }
+
+    // then
+    assertThat(queryExecutions).extracting(QueryExecution::getSql).containsExactly(
+        "SELECT name FROM t WHERE id = {id}",
+        "UPDATE t SET seen = true WHERE id = {id}",
+        "SELECT count(*) FROM t WHERE name = {name}");
+    assertThat(queryExecutions).extracting(QueryExecution::getKind).containsExactly(
+        QueryExecution.Kind.SELECT, QueryExecution.Kind.UPDATE, QueryExecution.Kind.SELECT);
+    assertThat(queryExecutions).extracting(QueryExecution::getRows).containsExactly(1L, 2L, 1L);
+    assertThat(queryExecutions).extracting(QueryExecution::getJdbcSql).containsExactly(
+        "SELECT name FROM t WHERE id = ?",
+        "UPDATE t SET seen = true WHERE id = ?",
+        "SELECT count(*) FROM t WHERE name = ?");
+    assertThat(queryExecutions).extracting(QueryExecution::getFailure).containsOnlyNulls();
+  }
+
+  @Test
+  public void resultsAreOnlyAvailableAfterExecute() {
+    Pipeline pipeline = Sqlify.pipeline(connection);
+    Pipeline.Result<Integer> updated = pipeline.add(Sqlify.sql("DELETE FROM t"));
+
+    assertThatThrownBy(() -> updated.get())
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Ops. Please execute the pipeline before getting its results.");
+  }
+
+  @Test
+  public void resultParserBelongsToTheAddCall() {
+    Pipeline pipeline = Sqlify.pipeline(connection);
+
+    assertThatThrownBy(() -> pipeline.add(Sqlify.sql("SELECT name FROM t")
+        .parseResultWith(SingleResultParser.of(String.class))))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Arg. Please pass the result parser of a pipelined query to Pipeline.add(builder, resultParser)");
+  }
+
+}
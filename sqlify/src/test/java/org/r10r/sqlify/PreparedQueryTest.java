@@ -0,0 +1,86 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Optional;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.resultparser.SingleResultParser;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PreparedQueryTest {
+
+  @Test
+  public void bindsArgumentsByPositionOfFirstAppearance() throws Exception {
+    // given
+    PreparedQuery<Long> preparedQuery = Sqlify.prepare(
+        "SELECT count(*) FROM t WHERE name = {name} AND (id = {id} OR parent_id = {id})",
+        SingleResultParser.of(Long.class));
+
+    Connection connection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.prepareStatement("SELECT count(*) FROM t WHERE name = ? AND (id = ? OR parent_id = ?)"))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getLong(1)).thenReturn(42L);
+
+    // when
+    Long count = preparedQuery.executeSelect(connection, Optional.of("john"), 7L);
+
+    // then
+    assertThat(count).isEqualTo(42L);
+    assertThat(preparedQuery.getArgumentNames()).containsExactly("name", "id");
+    assertThat(preparedQuery.indexOf("id")).isEqualTo(1);
+    verify(preparedStatement).setString(1, "john");
+    verify(preparedStatement).setLong(2, 7L);
+    verify(preparedStatement).setLong(3, 7L);
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  public void expandsCollectionsInsideOfInLists() throws Exception {
+    // given
+    PreparedQuery<Void> preparedQuery = Sqlify.prepare("DELETE FROM t WHERE name = {name} AND id IN ({ids})");
+
+    Connection connection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("DELETE FROM t WHERE name = ? AND id IN (?, ?, ?, ?)"))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeUpdate()).thenReturn(3);
+
+    // when
+    int deleted = preparedQuery.executeUpdate(connection, "john", Arrays.asList(1L, 2L, 3L));
+
+    // then
+    assertThat(deleted).isEqualTo(3);
+    verify(preparedStatement).setString(1, "john");
+    verify(preparedStatement).setLong(2, 1L);
+    verify(preparedStatement).setLong(3, 2L);
+    verify(preparedStatement, times(2)).setLong(anyInt(), eq(3L));
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  public void complainsAboutWrongNumberOfArguments() {
+    PreparedQuery<Void> preparedQuery = Sqlify.prepare("DELETE FROM t WHERE id = {id}");
+
+    assertThatThrownBy(() -> preparedQuery.executeUpdate(Mockito.mock(Connection.class)))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Ops. Expected 1 arguments [id] but got 0.");
+  }
+
+  @Test
+  public void complainsAboutMissingValues() {
+    PreparedQuery<Void> preparedQuery = Sqlify.prepare("DELETE FROM t WHERE id = {id}");
+
+    assertThatThrownBy(() -> preparedQuery.executeUpdate(Mockito.mock(Connection.class), Optional.empty()))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Missing parameters to execute sql query. Please provide a value for: id");
+  }
+
+}
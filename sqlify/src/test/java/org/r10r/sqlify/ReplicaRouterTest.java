@@ -0,0 +1,137 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRouterTest {
+
+  DataSource primary;
+  DataSource replica1;
+  DataSource replica2;
+  Connection primaryConnection;
+  Connection replica1Connection;
+  Connection replica2Connection;
+
+  @Before
+  public void init() throws Exception {
+    primary = Mockito.mock(DataSource.class);
+    replica1 = Mockito.mock(DataSource.class);
+    replica2 = Mockito.mock(DataSource.class);
+    primaryConnection = Mockito.mock(Connection.class);
+    replica1Connection = Mockito.mock(Connection.class);
+    replica2Connection = Mockito.mock(Connection.class);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(replica1.getConnection()).thenReturn(replica1Connection);
+    when(replica2.getConnection()).thenReturn(replica2Connection);
+  }
+
+  @Test
+  public void roundRobinSpreadsReadsOverReplicasAndWritesGoToThePrimary() {
+    // given
+    Database database = Database.use(primary).withReplicas(ReplicaRouter.roundRobin(replica1, replica2));
+
+    // when
+    Connection first = database.withReadOnlyConnection(connection -> connection);
+    Connection second = database.withReadOnlyConnection(connection -> connection);
+    Connection third = database.withReadOnlyConnection(connection -> connection);
+    Connection write = database.withTransaction(connection -> connection);
+
+    // then
+    assertThat(first).isSameAs(replica1Connection);
+    assertThat(second).isSameAs(replica2Connection);
+    assertThat(third).isSameAs(replica1Connection);
+    assertThat(write).isSameAs(primaryConnection);
+  }
+
+  @Test
+  public void leastInFlightAvoidsBusyReplicas() {
+    // given
+    Database database = Database.use(primary).withReplicas(ReplicaRouter.leastInFlight(replica1, replica2));
+
+    // when
+    Connection[] used = database.withReadOnlyConnection(outer -> new Connection[]{
+      outer,
+      database.withReadOnlyConnection(inner -> inner)
+    });
+
+    // then
+    assertThat(used[1]).isNotSameAs(used[0]);
+  }
+
+  @Test
+  public void ejectsReplicasThatFailAndFallsBackToThePrimary() throws Exception {
+    // given
+    when(replica1.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+    ReplicaRouter replicaRouter = ReplicaRouter.roundRobin(replica1)
+        .withEjection(2, 1, TimeUnit.MINUTES);
+    Database database = Database.use(primary).withReplicas(replicaRouter);
+
+    // when
+    for (int i = 0; i < 5; i++) {
+      Connection used = database.withReadOnlyConnection(connection -> connection);
+      assertThat(used).isSameAs(primaryConnection);
+    }
+
+    // then
+    verify(replica1, times(2)).getConnection();
+    assertThat(replicaRouter.getHealthyReplicaCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void triesAnotherReplicaIfOneHandsOutNoConnection() throws Exception {
+    // given
+    when(replica1.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+    Database database = Database.use(primary).withReplicas(ReplicaRouter.roundRobin(replica1, replica2));
+
+    // when
+    Connection used = database.withReadOnlyConnection(connection -> connection);
+
+    // then
+    assertThat(used).isSameAs(replica2Connection);
+  }
+
+  @Test
+  public void countsConnectionFailuresInsideTheBlockButNotFailingQueries() {
+    // given
+    ReplicaRouter replicaRouter = ReplicaRouter.roundRobin(replica1).withEjection(1, 1, TimeUnit.MINUTES);
+    Database database = Database.use(primary).withReplicas(replicaRouter);
+
+    // when
+    assertThatThrownBy(() -> database.withReadOnlyConnection(connection -> {
+      throw new SqlifyException(new SQLException("syntax error", "42601"));
+    })).isInstanceOf(SqlifyException.class);
+    int healthyAfterFailingQuery = replicaRouter.getHealthyReplicaCount();
+    assertThatThrownBy(() -> database.withReadOnlyConnection(connection -> {
+      throw new SqlifyException(new SQLNonTransientConnectionException("connection lost", "08006"));
+    })).isInstanceOf(SqlifyException.class);
+
+    // then
+    assertThat(healthyAfterFailingQuery).isEqualTo(1);
+    assertThat(replicaRouter.getHealthyReplicaCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void readsOwnWritesFromThePrimary() {
+    // given
+    Database database = Database.use(primary).withReplicas(ReplicaRouter.roundRobin(replica1)
+        .withReadYourWrites(1, TimeUnit.MINUTES));
+    Connection beforeWrite = database.withReadOnlyConnection(connection -> connection);
+
+    // when
+    database.withTransaction(connection -> null);
+    Connection afterWrite = database.withReadOnlyConnection(connection -> connection);
+
+    // then
+    assertThat(beforeWrite).isSameAs(replica1Connection);
+    assertThat(afterWrite).isSameAs(primaryConnection);
+  }
+
+}
@@ -0,0 +1,102 @@
+package org.r10r.sqlify;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.metrics.QueryListeners;
+import org.r10r.sqlify.metrics.QueryMetrics;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RetryPolicyTest {
+
+  DataSource dataSource;
+  Connection connection;
+  QueryMetrics queryMetrics;
+  RetryPolicy retryPolicy = RetryPolicy.serializationFailures()
+      .withBackoff(1, 2, TimeUnit.MILLISECONDS);
+
+  @Before
+  public void init() throws Exception {
+    dataSource = Mockito.mock(DataSource.class);
+    connection = Mockito.mock(Connection.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    queryMetrics = new QueryMetrics();
+    QueryListeners.add(queryMetrics);
+  }
+
+  @After
+  public void cleanup() {
+    QueryListeners.clear();
+  }
+
+  @Test
+  public void repeatsTransactionsThatFailedBecauseOfConcurrentTransactions() throws Exception {
+    // given
+    doThrow(new SQLException("could not serialize access", "40001"))
+        .doThrow(new SQLException("deadlock detected", "40P01"))
+        .doNothing()
+        .when(connection).commit();
+    Database database = Database.use(dataSource).withRetryPolicy(retryPolicy);
+    AtomicInteger attempts = new AtomicInteger();
+
+    // when
+    int result = database.withTransaction(c -> attempts.incrementAndGet());
+
+    // then
+    assertThat(result).isEqualTo(3);
+    verify(connection, times(2)).rollback();
+    assertThat(queryMetrics.snapshot().getTransactionRetries())
+        .containsEntry("40001", 1L)
+        .containsEntry("40P01", 1L);
+    assertThat(queryMetrics.snapshot().getTransactionRetryWastedMicros().getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotRepeatOtherFailures() throws Exception {
+    // given
+    doThrow(new SQLException("duplicate key", "23505")).when(connection).commit();
+    Database database = Database.use(dataSource).withRetryPolicy(retryPolicy);
+    AtomicInteger attempts = new AtomicInteger();
+
+    // when
+    assertThatThrownBy(() -> database.withTransaction(c -> attempts.incrementAndGet()))
+        .isInstanceOf(SqlifyException.class);
+
+    // then
+    assertThat(attempts.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void givesUpAfterTheMaximumNumberOfAttempts() throws Exception {
+    // given
+    doThrow(new SQLException("could not serialize access", "40001")).when(connection).commit();
+    Database database = Database.use(dataSource).withRetryPolicy(retryPolicy.withMaximumAttempts(3));
+    AtomicInteger attempts = new AtomicInteger();
+
+    // when
+    assertThatThrownBy(() -> database.withTransaction(c -> attempts.incrementAndGet()))
+        .isInstanceOf(SqlifyException.class)
+        .hasStackTraceContaining("could not serialize access");
+
+    // then
+    assertThat(attempts.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void backsOffWithFullJitterUpToTheMaximum() {
+    RetryPolicy policy = RetryPolicy.serializationFailures().withBackoff(10, 50, TimeUnit.NANOSECONDS);
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.backoffNanos(1)).isBetween(0L, 10L);
+      assertThat(policy.backoffNanos(2)).isBetween(0L, 20L);
+      assertThat(policy.backoffNanos(40)).isBetween(0L, 50L);
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+package org.r10r.sqlify.core;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.r10r.sqlify.Sqlify;
+
+/**
+ * Compares a wide batch insert built from BatchRows (flat arrays per
+ * placeholder) with the same insert built from one Batch (HashMap) per
+ * row. Both variants include filling the rows and binding them to a
+ * PreparedStatement that does nothing.
+ *
+ * Run with "-prof gc" to compare the allocation. The statement is a proxy
+ * that boxes every bound value, so the measured difference is a lower
+ * bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchRowsBenchmark {
+
+  @Param({"40"})
+  int numberOfColumns;
+
+  @Param({"10000"})
+  int numberOfRows;
+
+  String sql;
+  String[] names;
+  Connection connection;
+
+  @Setup
+  public void createSqlAndConnection() {
+    names = new String[numberOfColumns];
+    StringBuilder columns = new StringBuilder();
+    StringBuilder placeholders = new StringBuilder();
+    for (int i = 0; i < numberOfColumns; i++) {
+      names[i] = "column_" + i;
+      columns.append(i == 0 ? "" : ", ").append(names[i]);
+      placeholders.append(i == 0 ? "" : ", ").append('{').append(names[i]).append('}');
+    }
+    sql = "INSERT INTO wide_table (" + columns + ") VALUES (" + placeholders + ")";
+    connection = noOpConnection();
+  }
+
+  @Benchmark
+  public int[] hashMapPerRow() {
+    List<Batch> batches = new ArrayList<>(numberOfRows);
+    for (int row = 0; row < numberOfRows; row++) {
+      Batch batch = Batch.create();
+      for (int column = 0; column < numberOfColumns; column++) {
+        // even columns are numbers, odd ones text
+        batch.withParameter(names[column], column % 2 == 0 ? (Object) (long) row : names[column]);
+      }
+      batches.add(batch);
+    }
+    return Sqlify.sqlBatch(sql).withBatches(batches).executeUpdate(connection);
+  }
+
+  @Benchmark
+  public int[] batchRows() {
+    BatchRows rows = BatchRows.forSql(sql);
+    int[] slots = new int[numberOfColumns];
+    for (int column = 0; column < numberOfColumns; column++) {
+      slots[column] = rows.slotOf(names[column]);
+    }
+    for (int row = 0; row < numberOfRows; row++) {
+      rows.addRow();
+      for (int column = 0; column < numberOfColumns; column++) {
+        if (column % 2 == 0) {
+          rows.setLong(slots[column], row);
+        } else {
+          rows.set(slots[column], names[column]);
+        }
+      }
+    }
+    return Sqlify.sqlBatch(sql).withRows(rows).executeUpdate(connection);
+  }
+
+  /**
+   * A connection whose statements accept everything and report one
+   * changed row per batched row.
+   */
+  private static Connection noOpConnection() {
+    int[] numberOfBatchedRows = new int[1];
+    PreparedStatement preparedStatement = (PreparedStatement) Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(),
+        new Class<?>[]{PreparedStatement.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "addBatch":
+              numberOfBatchedRows[0]++;
+              return null;
+            case "executeBatch":
+              int[] counts = new int[numberOfBatchedRows[0]];
+              Arrays.fill(counts, 1);
+              numberOfBatchedRows[0] = 0;
+              return counts;
+            default:
+              return defaultValueOf(method.getReturnType());
+          }
+        });
+    Connection[] connection = new Connection[1];
+    connection[0] = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "prepareStatement":
+              return preparedStatement;
+            case "getAutoCommit":
+              return Boolean.TRUE;
+            default:
+              return defaultValueOf(method.getReturnType());
+          }
+        });
+    return connection[0];
+  }
+
+  private static Object defaultValueOf(Class<?> type) {
+    if (type == boolean.class) {
+      return Boolean.FALSE;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else {
+      return null;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(BatchRowsBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+
+}
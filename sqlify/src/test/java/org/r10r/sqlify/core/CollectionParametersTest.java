@@ -0,0 +1,165 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.SqlifyException;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CollectionParametersTest {
+
+  Connection connection;
+  PreparedStatement preparedStatement;
+
+  @Before
+  public void init() throws Exception {
+    connection = Mockito.mock(Connection.class);
+    preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+    when(preparedStatement.getConnection()).thenReturn(connection);
+  }
+
+  @Test
+  public void bucketSizeIsNextPowerOfTwo() {
+    assertThat(CollectionParameters.bucketSize(1)).isEqualTo(1);
+    assertThat(CollectionParameters.bucketSize(2)).isEqualTo(2);
+    assertThat(CollectionParameters.bucketSize(3)).isEqualTo(4);
+    assertThat(CollectionParameters.bucketSize(8)).isEqualTo(8);
+    assertThat(CollectionParameters.bucketSize(9)).isEqualTo(16);
+  }
+
+  @Test
+  public void expandsCollectionAndPadsWithLastValue() throws Exception {
+    // when
+    Sqlify.sql("DELETE FROM t WHERE id IN ({ids}) AND owner = {owner}")
+        .withParameter("ids", Arrays.asList(1L, 2L, 3L))
+        .withParameter("owner", "me")
+        .executeUpdate(connection);
+
+    // then
+    verify(connection).prepareStatement("DELETE FROM t WHERE id IN (?, ?, ?, ?) AND owner = ?");
+    verify(preparedStatement).setLong(1, 1L);
+    verify(preparedStatement).setLong(2, 2L);
+    verify(preparedStatement, times(1)).setLong(3, 3L);
+    verify(preparedStatement, times(1)).setLong(4, 3L);
+    verify(preparedStatement).setString(5, "me");
+  }
+
+  @Test
+  public void expandsPrimitiveArraysButNotByteArrays() throws Exception {
+    // when
+    Sqlify.sql("UPDATE t SET data = {data} WHERE id IN ({ids})")
+        .withParameter("data", new byte[]{1, 2})
+        .withParameter("ids", new int[]{7, 8})
+        .executeUpdate(connection);
+
+    // then
+    verify(connection).prepareStatement("UPDATE t SET data = ? WHERE id IN (?, ?)");
+    verify(preparedStatement).setObject(eq(1), any(byte[].class));
+    verify(preparedStatement).setInt(2, 7);
+    verify(preparedStatement).setInt(3, 8);
+  }
+
+  @Test
+  public void collectionsOfSameBucketShareJdbcSql() {
+    // given
+    CollectionParameters collectionParameters = SqlParser
+        .parse("SELECT * FROM t WHERE id IN ({ids})")
+        .getCollectionParameters();
+
+    // when
+    String withFive = collectionParameters.jdbcSqlFor(collectionParameters.shapeOf(
+        Collections.singletonMap("ids", Arrays.asList(1, 2, 3, 4, 5)), false));
+    String withEight = collectionParameters.jdbcSqlFor(collectionParameters.shapeOf(
+        Collections.singletonMap("ids", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)), false));
+
+    // then
+    assertThat(withFive).isSameAs(withEight);
+    assertThat(withFive).isEqualTo("SELECT * FROM t WHERE id IN (?, ?, ?, ?, ?, ?, ?, ?)");
+  }
+
+  @Test
+  public void bucketIsNotPaddedBeyondMaximumBindParameters() {
+    // given
+    CollectionParameters collectionParameters = SqlParser
+        .parse("SELECT * FROM t WHERE id IN ({ids})")
+        .getCollectionParameters();
+
+    // when
+    List<Integer> shape = collectionParameters.shapeOf(
+        Collections.singletonMap("ids", new long[20_000]), false);
+
+    // then
+    assertThat(shape).containsExactly(20_000);
+  }
+
+  @Test
+  public void collectionsOutsideOfInListsAreBoundAsBefore() throws Exception {
+    // given
+    long[] ids = new long[]{1L, 2L};
+    String[] tags = new String[]{"a", "b"};
+
+    // when
+    Sqlify.sql("UPDATE t SET tags = {tags} WHERE id = ANY({ids})")
+        .withParameter("ids", ids)
+        .withParameter("tags", tags)
+        .executeUpdate(connection);
+
+    // then
+    verify(connection).prepareStatement("UPDATE t SET tags = ? WHERE id = ANY(?)");
+    verify(preparedStatement).setObject(1, tags);
+    verify(preparedStatement).setObject(2, ids);
+  }
+
+  @Test
+  public void emptyCollectionIsRejected() {
+    // when
+    Throwable thrown = catchThrowable(() -> Sqlify.sql("DELETE FROM t WHERE id IN ({ids})")
+        .withParameter("ids", Collections.emptyList())
+        .executeUpdate(connection));
+
+    // then
+    assertThat(thrown).isInstanceOf(SqlifyException.class).hasMessageContaining("{ids} is empty");
+  }
+
+  @Test
+  public void bindCollectionsAsArraysRewritesInToAny() throws Exception {
+    // given
+    Array array = Mockito.mock(Array.class);
+    when(connection.createArrayOf("int8", new Object[]{1L, 2L, 3L})).thenReturn(array);
+
+    // when
+    Sqlify.sql("DELETE FROM t WHERE id IN ( {ids} ) AND parent_id NOT IN ({ids})")
+        .withParameter("ids", Arrays.asList(1L, 2L, 3L))
+        .bindCollectionsAsArrays()
+        .executeUpdate(connection);
+
+    // then
+    verify(connection).prepareStatement("DELETE FROM t WHERE id = ANY (? ) AND parent_id <> ALL (?)");
+    verify(preparedStatement).setArray(1, array);
+    verify(preparedStatement).setArray(2, array);
+  }
+
+  @Test
+  public void bindCollectionsAsArraysKeepsExplicitAny() throws Exception {
+    // when
+    Sqlify.sql("DELETE FROM t WHERE name = ANY({names})")
+        .withParameter("names", new String[0])
+        .bindCollectionsAsArrays()
+        .executeUpdate(connection);
+
+    // then
+    verify(connection).prepareStatement("DELETE FROM t WHERE name = ANY(?)");
+    verify(connection).createArrayOf("text", new Object[0]);
+  }
+
+}
@@ -0,0 +1,76 @@
+package org.r10r.sqlify.core;
+
+import org.junit.Test;
+import org.r10r.sqlify.SqlifyException;
+import static org.assertj.core.api.Assertions.*;
+
+public class MultiRowInsertTest {
+
+  @Test
+  public void repeatsTheRowAndKeepsReturningAndOnConflict() {
+    // given
+    MultiRowInsert multiRowInsert = SqlifyCore.parse(
+        "INSERT INTO t (id, name) VALUES ({id}, lower({name})) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name RETURNING id")
+        .getMultiRowInsert();
+
+    // when
+    String jdbcSql = multiRowInsert.jdbcSqlFor(3);
+
+    // then
+    assertThat(jdbcSql).isEqualTo(
+        "INSERT INTO t (id, name) VALUES (?, lower(?)), (?, lower(?)), (?, lower(?)) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name RETURNING id");
+    assertThat(multiRowInsert.getParametersPerRow()).isEqualTo(2);
+    assertThat(multiRowInsert.jdbcSqlFor(3)).isSameAs(jdbcSql);
+    assertThat(multiRowInsert.hasReturning()).isTrue();
+  }
+
+  @Test
+  public void findsReturningOnlyOnTheTopLevel() {
+    assertThat(SqlifyCore.parse("INSERT INTO t (a) VALUES ({a}) ON CONFLICT DO NOTHING -- RETURNING a")
+        .getMultiRowInsert().hasReturning()).isFalse();
+    assertThat(SqlifyCore.parse("INSERT INTO t (a) VALUES ({a}) ON CONFLICT ON CONSTRAINT \"returning\" DO NOTHING")
+        .getMultiRowInsert().hasReturning()).isFalse();
+    assertThat(SqlifyCore.parse("INSERT INTO t (a) VALUES ({a}) returning *")
+        .getMultiRowInsert().hasReturning()).isTrue();
+  }
+
+  @Test
+  public void skipsLiteralsAndCommentsWhenLookingForValues() {
+    // given
+    MultiRowInsert multiRowInsert = SqlifyCore.parse(
+        "INSERT INTO \"values\" (a, b) /* VALUES (x) */ values ({a}, 'values ({b})')")
+        .getMultiRowInsert();
+
+    // then
+    assertThat(multiRowInsert.jdbcSqlFor(2)).isEqualTo(
+        "INSERT INTO \"values\" (a, b) /* VALUES (x) */ values (?, 'values ({b})'), (?, 'values ({b})')");
+  }
+
+  @Test
+  public void staysBelowTheBindParameterLimit() {
+    // given
+    MultiRowInsert multiRowInsert = SqlifyCore.parse("INSERT INTO t (a, b, c) VALUES ({a}, {b}, {c})").getMultiRowInsert();
+
+    // then
+    assertThat(multiRowInsert.rowsPerStatement(Integer.MAX_VALUE, 32767)).isEqualTo(10922);
+    assertThat(multiRowInsert.rowsPerStatement(100, 32767)).isEqualTo(100);
+    assertThat(multiRowInsert.rowsPerStatement(100, 2)).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsPlaceholdersOutsideOfTheRow() {
+    assertThatThrownBy(() -> MultiRowInsert.of(SqlifyCore.parse(
+        "INSERT INTO t (id, name) VALUES ({id}, {name}) ON CONFLICT (id) DO UPDATE SET name = {other}")))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Ops. Multi row VALUES need all placeholders inside of VALUES (...).");
+  }
+
+  @Test
+  public void rejectsSqlWithoutExactlyOneRow() {
+    assertThatThrownBy(() -> MultiRowInsert.of(SqlifyCore.parse("INSERT INTO t (id) SELECT {id}")))
+        .isInstanceOf(SqlifyException.class);
+    assertThatThrownBy(() -> MultiRowInsert.of(SqlifyCore.parse("INSERT INTO t (id) VALUES ({a}), ({b})")))
+        .isInstanceOf(SqlifyException.class);
+  }
+
+}
@@ -0,0 +1,65 @@
+package org.r10r.sqlify.core;
+
+import org.junit.Test;
+import org.r10r.sqlify.core.ParsedSqlCache.EvictionPolicy;
+import static org.assertj.core.api.Assertions.*;
+
+public class ParsedSqlCacheTest {
+
+  @Test
+  public void parsesSqlOnlyOnce() {
+    // given
+    ParsedSqlCache parsedSqlCache = new ParsedSqlCache(10, EvictionPolicy.LRU);
+    String sql = "SELECT * FROM table WHERE id = {id} OR parent_id = {id} AND name = {name}";
+
+    // when
+    ParsedSql first = parsedSqlCache.get(sql, SqlParser::parse);
+    ParsedSql second = parsedSqlCache.get(sql, SqlParser::parse);
+
+    // then
+    assertThat(second).isSameAs(first);
+    assertThat(parsedSqlCache.getMissCount()).isEqualTo(1);
+    assertThat(parsedSqlCache.getHitCount()).isEqualTo(1);
+    assertThat(first.getJdbcSql()).isEqualTo("SELECT * FROM table WHERE id = ? OR parent_id = ? AND name = ?");
+    assertThat(first.getParameterNames()).containsExactly("id", "id", "name");
+    assertThat(first.getPositionsOf("id")).containsExactly(1, 2);
+    assertThat(first.getPositionsOf("name")).containsExactly(3);
+    assertThat(first.getPositionsOf("unknown")).isNull();
+  }
+
+  @Test
+  public void lruEvictsLeastRecentlyUsedEntries() {
+    // given
+    ParsedSqlCache parsedSqlCache = new ParsedSqlCache(2, EvictionPolicy.LRU);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+    parsedSqlCache.get("SELECT 2", SqlParser::parse);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+
+    // when
+    parsedSqlCache.get("SELECT 3", SqlParser::parse);
+
+    // then
+    assertThat(parsedSqlCache.size()).isEqualTo(2);
+    assertThat(parsedSqlCache.getEvictionCount()).isEqualTo(1);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+    assertThat(parsedSqlCache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void fifoEvictsOldestEntries() {
+    // given
+    ParsedSqlCache parsedSqlCache = new ParsedSqlCache(2, EvictionPolicy.FIFO);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+    parsedSqlCache.get("SELECT 2", SqlParser::parse);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+
+    // when
+    parsedSqlCache.get("SELECT 3", SqlParser::parse);
+
+    // then
+    assertThat(parsedSqlCache.size()).isEqualTo(2);
+    parsedSqlCache.get("SELECT 1", SqlParser::parse);
+    assertThat(parsedSqlCache.getMissCount()).isEqualTo(4);
+  }
+
+}
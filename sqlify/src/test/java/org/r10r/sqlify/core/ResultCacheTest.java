@@ -0,0 +1,217 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.metrics.QueryExecution;
+import org.r10r.sqlify.resultparser.ListResultParser;
+import org.r10r.sqlify.resultparser.SingleResultParser;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResultCacheTest {
+
+  AtomicLong now = new AtomicLong();
+  ResultCache resultCache = new ResultCache(10, TimeUnit.SECONDS.toNanos(60), now::get);
+
+  @Test
+  public void executesTheSelectOnlyOnceForTheSameParameters() throws Exception {
+    // given
+    Connection connection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.prepareStatement("SELECT name FROM country WHERE code = ?")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getString(1)).thenReturn("Austria");
+
+    // when
+    for (int i = 0; i < 3; i++) {
+      String name = Sqlify.sql("SELECT name FROM country WHERE code = {code}")
+          .withParameter("code", "AT")
+          .parseResultWith(SingleResultParser.of(String.class))
+          .cachedIn(resultCache, "country")
+          .executeSelect(connection);
+      assertThat(name).isEqualTo("Austria");
+    }
+
+    // then
+    verify(preparedStatement, times(1)).executeQuery();
+    assertThat(resultCache.getMissCount()).isEqualTo(1);
+    assertThat(resultCache.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotUseTheCacheWithoutAutoCommit() throws Exception {
+    // given
+    Connection connection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.getAutoCommit()).thenReturn(false);
+    when(connection.prepareStatement("SELECT name FROM country WHERE code = ?")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getString(1)).thenReturn("Austria");
+
+    // when
+    for (int i = 0; i < 2; i++) {
+      Sqlify.sql("SELECT name FROM country WHERE code = {code}")
+          .withParameter("code", "AT")
+          .parseResultWith(SingleResultParser.of(String.class))
+          .cachedIn(resultCache, "country")
+          .executeSelect(connection);
+    }
+
+    // then
+    verify(preparedStatement, times(2)).executeQuery();
+    assertThat(resultCache.size()).isZero();
+  }
+
+  @Test
+  public void keysContainTheResultParser() {
+    // when
+    Object single = resultCache.get("SELECT name FROM country", SingleResultParser.of(String.class), Collections.emptyMap(), () -> "Austria");
+    Object list = resultCache.get("SELECT name FROM country", ListResultParser.of(String.class), Collections.emptyMap(), () -> Collections.singletonList("Austria"));
+    Object singleAgain = resultCache.get("SELECT name FROM country", SingleResultParser.of(String.class), Collections.emptyMap(), () -> "Germany");
+
+    // then
+    assertThat(single).isEqualTo("Austria");
+    assertThat(list).isEqualTo(Collections.singletonList("Austria"));
+    assertThat(singleAgain).isEqualTo("Austria");
+    assertThat(resultCache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void comparesArrayParametersByContent() {
+    // when
+    resultCache.get("SELECT * FROM country WHERE id = ANY({ids})", Collections.singletonMap("ids", new long[]{1L, 2L}), () -> 1);
+    Object sameContent = resultCache.get("SELECT * FROM country WHERE id = ANY({ids})", Collections.singletonMap("ids", new long[]{1L, 2L}), () -> 2);
+    Object otherContent = resultCache.get("SELECT * FROM country WHERE id = ANY({ids})", Collections.singletonMap("ids", new long[]{1L, 3L}), () -> 3);
+
+    // then
+    assertThat(sameContent).isEqualTo(1);
+    assertThat(otherContent).isEqualTo(3);
+  }
+
+  @Test
+  public void loadsAgainAfterTheTimeToLive() {
+    // given
+    resultCache.get("SELECT 1", Collections.emptyMap(), () -> 1);
+
+    // when
+    now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+    Object beforeExpiry = resultCache.get("SELECT 1", Collections.emptyMap(), () -> 2);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    Object afterExpiry = resultCache.get("SELECT 1", Collections.emptyMap(), () -> 2);
+
+    // then
+    assertThat(beforeExpiry).isEqualTo(1);
+    assertThat(afterExpiry).isEqualTo(2);
+    assertThat(resultCache.getExpirationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntriesWhenFull() {
+    // given
+    ResultCache smallCache = new ResultCache(2, TimeUnit.SECONDS.toNanos(60), now::get);
+    smallCache.get("SELECT 1", Collections.emptyMap(), () -> 1);
+    smallCache.get("SELECT 2", Collections.emptyMap(), () -> 2);
+    smallCache.get("SELECT 1", Collections.emptyMap(), () -> 1);
+
+    // when
+    smallCache.get("SELECT 3", Collections.emptyMap(), () -> 3);
+
+    // then
+    assertThat(smallCache.size()).isEqualTo(2);
+    assertThat(smallCache.getEvictionCount()).isEqualTo(1);
+    assertThat((Object) smallCache.get("SELECT 1", Collections.emptyMap(), () -> -1)).isEqualTo(1);
+  }
+
+  @Test
+  public void runsOnlyOneLoaderPerKeyAtATime() throws Exception {
+    // given
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+
+    // when
+    CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> resultCache.get("SELECT 1", Collections.emptyMap(), () -> {
+      loads.incrementAndGet();
+      loading.countDown();
+      await(release);
+      return 1;
+    }));
+    loading.await(5, TimeUnit.SECONDS);
+    CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> resultCache.get("SELECT 1", Collections.emptyMap(), () -> {
+      loads.incrementAndGet();
+      return 2;
+    }));
+    release.countDown();
+
+    // then
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void updatesInvalidateTheResultsOfTheirTable() {
+    // given
+    resultCache.get("SELECT * FROM country", Collections.emptyMap(), () -> 1, "country");
+    resultCache.get("SELECT * FROM currency", Collections.emptyMap(), () -> 1, "currency");
+
+    // when
+    resultCache.onQueryExecuted(update("UPDATE public.\"Country\" SET name = {name}"));
+
+    // then
+    assertThat(resultCache.size()).isEqualTo(1);
+    assertThat(resultCache.getInvalidationCount()).isEqualTo(1);
+    assertThat((Object) resultCache.get("SELECT * FROM currency", Collections.emptyMap(), () -> 2)).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidatesByTemplateForAllParameters() {
+    // given
+    resultCache.get("SELECT * FROM country WHERE code = {code}", Collections.singletonMap("code", "AT"), () -> 1);
+    resultCache.get("SELECT * FROM country WHERE code = {code}", Collections.singletonMap("code", "DE"), () -> 2);
+    resultCache.get("SELECT * FROM currency", Collections.emptyMap(), () -> 3);
+
+    // when
+    resultCache.invalidateTemplate("SELECT * FROM country WHERE code = {code}");
+
+    // then
+    assertThat(resultCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void findsTheUpdatedTable() {
+    assertThat(ResultCache.findUpdatedTable("INSERT INTO country(code) VALUES ({code})")).isEqualTo("country");
+    assertThat(ResultCache.findUpdatedTable("  delete from ONLY geo.country WHERE code = {code}")).isEqualTo("country");
+    assertThat(ResultCache.findUpdatedTable("TRUNCATE TABLE country")).isEqualTo("country");
+    assertThat(ResultCache.findUpdatedTable("MERGE INTO country USING ...")).isEqualTo("country");
+    assertThat(ResultCache.findUpdatedTable("WITH x AS (SELECT 1) UPDATE country SET a = 1")).isNull();
+  }
+
+  private static QueryExecution update(String sql) {
+    return new QueryExecution(sql, QueryExecution.Kind.UPDATE, null, 0, 0, 0, 0, 1, 0, null);
+  }
+
+  private static void await(CountDownLatch countDownLatch) {
+    try {
+      countDownLatch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException interruptedException) {
+      throw new IllegalStateException(interruptedException);
+    }
+  }
+
+}
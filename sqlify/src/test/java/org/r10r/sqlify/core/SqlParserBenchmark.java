@@ -0,0 +1,76 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the single pass tokenizer with the regex based parsing it
+ * replaced (one scan for the names, a second one for the jdbc sql). Both
+ * run without the ParsedSqlCache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlParserBenchmark {
+
+  private static final Pattern USER_PARAMETER_EXTRACTION_PATTERN = Pattern.compile("\\{(.*?)\\}");
+
+  @Param({"100", "500", "2000"})
+  int numberOfPlaceholders;
+
+  String sql;
+
+  @Setup
+  public void generateSql() {
+    // about 25 characters per placeholder - 500 placeholders give 10k+ characters
+    StringBuilder generatedSql = new StringBuilder("SELECT * FROM t WHERE 1 = 1");
+    for (int i = 0; i < numberOfPlaceholders; i++) {
+      generatedSql.append(" AND column_").append(i).append(" = {parameter_").append(i % 50).append('}');
+    }
+    sql = generatedSql.toString();
+  }
+
+  @Benchmark
+  public ParsedSql tokenizer() {
+    return SqlParser.parse(sql);
+  }
+
+  @Benchmark
+  public void regex(Blackhole blackhole) {
+    List<String> parameterNames = new ArrayList<>();
+    Matcher matcher = USER_PARAMETER_EXTRACTION_PATTERN.matcher(sql);
+    while (matcher.find()) {
+      parameterNames.add(matcher.group(1));
+    }
+    blackhole.consume(parameterNames);
+    blackhole.consume(USER_PARAMETER_EXTRACTION_PATTERN.matcher(sql).replaceAll("?"));
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(SqlParserBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+
+}
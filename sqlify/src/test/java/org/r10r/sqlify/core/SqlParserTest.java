@@ -0,0 +1,88 @@
+package org.r10r.sqlify.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import static org.assertj.core.api.Assertions.*;
+
+public class SqlParserTest {
+
+  @Test
+  public void replacesPlaceholders() {
+    ParsedSql parsedSql = SqlParser.parse("INSERT INTO t (a, b) VALUES ({a},{b_1})");
+
+    assertThat(parsedSql.getJdbcSql()).isEqualTo("INSERT INTO t (a, b) VALUES (?,?)");
+    assertThat(parsedSql.getParameterNames()).containsExactly("a", "b_1");
+  }
+
+  @Test
+  public void endOfStatementSkipsTrailingSemicolonsAndComments() {
+    String sql = "SELECT '--;' AS a -- comment\n /* block; */ ;\n";
+
+    assertThat(sql.substring(0, SqlParser.endOfStatement(sql))).isEqualTo("SELECT '--;' AS a");
+  }
+
+  @Test
+  public void ignoresPlaceholdersInStringLiteralsAndQuotedIdentifiers() {
+    ParsedSql parsedSql = SqlParser.parse(
+        "SELECT '{\"a\": {b}}', 'it''s {c}', E'\\'{d}', \"{e}\" FROM t WHERE x = {x}");
+
+    assertThat(parsedSql.getJdbcSql()).isEqualTo(
+        "SELECT '{\"a\": {b}}', 'it''s {c}', E'\\'{d}', \"{e}\" FROM t WHERE x = ?");
+    assertThat(parsedSql.getParameterNames()).containsExactly("x");
+  }
+
+  @Test
+  public void ignoresPlaceholdersInComments() {
+    ParsedSql parsedSql = SqlParser.parse(
+        "SELECT 1 -- {a}\n FROM t /* {b} /* {c} */ {d} */ WHERE x = {x} - 1 / 2");
+
+    assertThat(parsedSql.getJdbcSql()).isEqualTo(
+        "SELECT 1 -- {a}\n FROM t /* {b} /* {c} */ {d} */ WHERE x = ? - 1 / 2");
+    assertThat(parsedSql.getParameterNames()).containsExactly("x");
+  }
+
+  @Test
+  public void ignoresPlaceholdersInDollarQuotedStrings() {
+    ParsedSql parsedSql = SqlParser.parse(
+        "SELECT $${a}$$, $body$ {b} $$ {c} $body$, a$b, $1 FROM t WHERE x = {x}");
+
+    assertThat(parsedSql.getJdbcSql()).isEqualTo(
+        "SELECT $${a}$$, $body$ {b} $$ {c} $body$, a$b, $1 FROM t WHERE x = ?");
+    assertThat(parsedSql.getParameterNames()).containsExactly("x");
+  }
+
+  @Test
+  public void keepsCurlyBracesThatAreNoPlaceholders() {
+    ParsedSql parsedSql = SqlParser.parse("SELECT {} , { x }, {a{b}, {unterminated");
+
+    assertThat(parsedSql.getJdbcSql()).isEqualTo("SELECT {} , { x }, {a?, {unterminated");
+    assertThat(parsedSql.getParameterNames()).containsExactly("b");
+  }
+
+  @Test
+  public void producesSameResultAsRegexOnLongPlainSql() {
+    // given
+    StringBuilder sql = new StringBuilder("SELECT * FROM t WHERE 1 = 1");
+    for (int i = 0; i < 500; i++) {
+      sql.append(" AND column_").append(i).append(" = {parameter_").append(i % 50).append('}');
+    }
+    assertThat(sql.length()).isGreaterThan(10_000);
+
+    // when
+    ParsedSql parsedSql = SqlParser.parse(sql.toString());
+
+    // then
+    Pattern pattern = Pattern.compile("\\{(.*?)\\}");
+    List<String> namesViaRegex = new ArrayList<>();
+    Matcher matcher = pattern.matcher(sql);
+    while (matcher.find()) {
+      namesViaRegex.add(matcher.group(1));
+    }
+    assertThat(parsedSql.getJdbcSql()).isEqualTo(pattern.matcher(sql).replaceAll("?"));
+    assertThat(parsedSql.getParameterNames()).isEqualTo(namesViaRegex);
+  }
+
+}
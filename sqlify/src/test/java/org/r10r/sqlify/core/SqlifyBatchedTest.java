@@ -0,0 +1,367 @@
+package org.r10r.sqlify.core;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.resultparser.ListResultParser;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SqlifyBatchedTest {
+
+  Connection connection;
+  PreparedStatement preparedStatement;
+  List<Batch> batches;
+
+  @Before
+  public void init() throws Exception {
+    connection = Mockito.mock(Connection.class);
+    preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?)")).thenReturn(preparedStatement);
+
+    batches = new ArrayList<>();
+    for (long i = 0; i < 5; i++) {
+      batches.add(Batch.create().withParameter("id", i));
+    }
+  }
+
+  @Test
+  public void executesBatchesInChunksAndMergesResults() throws Exception {
+    // given
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1, 1}, new int[]{1});
+    List<Long> progress = new ArrayList<>();
+
+    // when
+    int[] result = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .withChunkSize(2)
+        .withProgressListener((numberOfRowsInChunk, numberOfRowsExecuted) -> progress.add(numberOfRowsExecuted))
+        .executeUpdate(connection);
+
+    // then
+    assertThat(result).containsExactly(1, 1, 1, 1, 1);
+    assertThat(progress).containsExactly(2L, 4L, 5L);
+    verify(preparedStatement, times(3)).executeBatch();
+    verify(preparedStatement, times(5)).addBatch();
+    verify(connection, never()).commit();
+  }
+
+  @Test
+  public void commitsAfterEachChunk() throws Exception {
+    // given
+    when(connection.getAutoCommit()).thenReturn(false);
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1, 1}, new int[]{1, 1});
+
+    // when
+    Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .withChunkSize(3)
+        .withCommitAfterEachChunk()
+        .executeUpdate(connection);
+
+    // then
+    verify(connection, times(2)).commit();
+  }
+
+  @Test
+  public void commitAfterEachChunkNeedsAutocommitTurnedOff() throws Exception {
+    // given
+    when(connection.getAutoCommit()).thenReturn(true);
+
+    // when
+    assertThatThrownBy(() -> Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .withChunkSize(3)
+        .withCommitAfterEachChunk()
+        .executeUpdate(connection))
+        // then
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Ops. Commit after each chunk needs a connection with autocommit turned off.");
+  }
+
+  @Test
+  public void pullsRowsLazilyFromStreamAndBindsThemDirectly() throws Exception {
+    // given
+    when(connection.prepareStatement("INSERT INTO t (id, name) VALUES (?, ?)")).thenReturn(preparedStatement);
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1});
+    List<String> pulled = new ArrayList<>();
+
+    // when
+    int[] result = Sqlify.sqlBatch("INSERT INTO t (id, name) VALUES ({id}, {name})")
+        .withRows(Stream.of("a", "bb", "ccc").peek(pulled::add), (row, parameters) -> parameters
+            .set("id", (long) row.length())
+            .set("name", row))
+        .withChunkSize(2)
+        .withProgressListener((numberOfRowsInChunk, numberOfRowsExecuted) -> assertThat(pulled).hasSize((int) numberOfRowsExecuted))
+        .executeUpdate(connection);
+
+    // then
+    assertThat(result).containsExactly(1, 1, 1);
+    verify(preparedStatement).setLong(1, 3L);
+    verify(preparedStatement).setString(2, "ccc");
+  }
+
+  @Test
+  public void complainsAboutRowsWithMissingParameters() throws Exception {
+    // given
+    when(connection.prepareStatement("INSERT INTO t (id, name) VALUES (?, ?)")).thenReturn(preparedStatement);
+
+    // when
+    assertThatThrownBy(() -> Sqlify.sqlBatch("INSERT INTO t (id, name) VALUES ({id}, {name})")
+        .withRows(Arrays.asList("a").iterator(), (row, parameters) -> parameters.set("id", 1L))
+        .executeUpdate(connection))
+        // then
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Missing parameters to execute sql query. Please provide the following paramters: name");
+  }
+
+  @Test
+  public void bindsBatchRowsFromSlotsWithPrimitiveSetters() throws Exception {
+    // given
+    when(connection.prepareStatement("INSERT INTO t (id, name, score) VALUES (?, ?, ?)")).thenReturn(preparedStatement);
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1});
+    BatchRows rows = BatchRows.forSql("INSERT INTO t (id, name, score) VALUES ({id}, {name}, {score})");
+    int id = rows.slotOf("id");
+    int name = rows.slotOf("name");
+    int score = rows.slotOf("score");
+    rows.addRow().setLong(id, 1L).set(name, "a").setDouble(score, 0.5);
+    rows.addRow().setLong(id, 2L).set(name, "b").set(score, null);
+
+    // when
+    int[] result = Sqlify.sqlBatch(rows.getSql()).withRows(rows).executeUpdate(connection);
+
+    // then
+    assertThat(result).containsExactly(1, 1);
+    verify(preparedStatement).setLong(1, 1L);
+    verify(preparedStatement).setLong(1, 2L);
+    verify(preparedStatement).setString(2, "b");
+    verify(preparedStatement).setDouble(3, 0.5);
+    verify(preparedStatement).setObject(3, null);
+    verify(preparedStatement, times(2)).addBatch();
+  }
+
+  @Test
+  public void batchRowsComplainAboutIncompleteRows() throws Exception {
+    // given
+    BatchRows rows = BatchRows.forSql("INSERT INTO t (id, name) VALUES ({id}, {name})");
+    rows.addRow().setLong(rows.slotOf("id"), 1L);
+
+    // when
+    assertThatThrownBy(() -> rows.addRow())
+        // then
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Missing parameters to execute sql query. Please provide 'name' for row 0");
+  }
+
+  @Test
+  public void rewritesIntoMultiRowValuesBelowTheBindParameterLimit() throws Exception {
+    // given
+    PreparedStatement twoRows = Mockito.mock(PreparedStatement.class);
+    PreparedStatement oneRow = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?), (?)")).thenReturn(twoRows);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?)")).thenReturn(oneRow);
+    when(twoRows.executeBatch()).thenReturn(new int[]{2, 1});
+    when(oneRow.executeUpdate()).thenReturn(1);
+
+    // when
+    int[] result = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .withMultiRowValues(2)
+        .executeUpdate(connection);
+
+    // then
+    assertThat(result).containsExactly(1, 1, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 1);
+    verify(twoRows).setLong(1, 2L);
+    verify(twoRows).setLong(2, 3L);
+    verify(twoRows, times(2)).addBatch();
+    verify(oneRow).setLong(1, 4L);
+    verify(oneRow, never()).addBatch();
+    verify(twoRows).close();
+    verify(oneRow).close();
+  }
+
+  @Test
+  public void executesMultiRowValuesWithReturningAsQueries() throws Exception {
+    // given
+    PreparedStatement threeRows = Mockito.mock(PreparedStatement.class);
+    PreparedStatement twoRows = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?), (?), (?) RETURNING id")).thenReturn(threeRows);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?), (?) RETURNING id")).thenReturn(twoRows);
+    ResultSet firstRows = generatedKeys(10L, 11L, 12L);
+    ResultSet lastRows = generatedKeys(13L, 14L);
+    when(threeRows.executeQuery()).thenReturn(firstRows);
+    when(twoRows.executeQuery()).thenReturn(lastRows);
+
+    // when
+    List<Long> keys = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id}) RETURNING id")
+        .withBatches(batches)
+        .withMultiRowValues(3)
+        .parseResultWith(ListResultParser.of(Long.class))
+        .executeUpdateAndReturnGeneratedKeys(connection);
+
+    // then
+    assertThat(keys).containsExactly(10L, 11L, 12L, 13L, 14L);
+    verify(connection, never()).prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS));
+    verify(threeRows, never()).executeBatch();
+    verify(threeRows, never()).executeUpdate();
+    verify(twoRows, never()).executeUpdate();
+    verify(firstRows).close();
+    verify(lastRows).close();
+  }
+
+  @Test
+  public void countsTheReturnedRowsOfMultiRowValuesWithReturning() throws Exception {
+    // given
+    PreparedStatement threeRows = Mockito.mock(PreparedStatement.class);
+    PreparedStatement twoRows = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?), (?), (?) ON CONFLICT DO NOTHING RETURNING id")).thenReturn(threeRows);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?), (?) ON CONFLICT DO NOTHING RETURNING id")).thenReturn(twoRows);
+    ResultSet allInserted = generatedKeys(10L, 11L, 12L);
+    ResultSet oneSkipped = generatedKeys(13L);
+    when(threeRows.executeQuery()).thenReturn(allInserted);
+    when(twoRows.executeQuery()).thenReturn(oneSkipped);
+
+    // when
+    int[] result = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id}) ON CONFLICT DO NOTHING RETURNING id")
+        .withBatches(batches)
+        .withMultiRowValues(3)
+        .executeUpdate(connection);
+
+    // then
+    assertThat(result).containsExactly(1, 1, 1, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO);
+    verify(threeRows, never()).executeBatch();
+    verify(twoRows, never()).executeUpdate();
+  }
+
+  @Test
+  public void returnsGeneratedKeysOfAllChunks() throws Exception {
+    // given
+    PreparedStatement keyStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?)", Statement.RETURN_GENERATED_KEYS)).thenReturn(keyStatement);
+    when(keyStatement.executeBatch()).thenReturn(new int[]{1, 1, 1}, new int[]{1, 1});
+    ResultSet firstChunk = generatedKeys(10L, 11L, 12L);
+    ResultSet secondChunk = generatedKeys(13L, 14L);
+    when(keyStatement.getGeneratedKeys()).thenReturn(firstChunk, secondChunk);
+
+    // when
+    List<Long> keys = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .withChunkSize(3)
+        .parseResultWith(ListResultParser.of(Long.class))
+        .executeUpdateAndReturnGeneratedKeys(connection);
+
+    // then
+    assertThat(keys).containsExactly(10L, 11L, 12L, 13L, 14L);
+    verify(keyStatement, times(2)).executeBatch();
+    verify(firstChunk).close();
+    verify(secondChunk).close();
+  }
+
+  @Test
+  public void returningGeneratedKeysNeedsAResultParser() {
+    assertThatThrownBy(() -> Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .executeUpdateAndReturnGeneratedKeys(connection))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Arg. I don't know how to parse the generated keys.");
+  }
+
+  @Test
+  public void isolatesFailingRowsWithSavepointsAndAppliesAllOthers() throws Exception {
+    // given a database that rejects every batch containing id 3
+    when(connection.getAutoCommit()).thenReturn(false);
+    List<Long> boundIds = new ArrayList<>();
+    List<Long> pendingIds = new ArrayList<>();
+    long[] currentId = new long[1];
+    doAnswer(invocation -> currentId[0] = invocation.getArgument(1))
+        .when(preparedStatement).setLong(eq(1), anyLong());
+    doAnswer(invocation -> pendingIds.add(currentId[0])).when(preparedStatement).addBatch();
+    doAnswer(invocation -> {
+      pendingIds.clear();
+      return null;
+    }).when(preparedStatement).clearBatch();
+    when(preparedStatement.executeBatch()).thenAnswer(invocation -> {
+      List<Long> ids = new ArrayList<>(pendingIds);
+      pendingIds.clear();
+      if (ids.contains(3L)) {
+        BatchUpdateException batchUpdateException = new BatchUpdateException("Batch entry was aborted", new int[0]);
+        batchUpdateException.setNextException(new SQLException("duplicate key value violates unique constraint", "23505"));
+        throw batchUpdateException;
+      }
+      boundIds.addAll(ids);
+      int[] counts = new int[ids.size()];
+      Arrays.fill(counts, 1);
+      return counts;
+    });
+
+    // when
+    BatchReport batchReport = Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .executeFaultTolerantUpdate(connection);
+
+    // then
+    assertThat(batchReport.getUpdateCounts()).containsExactly(1, 1, 1, Statement.EXECUTE_FAILED, 1);
+    assertThat(batchReport.getNumberOfSucceededRows()).isEqualTo(4);
+    assertThat(batchReport.getFailedRows()).hasSize(1);
+    assertThat(batchReport.getFailedRows().get(0).getIndex()).isEqualTo(3);
+    assertThat(batchReport.getFailedRows().get(0).getSqlException().getSQLState()).isEqualTo("23505");
+    assertThat(boundIds).containsExactlyInAnyOrder(0L, 1L, 2L, 4L);
+    // [0-5) fails, [0-2) ok, [2-5) fails, [2-3) ok, [3-5) fails, [3-4) fails, [4-5) ok
+    verify(preparedStatement, times(7)).executeBatch();
+    verify(connection, times(4)).rollback(any());
+  }
+
+  @Test
+  public void doesNotBisectOnOtherFailures() throws Exception {
+    // given
+    when(connection.getAutoCommit()).thenReturn(false);
+    BatchUpdateException batchUpdateException = new BatchUpdateException("Batch entry was aborted", new int[0]);
+    batchUpdateException.setNextException(new SQLException("An I/O error occurred while sending to the backend.", "08006"));
+    when(preparedStatement.executeBatch()).thenThrow(batchUpdateException);
+
+    // when
+    Throwable thrown = catchThrowable(() -> Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .executeFaultTolerantUpdate(connection));
+
+    // then
+    assertThat(thrown).isInstanceOf(SqlifyException.class).hasCause(batchUpdateException);
+    verify(preparedStatement, times(1)).executeBatch();
+    verify(connection, never()).rollback(any());
+  }
+
+  @Test
+  public void faultTolerantBatchesNeedAutocommitTurnedOff() throws Exception {
+    when(connection.getAutoCommit()).thenReturn(true);
+
+    assertThatThrownBy(() -> Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})")
+        .withBatches(batches)
+        .executeFaultTolerantUpdate(connection))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Ops. Fault tolerant batches need a connection with autocommit turned off.");
+  }
+
+  private static ResultSet generatedKeys(Long... keys) throws Exception {
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    // true for every key, then false
+    Boolean[] nextResults = new Boolean[keys.length];
+    Arrays.fill(nextResults, true);
+    nextResults[keys.length - 1] = false;
+    when(resultSet.next()).thenReturn(true, nextResults);
+    when(resultSet.getLong(1)).thenReturn(keys[0], Arrays.copyOfRange(keys, 1, keys.length));
+    return resultSet;
+  }
+
+}
@@ -0,0 +1,155 @@
+package org.r10r.sqlify.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.SqlifyException;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SqlifyBulkLoadTest {
+
+  Connection connection;
+  CopyIn copyIn;
+  ByteArrayOutputStream sent;
+  List<Integer> sentChunkSizes;
+
+  @Before
+  public void init() throws Exception {
+    connection = Mockito.mock(Connection.class);
+    PGConnection pgConnection = Mockito.mock(PGConnection.class);
+    CopyManager copyManager = Mockito.mock(CopyManager.class);
+    copyIn = Mockito.mock(CopyIn.class);
+    when(connection.isWrapperFor(PGConnection.class)).thenReturn(true);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn("COPY person (id, name, data) FROM STDIN")).thenReturn(copyIn);
+
+    sent = new ByteArrayOutputStream();
+    sentChunkSizes = new ArrayList<>();
+    doAnswer(invocation -> {
+      byte[] bytes = invocation.getArgument(0);
+      int offset = invocation.getArgument(1);
+      int length = invocation.getArgument(2);
+      sent.write(bytes, offset, length);
+      sentChunkSizes.add(length);
+      return null;
+    }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+  }
+
+  @Test
+  public void encodesRowsIntoCopyTextFormat() throws Exception {
+    // given
+    when(copyIn.endCopy()).thenReturn(3L);
+    List<Batch> batches = Arrays.asList(
+        Batch.create().withParameter("id", -42L).withParameter("name", "tab\there\\ new\nline").withParameter("data", new byte[]{0, (byte) 0xff}),
+        Batch.create().withParameter("id", Long.MIN_VALUE).withParameter("name", "Grüße 🙂").withParameter("data", null),
+        Batch.create().withParameter("id", 7).withParameter("name", true).withParameter("data", 1.5d));
+
+    // when
+    long result = Sqlify.bulkLoad("person", "id", "name", "data")
+        .withBatches(batches)
+        .executeLoad(connection);
+
+    // then
+    assertThat(result).isEqualTo(3L);
+    assertThat(new String(sent.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+        "-42\ttab\\there\\\\ new\\nline\t\\\\x00ff\n"
+        + "-9223372036854775808\tGrüße 🙂\t\\N\n"
+        + "7\tt\t1.5\n");
+    verify(copyIn, never()).cancelCopy();
+  }
+
+  @Test
+  public void sendsWheneverTheBufferIsFull() throws Exception {
+    // given
+    List<Long> progress = new ArrayList<>();
+
+    // when
+    Sqlify.bulkLoad("person", "id", "name", "data")
+        .withRows(Arrays.asList(1L, 2L, 3L).iterator(), (id, parameters) -> parameters
+            .set("id", id)
+            .set("name", "n")
+            .set("data", null))
+        .withBufferSize(14)
+        .withProgressListener((numberOfRowsInChunk, numberOfRowsExecuted) -> progress.add(numberOfRowsExecuted))
+        .executeLoad(connection);
+
+    // then each row is 7 bytes: "1\tn\t\N\n"
+    assertThat(sentChunkSizes).containsExactly(14, 7);
+    assertThat(progress).containsExactly(2L, 3L);
+  }
+
+  @Test
+  public void cancelsTheCopyIfARowIsIncomplete() throws Exception {
+    // given
+    when(copyIn.isActive()).thenReturn(true);
+
+    // when
+    assertThatThrownBy(() -> Sqlify.bulkLoad("person", "id", "name", "data")
+        .withRows(Arrays.asList(1L).iterator(), (id, parameters) -> parameters.set("id", id))
+        .executeLoad(connection))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Missing parameters to execute sql query. Please provide the following paramters: name, data");
+
+    // then
+    verify(copyIn).cancelCopy();
+  }
+
+  @Test
+  public void fallsBackToMultiRowInsertsWithoutPostgres() throws Exception {
+    // given
+    Connection otherConnection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(otherConnection.prepareStatement("INSERT INTO person (id, name) VALUES (?, ?), (?, ?)")).thenReturn(preparedStatement);
+    when(preparedStatement.executeUpdate()).thenReturn(2);
+
+    // when
+    long result = Sqlify.bulkLoad("person", "id", "name")
+        .withBatches(Arrays.asList(
+            Batch.create().withParameter("id", 1L).withParameter("name", "a"),
+            Batch.create().withParameter("id", 2L).withParameter("name", "b")))
+        .executeLoad(otherConnection);
+
+    // then
+    assertThat(result).isEqualTo(2L);
+    verify(preparedStatement).setLong(3, 2L);
+    verify(preparedStatement).setString(4, "b");
+  }
+
+  @Test
+  public void fallbackSendsLargeLoadsInChunks() throws Exception {
+    // given
+    Connection otherConnection = Mockito.mock(Connection.class);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(otherConnection.prepareStatement(anyString())).thenReturn(preparedStatement);
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{SqlifyBulkLoad.DEFAULT_CHUNK_SIZE});
+    when(preparedStatement.executeUpdate()).thenReturn(5_000);
+    Iterator<Long> ids = LongStream.range(0, 2 * SqlifyBulkLoad.DEFAULT_CHUNK_SIZE + 5_000).iterator();
+
+    // when
+    long result = Sqlify.bulkLoad("person", "id")
+        .withRows(ids, (id, parameters) -> parameters.set("id", id))
+        .executeLoad(otherConnection);
+
+    // then
+    assertThat(result).isEqualTo(2L * SqlifyBulkLoad.DEFAULT_CHUNK_SIZE + 5_000);
+    verify(preparedStatement, times(2)).executeBatch();
+    verify(preparedStatement, times(1)).executeUpdate();
+  }
+
+}
@@ -0,0 +1,111 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.SqlifyException;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SqlifySingleStreamingTest {
+
+  Connection connection;
+  PreparedStatement preparedStatement;
+  ResultSet resultSet;
+
+  @Before
+  public void init() throws Exception {
+    connection = Mockito.mock(Connection.class);
+    preparedStatement = Mockito.mock(PreparedStatement.class);
+    resultSet = Mockito.mock(ResultSet.class);
+    when(connection.prepareStatement(
+        "SELECT name FROM t WHERE id > ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+        .thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getString(1)).thenReturn("a", "b");
+  }
+
+  @Test
+  public void executeStreamStreamsRowsAndClosesStatementWhenStreamIsClosed() throws Exception {
+    // when
+    List<String> names;
+    try (Stream<String> stream = Sqlify
+        .sql("SELECT name FROM t WHERE id > {id}")
+        .withParameter("id", 10L)
+        .withFetchSize(500)
+        .executeStream(connection, String.class)) {
+
+      names = stream.collect(Collectors.toList());
+      verify(preparedStatement, never()).close();
+    }
+
+    // then
+    assertThat(names).containsExactly("a", "b");
+    verify(preparedStatement).setFetchSize(500);
+    verify(preparedStatement).setLong(1, 10L);
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  public void executeForEachHandsEveryRowToConsumer() throws Exception {
+    // when
+    List<String> names = new ArrayList<>();
+    long numberOfRows = Sqlify
+        .sql("SELECT name FROM t WHERE id > {id}")
+        .withParameter("id", 10L)
+        .executeForEach(connection, resultSet -> resultSet.getString(1), names::add);
+
+    // then
+    assertThat(numberOfRows).isEqualTo(2);
+    assertThat(names).containsExactly("a", "b");
+    verify(preparedStatement).setFetchSize(Sqlify.Builder.DEFAULT_STREAM_FETCH_SIZE);
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  public void streamingNeedsAutocommitTurnedOff() throws Exception {
+    // given
+    when(connection.getAutoCommit()).thenReturn(true);
+
+    // when
+    Throwable thrown = catchThrowable(() -> Sqlify
+        .sql("SELECT name FROM t WHERE id > {id}")
+        .withParameter("id", 10L)
+        .executeStream(connection, String.class));
+
+    // then
+    assertThat(thrown)
+        .isInstanceOf(SqlifyException.class)
+        .hasMessageStartingWith("Ops. Streaming needs a connection with autocommit turned off");
+    verify(connection, never()).prepareStatement(anyString(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void closingTheStreamClosesTheStatementEvenIfTheResultSetFails() throws Exception {
+    // given
+    doThrow(new SQLException("connection lost")).when(resultSet).close();
+    Stream<String> stream = Sqlify
+        .sql("SELECT name FROM t WHERE id > {id}")
+        .withParameter("id", 10L)
+        .executeStream(connection, String.class);
+
+    // when
+    Throwable thrown = catchThrowable(() -> stream.close());
+
+    // then
+    assertThat(thrown).isInstanceOf(SqlifyException.class).hasMessageContaining("connection lost");
+    verify(preparedStatement).close();
+  }
+
+}
@@ -0,0 +1,144 @@
+package org.r10r.sqlify.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StatementCacheTest {
+
+  Connection physicalConnection;
+  Connection pooledConnection;
+
+  @Before
+  public void init() throws Exception {
+    physicalConnection = Mockito.mock(Connection.class);
+    pooledConnection = Mockito.mock(Connection.class);
+    when(pooledConnection.isWrapperFor(Connection.class)).thenReturn(true);
+    when(pooledConnection.unwrap(Connection.class)).thenReturn(physicalConnection);
+    when(physicalConnection.prepareStatement(anyString(), anyInt()))
+        .thenAnswer(invocation -> Mockito.mock(PreparedStatement.class));
+  }
+
+  @Test
+  public void reusesStatementsAcrossCheckoutsOfTheSamePhysicalConnection() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(10);
+
+    // when
+    PreparedStatement first = statementCache.wrap(pooledConnection).prepareStatement("SELECT 1");
+    first.setLong(1, 1L);
+    first.close();
+    PreparedStatement second = statementCache.wrap(pooledConnection).prepareStatement("SELECT 1");
+    second.executeQuery();
+    second.close();
+
+    // then
+    verify(physicalConnection, times(1)).prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+    verify(pooledConnection, never()).prepareStatement(anyString());
+    assertThat(statementCache.getHitCount()).isEqualTo(1);
+    assertThat(statementCache.getMissCount()).isEqualTo(1);
+    assertThat(statementCache.getHitRate()).isEqualTo(0.5);
+    assertThat(first.isClosed()).isTrue();
+    assertThatThrownBy(() -> first.executeQuery()).hasMessage("Ops. This statement has already been closed.");
+  }
+
+  @Test
+  public void distinguishesGeneratedKeyMode() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(10);
+    Connection connection = statementCache.wrap(pooledConnection);
+
+    // when
+    connection.prepareStatement("INSERT INTO t VALUES (1)").close();
+    connection.prepareStatement("INSERT INTO t VALUES (1)", Statement.RETURN_GENERATED_KEYS).close();
+
+    // then
+    assertThat(statementCache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void preparesNewStatementIfCachedOneIsStillInUse() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(10);
+    Connection connection = statementCache.wrap(pooledConnection);
+
+    // when
+    PreparedStatement outer = connection.prepareStatement("SELECT 1");
+    PreparedStatement inner = connection.prepareStatement("SELECT 1");
+    inner.close();
+    outer.close();
+
+    // then
+    verify(physicalConnection, times(2)).prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+  }
+
+  @Test
+  public void closesEvictedStatements() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(1);
+    Connection connection = statementCache.wrap(pooledConnection);
+    PreparedStatement physicalStatement = Mockito.mock(PreparedStatement.class);
+    when(physicalConnection.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS)).thenReturn(physicalStatement);
+
+    // when
+    connection.prepareStatement("SELECT 1").close();
+    connection.prepareStatement("SELECT 2").close();
+
+    // then
+    verify(physicalStatement).clearParameters();
+    verify(physicalStatement).close();
+    assertThat(statementCache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void restoresQueryTimeoutMaxRowsAndFetchSizeWhenGivenBack() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(10);
+    Connection connection = statementCache.wrap(pooledConnection);
+    PreparedStatement physicalStatement = Mockito.mock(PreparedStatement.class);
+    when(physicalConnection.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS)).thenReturn(physicalStatement);
+    when(physicalStatement.getQueryTimeout()).thenReturn(0, 5);
+    when(physicalStatement.getMaxRows()).thenReturn(0, 100);
+    when(physicalStatement.getFetchSize()).thenReturn(0, 0);
+
+    // when
+    PreparedStatement statement = connection.prepareStatement("SELECT 1");
+    statement.setQueryTimeout(5);
+    statement.setMaxRows(100);
+    statement.close();
+
+    // then
+    verify(physicalStatement).setQueryTimeout(0);
+    verify(physicalStatement).setMaxRows(0);
+    verify(physicalStatement, never()).setFetchSize(anyInt());
+    verify(physicalStatement, never()).close();
+  }
+
+  @Test
+  public void closesStatementIfSettingsCannotBeRestored() throws Exception {
+    // given
+    StatementCache statementCache = new StatementCache(10);
+    Connection connection = statementCache.wrap(pooledConnection);
+    PreparedStatement physicalStatement = Mockito.mock(PreparedStatement.class);
+    when(physicalConnection.prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS)).thenReturn(physicalStatement);
+    when(physicalStatement.getQueryTimeout()).thenReturn(0, 5);
+    doThrow(new SQLException("not supported")).when(physicalStatement).setQueryTimeout(0);
+
+    // when
+    PreparedStatement statement = connection.prepareStatement("SELECT 1");
+    statement.setQueryTimeout(5);
+    statement.close();
+    connection.prepareStatement("SELECT 1").close();
+
+    // then
+    verify(physicalStatement).close();
+    verify(physicalConnection, times(2)).prepareStatement("SELECT 1", Statement.NO_GENERATED_KEYS);
+  }
+
+}
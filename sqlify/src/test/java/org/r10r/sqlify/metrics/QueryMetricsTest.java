@@ -0,0 +1,142 @@
+package org.r10r.sqlify.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.Sqlify;
+import org.r10r.sqlify.core.Batch;
+import org.r10r.sqlify.resultparser.ListResultParser;
+import org.r10r.sqlify.resultparser.LongArrayResultParser;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class QueryMetricsTest {
+
+  QueryMetrics queryMetrics;
+  Connection connection;
+
+  @Before
+  public void init() {
+    queryMetrics = new QueryMetrics();
+    QueryListeners.add(queryMetrics);
+    connection = Mockito.mock(Connection.class);
+  }
+
+  @After
+  public void cleanup() {
+    QueryListeners.clear();
+  }
+
+  @Test
+  public void recordsSelectsPerTemplate() throws Exception {
+    // given
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.prepareStatement("SELECT name FROM t WHERE id > ?")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+
+    // when
+    List<String> names = Sqlify.sql("SELECT name FROM t WHERE id > {id}")
+        .withParameter("id", 1L)
+        .parseResultWith(ListResultParser.of(String.class))
+        .executeSelect(connection);
+
+    // then
+    QueryMetrics.TemplateSnapshot templateSnapshot = queryMetrics.snapshot().getTemplates().get("SELECT name FROM t WHERE id > {id}");
+    assertThat(names).hasSize(2);
+    assertThat(templateSnapshot.getCount()).isEqualTo(1);
+    assertThat(templateSnapshot.getFailures()).isEqualTo(0);
+    assertThat(templateSnapshot.getRows().getMax()).isEqualTo(2);
+    assertThat(templateSnapshot.getTotalMicros().getMax())
+        .isGreaterThanOrEqualTo(templateSnapshot.getExecuteMicros().getMax());
+  }
+
+  @Test
+  public void countsTheRowsOfPrimitiveArrays() throws Exception {
+    // given
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.prepareStatement("SELECT id FROM t")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, true, false);
+
+    // when
+    long[] ids = Sqlify.sql("SELECT id FROM t")
+        .parseResultWith(LongArrayResultParser.notNull())
+        .executeSelect(connection);
+
+    // then
+    assertThat(ids).hasSize(3);
+    assertThat(queryMetrics.snapshot().getTemplates().get("SELECT id FROM t").getRows().getMax()).isEqualTo(3);
+  }
+
+  @Test
+  public void recordsBatchSizesAndFailures() throws Exception {
+    // given
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO t (id) VALUES (?)")).thenReturn(preparedStatement);
+    when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1, 1}).thenThrow(new java.sql.SQLException("boom"));
+    List<Batch> batches = Arrays.asList(
+        Batch.create().withParameter("id", 1L),
+        Batch.create().withParameter("id", 2L),
+        Batch.create().withParameter("id", 3L));
+
+    // when
+    Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})").withBatches(batches).executeUpdate(connection);
+    assertThatThrownBy(() -> Sqlify.sqlBatch("INSERT INTO t (id) VALUES ({id})").withBatches(batches).executeUpdate(connection));
+
+    // then
+    QueryMetrics.TemplateSnapshot templateSnapshot = queryMetrics.snapshot().getTemplates().get("INSERT INTO t (id) VALUES ({id})");
+    assertThat(templateSnapshot.getCount()).isEqualTo(2);
+    assertThat(templateSnapshot.getFailures()).isEqualTo(1);
+    assertThat(templateSnapshot.getBatchSizes().getMax()).isEqualTo(3);
+    assertThat(templateSnapshot.getRows().getMax()).isEqualTo(3);
+  }
+
+  @Test
+  public void resetForgetsConnectionsAndRetriesToo() {
+    // given
+    queryMetrics.onConnectionAcquired(2_000_000L);
+    queryMetrics.onConnectionReused();
+    queryMetrics.onTransactionRetried("40001", 1, 3_000_000L);
+
+    // when
+    queryMetrics.reset();
+
+    // then
+    QueryMetrics.Snapshot snapshot = queryMetrics.snapshot();
+    assertThat(snapshot.getConnectionAcquisitionMicros().getCount()).isZero();
+    assertThat(snapshot.getConnectionAcquisitionMicros().getMax()).isZero();
+    assertThat(snapshot.getConnectionReuses()).isZero();
+    assertThat(snapshot.getTransactionRetries()).isEmpty();
+    assertThat(snapshot.getTransactionRetryWastedMicros().getCount()).isZero();
+  }
+
+  @Test
+  public void histogramReportsPercentilesWithBoundedError() {
+    // given
+    Histogram histogram = new Histogram();
+
+    // when
+    for (long value = 1; value <= 10_000; value++) {
+      histogram.record(value);
+    }
+
+    // then
+    HistogramSnapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(10_000);
+    assertThat(snapshot.getMax()).isEqualTo(10_000);
+    assertThat(snapshot.getMean()).isEqualTo(5000.5);
+    assertThat(snapshot.getValueAtPercentile(50)).isBetween(5000L, 5000L + 5000L / 16);
+    assertThat(snapshot.getValueAtPercentile(99)).isBetween(9900L, 10_000L);
+    assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(10_000);
+  }
+
+}
@@ -0,0 +1,143 @@
+package org.r10r.sqlify.metrics;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.Test;
+import org.mockito.Mockito;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SlowQueryLogTest {
+
+  List<SlowQuery> logged = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void logsOnlySlowQueriesWithRedactedParameters() {
+    // given
+    SlowQueryLog slowQueryLog = SlowQueryLog.withThreshold(100, TimeUnit.MILLISECONDS)
+        .withRedactor(ParameterRedactor.namesContaining("password"))
+        .withSink(logged::add);
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    parameters.put("email", "a@b.com");
+    parameters.put("passwordHash", "secret");
+
+    // when
+    slowQueryLog.onQueryExecuted(select(parameters, 99));
+    slowQueryLog.onQueryExecuted(select(parameters, 150));
+
+    // then
+    assertThat(logged).hasSize(1);
+    assertThat(logged.get(0).getRedactedParameters()).containsEntry("email", "a@b.com").containsEntry("passwordHash", "***");
+    assertThat(logged.get(0).toString())
+        .startsWith("Slow SELECT took 150 ms (prepare 0 ms, execute 140 ms, mapping 10 ms, rows 1): SELECT * FROM users WHERE email = {email}")
+        .doesNotContain("secret");
+  }
+
+  @Test
+  public void suppressesSlowQueriesAboveTheRateLimit() {
+    // given
+    SlowQueryLog slowQueryLog = SlowQueryLog.withThreshold(100, TimeUnit.MILLISECONDS)
+        .withMaximumPerSecond(2)
+        .withSink(logged::add);
+
+    // when
+    for (int i = 0; i < 1000; i++) {
+      slowQueryLog.onQueryExecuted(select(new LinkedHashMap<>(), 150));
+    }
+
+    // then a new second may have started in between - but not many
+    assertThat(logged.size()).isBetween(2, 6);
+  }
+
+  @Test
+  public void addsTheExplainPlanOnPostgres() throws Exception {
+    // given
+    DataSource dataSource = Mockito.mock(DataSource.class);
+    Connection connection = Mockito.mock(Connection.class, RETURNS_DEEP_STUBS);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getMetaData().getDatabaseProductName()).thenReturn("PostgreSQL");
+    when(connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM users WHERE email = ?")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getString(1)).thenReturn("Seq Scan on users", "Execution Time: 149 ms");
+    SlowQueryLog slowQueryLog = SlowQueryLog.withThreshold(100, TimeUnit.MILLISECONDS)
+        .withExplainAnalyze(dataSource)
+        .withSink(logged::add);
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    parameters.put("email", "a@b.com");
+
+    // when
+    slowQueryLog.onQueryExecuted(select(parameters, 150));
+
+    // then
+    verify(connection, timeout(5000)).close();
+    long waitUntil = System.currentTimeMillis() + 5000;
+    while (logged.isEmpty() && System.currentTimeMillis() < waitUntil) {
+      Thread.sleep(10);
+    }
+    assertThat(logged.get(0).getExplainPlan()).isEqualTo("Seq Scan on users\nExecution Time: 149 ms");
+    verify(preparedStatement).setString(1, "a@b.com");
+  }
+
+  @Test
+  public void explainUsesTheSqlAndBinderOfTheExecution() throws Exception {
+    // given
+    DataSource dataSource = Mockito.mock(DataSource.class);
+    Connection connection = Mockito.mock(Connection.class, RETURNS_DEEP_STUBS);
+    PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getMetaData().getDatabaseProductName()).thenReturn("PostgreSQL");
+    when(connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM users WHERE id IN (?, ?)")).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    SlowQueryLog slowQueryLog = SlowQueryLog.withThreshold(100, TimeUnit.MILLISECONDS)
+        .withExplainAnalyze(dataSource)
+        .withSink(logged::add);
+    QueryExecution queryExecution = new QueryExecution(
+        "SELECT * FROM users WHERE id IN ({ids})",
+        QueryExecution.Kind.SELECT,
+        Collections.singletonMap("ids", Arrays.asList(1L, 2L)),
+        0, 0, 0, TimeUnit.MILLISECONDS.toNanos(150), 1, 0, null,
+        "SELECT * FROM users WHERE id IN (?, ?)",
+        statement -> {
+          statement.setLong(1, 1L);
+          statement.setLong(2, 2L);
+        });
+
+    // when
+    slowQueryLog.onQueryExecuted(queryExecution);
+
+    // then
+    verify(connection, timeout(5000)).close();
+    verify(preparedStatement).setLong(1, 1L);
+    verify(preparedStatement).setLong(2, 2L);
+    verify(preparedStatement).executeQuery();
+  }
+
+  private static QueryExecution select(Map<String, Object> parameters, long totalMillis) {
+    return new QueryExecution(
+        "SELECT * FROM users WHERE email = {email}",
+        QueryExecution.Kind.SELECT,
+        parameters,
+        0,
+        TimeUnit.MILLISECONDS.toNanos(totalMillis - 10),
+        TimeUnit.MILLISECONDS.toNanos(10),
+        TimeUnit.MILLISECONDS.toNanos(totalMillis),
+        1,
+        0,
+        null);
+  }
+
+}
@@ -0,0 +1,83 @@
+package org.r10r.sqlify.resultparser;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.SqlifyException;
+import org.r10r.sqlify.resultparser.ColumnarResult.ColumnType;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ColumnarResultParserTest {
+
+  @Test
+  public void readsEachColumnIntoATypedArray() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    when(resultSet.getMetaData()).thenReturn(metaData);
+    when(metaData.getColumnCount()).thenReturn(4);
+    when(metaData.getColumnLabel(1)).thenReturn("country");
+    when(metaData.getColumnLabel(2)).thenReturn("visits");
+    when(metaData.getColumnLabel(3)).thenReturn("bounce_rate");
+    when(metaData.getColumnLabel(4)).thenReturn("revenue");
+    when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(metaData.getColumnType(2)).thenReturn(Types.BIGINT);
+    when(metaData.getColumnType(3)).thenReturn(Types.DOUBLE);
+    when(metaData.getColumnType(4)).thenReturn(Types.NUMERIC);
+    when(resultSet.next()).thenReturn(true, true, true, false);
+    when(resultSet.getString(1)).thenReturn("AT", null, "AT");
+    when(resultSet.getLong(2)).thenReturn(10L, 0L, 30L);
+    when(resultSet.getDouble(3)).thenReturn(0.5, 0.25, 0.0);
+    when(resultSet.wasNull()).thenReturn(true, false);
+    when(resultSet.getObject(4)).thenReturn(new BigDecimal("1.10"), null, new BigDecimal("3.30"));
+
+    // when
+    ColumnarResult result = ColumnarResultParser.of().withExpectedRows(2).parseResultSet(resultSet);
+
+    // then
+    assertThat(result.getRowCount()).isEqualTo(3);
+    assertThat(result.getColumnNames()).containsExactly("country", "visits", "bounce_rate", "revenue");
+    assertThat(result.getStringCodes(0)).containsExactly(0, -1, 0);
+    assertThat(result.getStringDictionary(0)).containsExactly("AT");
+    assertThat(result.getString(0, 2)).isEqualTo("AT");
+    assertThat(result.getLongs(result.indexOf("VISITS"))).containsExactly(10L, 0L, 30L);
+    assertThat(result.getDoubles(2)).containsExactly(0.5, 0.25, 0.0);
+    assertThat(result.getObjects(3)).containsExactly(new BigDecimal("1.10"), null, new BigDecimal("3.30"));
+    assertThat(result.isNull(0, 1)).isTrue();
+    assertThat(result.isNull(1, 1)).isTrue();
+    assertThat(result.isNull(1, 0)).isFalse();
+    assertThat(result.isNull(2, 2)).isFalse();
+    assertThat(result.isNull(3, 1)).isTrue();
+    assertThat(result.getNullBitmap(2)).isEmpty();
+    assertThat(result.getLongs(1)).isSameAs(result.getLongs(1));
+  }
+
+  @Test
+  public void usesTheOverriddenColumnType() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    when(resultSet.getMetaData()).thenReturn(metaData);
+    when(metaData.getColumnCount()).thenReturn(1);
+    when(metaData.getColumnLabel(1)).thenReturn("revenue");
+    when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getDouble(1)).thenReturn(1.5);
+
+    // when
+    ColumnarResult result = ColumnarResultParser.of()
+        .withColumnType("Revenue", ColumnType.DOUBLE)
+        .parseResultSet(resultSet);
+
+    // then
+    assertThat(result.getDoubles(0)).containsExactly(1.5);
+    assertThatThrownBy(() -> result.getLongs(0))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Ops. Column 'revenue' is DOUBLE, not LONG.");
+  }
+
+}
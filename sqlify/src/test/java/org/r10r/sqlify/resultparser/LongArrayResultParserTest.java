@@ -0,0 +1,75 @@
+package org.r10r.sqlify.resultparser;
+
+import java.sql.ResultSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.r10r.sqlify.SqlifyException;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LongArrayResultParserTest {
+
+  ResultSet resultSet;
+
+  @Before
+  public void init() throws Exception {
+    resultSet = Mockito.mock(ResultSet.class);
+  }
+
+  @Test
+  public void growsBeyondTheExpectedRowsAndTrimsTheResult() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(true, true, true, false);
+    when(resultSet.getLong(1)).thenReturn(1L, 2L, 3L);
+
+    // when
+    long[] ids = LongArrayResultParser.of().withExpectedRows(2).parseResultSet(resultSet);
+
+    // then
+    assertThat(ids).containsExactly(1L, 2L, 3L);
+  }
+
+  @Test
+  public void checksForNullOnlyForZero() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getLong(1)).thenReturn(7L, 0L);
+    when(resultSet.wasNull()).thenReturn(true);
+
+    // when
+    long[] ids = LongArrayResultParser.nullsAs(-1L).parseResultSet(resultSet);
+
+    // then
+    assertThat(ids).containsExactly(7L, -1L);
+    verify(resultSet, times(1)).wasNull();
+  }
+
+  @Test
+  public void failsOnNullUnlessAllowed() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getLong(1)).thenReturn(0L);
+    when(resultSet.wasNull()).thenReturn(true);
+
+    // then
+    assertThatThrownBy(() -> LongArrayResultParser.of().parseResultSet(resultSet))
+        .isInstanceOf(SqlifyException.class)
+        .hasMessage("Ops. Row 1 is null. Use LongArrayResultParser.nullsAs(...) for nullable columns.");
+  }
+
+  @Test
+  public void neverCallsWasNullForNotNullColumns() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getLong(1)).thenReturn(0L);
+
+    // when
+    long[] ids = LongArrayResultParser.notNull().withExpectedRows(1).parseResultSet(resultSet);
+
+    // then
+    assertThat(ids).containsExactly(0L);
+    verify(resultSet, never()).wasNull();
+  }
+
+}
@@ -0,0 +1,185 @@
+package org.r10r.sqlify.rowparser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.r10r.sqlify.SqlifyException;
+
+/**
+ * Compares the cached MethodHandle field mappers of PojoRowParser with the
+ * reflective parsing they replaced (getDeclaredFields, setAccessible and
+ * boxing for every row).
+ *
+ * The ResultSet is an in-memory proxy that returns the same (already boxed)
+ * values for every row. It costs the same for both variants. Run with
+ * "-prof gc" to compare the allocation per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PojoRowParserBenchmark {
+
+  private static final String[] COLUMNS = {"id", "name", "age", "score", "parentId"};
+
+  @Param({"1000", "100000"})
+  int numberOfRows;
+
+  RowParser<Pojo> rowParser;
+  InMemoryResultSet inMemoryResultSet;
+
+  @Setup
+  public void createResultSet() {
+    rowParser = RowParsers.getDefaultParserFor(Pojo.class);
+    inMemoryResultSet = new InMemoryResultSet(numberOfRows);
+  }
+
+  @Benchmark
+  public List<Pojo> methodHandles() throws Exception {
+    ResultSet resultSet = inMemoryResultSet.reset();
+    List<Pojo> pojos = new ArrayList<>(numberOfRows);
+    RowParser<Pojo> rowParserForResultSet = rowParser.forResultSet(resultSet);
+    while (resultSet.next()) {
+      pojos.add(rowParserForResultSet.parse(resultSet));
+    }
+    return pojos;
+  }
+
+  @Benchmark
+  public List<Pojo> reflection() throws Exception {
+    ResultSet resultSet = inMemoryResultSet.reset();
+    List<Pojo> pojos = new ArrayList<>(numberOfRows);
+    while (resultSet.next()) {
+      pojos.add(parseReflectively(Pojo.class, resultSet));
+    }
+    return pojos;
+  }
+
+  /**
+   * The former PojoRowParser.parse - reduced to the types of {@link Pojo}.
+   */
+  private static <E> E parseReflectively(Class<E> clazz, ResultSet resultSet) throws Exception {
+    E e = clazz.newInstance();
+    for (Field field : e.getClass().getDeclaredFields()) {
+      String name = field.getName();
+      Class<?> type = field.getType();
+      boolean initialFieldAccessibility = field.isAccessible();
+
+      field.setAccessible(true);
+
+      if (type == String.class) {
+        String value = resultSet.getString(name);
+        field.set(e, value);
+      } else if (type == Integer.class || type == int.class) {
+        Integer value = resultSet.getInt(name);
+        field.set(e, value);
+      } else if (type == Long.class || type == long.class) {
+        Long value = resultSet.getLong(name);
+        field.set(e, value);
+      } else if (type == Double.class || type == double.class) {
+        Double value = resultSet.getDouble(name);
+        field.set(e, value);
+      } else {
+        throw new SqlifyException("Ops. not supported... " + field.getName() + " -- " + field.getType());
+      }
+      field.setAccessible(initialFieldAccessibility);
+    }
+    return e;
+  }
+
+  public static class Pojo {
+
+    long id;
+    String name;
+    int age;
+    double score;
+    Long parentId;
+
+  }
+
+  static final class InMemoryResultSet {
+
+    private static final Object ID = 4711L;
+    private static final Object NAME = "John";
+    private static final Object AGE = 42;
+    private static final Object SCORE = 0.5d;
+
+    private final int numberOfRows;
+    private final ResultSet resultSet;
+    private final ResultSetMetaData metaData;
+    private int row;
+
+    private InMemoryResultSet(int numberOfRows) {
+      this.numberOfRows = numberOfRows;
+      this.metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+          ResultSetMetaData.class.getClassLoader(),
+          new Class<?>[]{ResultSetMetaData.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getColumnCount":
+                return COLUMNS.length;
+              case "getColumnLabel":
+              case "getColumnName":
+                return COLUMNS[(Integer) args[0] - 1];
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+      this.resultSet = (ResultSet) Proxy.newProxyInstance(
+          ResultSet.class.getClassLoader(),
+          new Class<?>[]{ResultSet.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "next":
+                return ++row <= this.numberOfRows ? Boolean.TRUE : Boolean.FALSE;
+              case "getMetaData":
+                return metaData;
+              case "wasNull":
+                return Boolean.FALSE;
+              case "getLong":
+                return ID;
+              case "getString":
+                return NAME;
+              case "getInt":
+                return AGE;
+              case "getDouble":
+                return SCORE;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+    private ResultSet reset() {
+      row = 0;
+      return resultSet;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(PojoRowParserBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+
+}
@@ -4,10 +4,12 @@ import org.r10r.sqlify.rowparser.PojoRowParser;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.mockito.Mockito;
+import org.r10r.sqlify.SqlifyException;
 
 
 public class PojoRowParserTest {
@@ -88,4 +90,103 @@ public class PojoRowParserTest {
     assertThat(myPojo.URL, CoreMatchers.equalTo(new URL("http://example.com")));
   }
   
+  static class PojoWithFinalAndStaticFields {
+    static final String CONSTANT = "constant";
+    final long id = 0;
+    String name;
+  }
+
+  @Test
+  public void testMappingOfFinalFieldsAndSkippingOfStaticFields() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSet.getLong("id")).thenReturn(42L);
+    Mockito.when(resultSet.getString("name")).thenReturn("john");
+    
+    RowParser<PojoWithFinalAndStaticFields> rowParser = RowParsers.getDefaultParserFor(PojoWithFinalAndStaticFields.class);
+    
+    // when
+    PojoWithFinalAndStaticFields pojo = rowParser.parse(resultSet);
+    
+    // then
+    assertThat(pojo.getClass().getDeclaredField("id").getLong(pojo), CoreMatchers.equalTo(42L));
+    assertThat(pojo.name, CoreMatchers.equalTo("john"));
+    assertThat(RowParsers.getDefaultParserFor(PojoWithFinalAndStaticFields.class), CoreMatchers.sameInstance(rowParser));
+    Mockito.verify(resultSet, Mockito.never()).getString("CONSTANT");
+  }
+  
+  static class Person {
+    String name;
+    int age;
+  }
+
+  @Test
+  public void testMappingByColumnIndex() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+    Mockito.when(metaData.getColumnCount()).thenReturn(3);
+    Mockito.when(metaData.getColumnLabel(1)).thenReturn("id");
+    Mockito.when(metaData.getColumnLabel(2)).thenReturn("AGE");
+    Mockito.when(metaData.getColumnLabel(3)).thenReturn("name");
+    Mockito.when(resultSet.getInt(2)).thenReturn(23);
+    Mockito.when(resultSet.getString(3)).thenReturn("John");
+    
+    // when
+    RowParser<Person> rowParser = new PojoRowParser<>(Person.class).forResultSet(resultSet);
+    Person person = rowParser.parse(resultSet);
+    
+    // then
+    assertThat(person.name, CoreMatchers.equalTo("John"));
+    assertThat(person.age, CoreMatchers.equalTo(23));
+    Mockito.verify(resultSet, Mockito.never()).getString("name");
+    Mockito.verify(resultSet, Mockito.never()).getInt("age");
+  }
+  
+  @Test
+  public void testMissingColumnsAreReportedBeforeTheFirstRow() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+    Mockito.when(metaData.getColumnCount()).thenReturn(2);
+    Mockito.when(metaData.getColumnLabel(1)).thenReturn("id");
+    Mockito.when(metaData.getColumnLabel(2)).thenReturn("name");
+    
+    // when
+    try {
+      new PojoRowParser<>(Person.class).forResultSet(resultSet);
+      fail("expecting an exception here...");
+    } catch (SqlifyException sqlifyException) {
+      // then
+      assertThat(sqlifyException.getMessage(), CoreMatchers.equalTo(
+          "Ops. The result does not contain a column for the following fields of " 
+              + Person.class.getName() + ": age. Columns without field: id"));
+    }
+  }
+
+  @Test
+  public void testUnmappedColumnsAreReportedBeforeTheFirstRowInStrictMode() throws Exception {
+    // given
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+    Mockito.when(metaData.getColumnCount()).thenReturn(3);
+    Mockito.when(metaData.getColumnLabel(1)).thenReturn("id");
+    Mockito.when(metaData.getColumnLabel(2)).thenReturn("age");
+    Mockito.when(metaData.getColumnLabel(3)).thenReturn("name");
+    
+    // when
+    try {
+      new PojoRowParser<>(Person.class).failingOnUnmappedColumns().forResultSet(resultSet);
+      fail("expecting an exception here...");
+    } catch (SqlifyException sqlifyException) {
+      // then
+      assertThat(sqlifyException.getMessage(), CoreMatchers.equalTo(
+          "Ops. The result contains columns without a field of " 
+              + Person.class.getName() + ": id. Please select only the columns you need."));
+    }
+  }
+  
 }